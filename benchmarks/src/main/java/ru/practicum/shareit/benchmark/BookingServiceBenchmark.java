@@ -0,0 +1,50 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingServiceBenchmark {
+
+    //Первая страница бронирований всех вещей владельца
+    @Benchmark
+    public List<BookingResponseDto> findAllBookingForAllItems(ShareItState state) {
+        return state.getBookingService().findAllBookingForAllItems(state.randomUserId(), "ALL", 0, 20);
+    }
+
+    //Создание пакета из 50 бронирований случайных вещей, результат - количество пакетов в секунду.
+    //Бронирования вставляются Hibernate пакетами JDBC, для сравнения запускается с -p jdbcBatchSize=1,50
+    @Benchmark
+    @BenchmarkMode(Mode.Throughput)
+    @OutputTimeUnit(TimeUnit.SECONDS)
+    public List<BookingBatchResultDto> addBookings(ShareItState state) {
+        LocalDateTime start = LocalDateTime.now().plusDays(ThreadLocalRandom.current().nextInt(1, 3650));
+        List<BookingDto> bookings = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            BookingDto booking = new BookingDto();
+            booking.setItemId(state.randomItemId());
+            booking.setStart(start.plusHours(i));
+            booking.setEnd(start.plusHours(i + 1));
+            bookings.add(booking);
+        }
+        return state.getBookingService().addBookings(state.randomUserId(), bookings);
+    }
+}
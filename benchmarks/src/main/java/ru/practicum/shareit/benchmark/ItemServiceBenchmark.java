@@ -0,0 +1,40 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.item.dto.ItemResponseDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ItemServiceBenchmark {
+
+    //Получение вещи владельцем вместе с последним и следующим бронированием и комментариями
+    @Benchmark
+    public ItemResponseDto getById(ShareItState state) {
+        long itemId = state.randomItemId();
+        return state.getItemService().getById(state.getOwnerOfItem(itemId), itemId);
+    }
+
+    //Получение всех вещей владельца вместе с бронированиями
+    @Benchmark
+    public List<ItemResponseDto> getItemsOfOwner(ShareItState state) {
+        return state.getItemService().getItemsOfOwner(state.randomUserId(), null, null);
+    }
+
+    //Поиск вещей по тексту, первая страница
+    @Benchmark
+    public List<ItemResponseDto> getItemsWithText(ShareItState state) {
+        return state.getItemService().getItemsWithText(state.randomSearchText(), 0, 20);
+    }
+}
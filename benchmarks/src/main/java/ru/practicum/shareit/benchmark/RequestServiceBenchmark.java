@@ -0,0 +1,27 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+import ru.practicum.shareit.request.dto.ResponseRequestDto;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RequestServiceBenchmark {
+
+    //Первая страница запросов других пользователей вместе с вещами, созданными по ним
+    @Benchmark
+    public List<ResponseRequestDto> findAllRequestsByPages(ShareItState state) {
+        return state.getRequestService().findAllRequestsByPages(state.randomUserId(), 0, 20);
+    }
+}
@@ -0,0 +1,98 @@
+package ru.practicum.shareit.benchmark;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.ShareItServer;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.dataset.DatasetGenerator;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.request.service.RequestService;
+
+import java.util.concurrent.ThreadLocalRandom;
+
+//Общее состояние бенчмарков: контекст сервера на базе H2 и набор данных от DatasetGenerator.
+//Масштаб набора данных задается параметрами JMH, например: -p users=1000 -p bookingsPerItem=50.
+//Размер пакета JDBC для вставок Hibernate сравнивается параметром -p jdbcBatchSize=1,50
+@State(Scope.Benchmark)
+public class ShareItState {
+    @Param("100")
+    private int users;
+    @Param("10")
+    private int itemsPerUser;
+    @Param("10")
+    private int bookingsPerItem;
+    @Param("50")
+    private int jdbcBatchSize;
+
+    private ConfigurableApplicationContext context;
+    //Владельцы вещей по id вещи
+    private long[] itemOwners;
+    private ItemService itemService;
+    private BookingService bookingService;
+    private RequestService requestService;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        SpringApplication application = new SpringApplication(ShareItServer.class);
+        application.setWebApplicationType(WebApplicationType.NONE);
+        context = application.run(
+                "--spring.profiles.active=ci",
+                "--spring.datasource.url=jdbc:h2:mem:benchmark;DB_CLOSE_DELAY=-1",
+                "--spring.jpa.properties.hibernate.format_sql=false",
+                "--spring.jpa.properties.hibernate.jdbc.batch_size=" + jdbcBatchSize,
+                "--logging.level.root=WARN",
+                "--logging.level.ru.practicum.shareit=WARN",
+                "--shareit.dataset.users=" + users,
+                "--shareit.dataset.requests=" + users,
+                "--shareit.dataset.items=" + users * itemsPerUser,
+                "--shareit.dataset.bookings=" + (long) users * itemsPerUser * bookingsPerItem);
+        context.getBean(DatasetGenerator.class).generate();
+        itemOwners = new long[users * itemsPerUser + 1];
+        context.getBean(JdbcTemplate.class).query("select id, owner_id from items",
+                row -> { itemOwners[(int) row.getLong(1)] = row.getLong(2); });
+        itemService = context.getBean(ItemService.class);
+        bookingService = context.getBean(BookingService.class);
+        requestService = context.getBean(RequestService.class);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        context.close();
+    }
+
+    public ItemService getItemService() {
+        return itemService;
+    }
+
+    public BookingService getBookingService() {
+        return bookingService;
+    }
+
+    public RequestService getRequestService() {
+        return requestService;
+    }
+
+    public long randomUserId() {
+        return ThreadLocalRandom.current().nextLong(users) + 1;
+    }
+
+    public long randomItemId() {
+        return ThreadLocalRandom.current().nextLong(itemOwners.length - 1) + 1;
+    }
+
+    public long getOwnerOfItem(long itemId) {
+        return itemOwners[(int) itemId];
+    }
+
+    public String randomSearchText() {
+        return DatasetGenerator.WORDS.get(ThreadLocalRandom.current().nextInt(DatasetGenerator.WORDS.size()));
+    }
+}
@@ -4,13 +4,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.GatewayResponseCache;
 
+import java.util.List;
 import java.util.Map;
 
 @Service
@@ -18,17 +24,37 @@ public class BookingClient extends BaseClient {
     private static final String API_PREFIX = "/bookings";
 
     @Autowired
-    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public BookingClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         ClientHttpRequestFactory requestFactory, @Nullable WebClient webClient,
+                         @Nullable GatewayResponseCache responseCache) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient == null ? null : webClient.mutate().baseUrl(serverUrl + API_PREFIX).build(),
+                responseCache
         );
     }
 
+    //Списки бронирований зависят от текущего времени, поэтому ответы сервера не кешируются.
+    //Изменение бронирований при этом очищает кеш ответов других клиентов: вещи содержат последнее и следующее бронирования
+    @Override
+    protected boolean isCacheable() {
+        return false;
+    }
+
     //Получение информации о бронировании
-    public ResponseEntity<Object> getBookings(long userId, String state, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getBookings(long userId, String state, Integer from, Integer size, Long cursor) {
+        //Постраничный вывод по курсору
+        if (cursor != null) {
+            Map<String, Object> parameters = Map.of(
+                    "state", state,
+                    "cursor", cursor,
+                    "size", size
+            );
+            return get("?state={state}&cursor={cursor}&size={size}", userId, parameters);
+        }
         Map<String, Object> parameters = Map.of(
                 "state", state,
                 "from", from,
@@ -39,16 +65,21 @@ public class BookingClient extends BaseClient {
 
 
     //Создание бронирования
-    public ResponseEntity<Object> bookItem(long userId, BookItemRequestDto requestDto) {
+    public Mono<ResponseEntity<Object>> bookItem(long userId, BookItemRequestDto requestDto) {
         return post("", userId, requestDto);
     }
 
-    public ResponseEntity<Object> getBooking(long userId, Long bookingId) {
+    //Создание нескольких бронирований одним запросом
+    public Mono<ResponseEntity<Object>> bookItems(long userId, List<BookItemRequestDto> requestDtos) {
+        return post("/batch", userId, requestDtos);
+    }
+
+    public Mono<ResponseEntity<Object>> getBooking(long userId, Long bookingId) {
         return get("/" + bookingId, userId);
     }
 
     //Обновление бронирования
-    public ResponseEntity<Object>  updateBooking(long bookingId, long userId, boolean approved) {
+    public Mono<ResponseEntity<Object>>  updateBooking(long bookingId, long userId, boolean approved) {
         Map<String, Object> parameters = Map.of(
                 "bookingId", bookingId,
                 "approved", approved
@@ -56,8 +87,22 @@ public class BookingClient extends BaseClient {
         return patch("/{bookingId}?approved={approved}", userId, parameters ,null);
     }
 
+    //Подтверждение или отклонение нескольких бронирований
+    public Mono<ResponseEntity<Object>> updateBookings(long userId, List<BookingDecisionDto> decisions) {
+        return patch("/batch", userId, decisions);
+    }
+
     //Все бронирования вещей владельца определенного по id
-    public ResponseEntity<Object>  findAllBookingForAllItems(long userId, String state, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>>  findAllBookingForAllItems(long userId, String state, Integer from, Integer size, Long cursor) {
+        //Постраничный вывод по курсору
+        if (cursor != null) {
+            Map<String, Object> parameters = Map.of(
+                    "state", state,
+                    "cursor", cursor,
+                    "size", size
+            );
+            return get("/owner?state={state}&cursor={cursor}&size={size}", userId, parameters);
+        }
         Map<String, Object> parameters = Map.of(
                 "state", state,
                 "from", from,
@@ -6,13 +6,18 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.booking.dto.BookItemRequestDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.exception.UnsupportedStatusException;
 
 import javax.validation.Valid;
+import javax.validation.constraints.NotEmpty;
 import javax.validation.constraints.Positive;
 import javax.validation.constraints.PositiveOrZero;
+import javax.validation.constraints.Size;
+import java.util.List;
 
 @Controller
 @RequestMapping(path = "/bookings")
@@ -20,26 +25,38 @@ import javax.validation.constraints.PositiveOrZero;
 @Slf4j
 @Validated
 public class BookingController {
+	//Максимальное количество бронирований в одном пакете, совпадает с ограничением сервера
+	private static final int MAX_SIZE_OF_BATCH = 1000;
 	private final BookingClient bookingClient;
 
 	@GetMapping
-	public ResponseEntity<Object> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+	public Mono<ResponseEntity<Object>> getBookings(@RequestHeader("X-Sharer-User-Id") long userId,
 											  @RequestParam(name = "state", defaultValue = "ALL") String state,
 			                                  @PositiveOrZero @RequestParam(name = "from", defaultValue = "0") Integer from,
-		                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size) {
-		log.info("Get booking with state {}, userId={}, from={}, size={}", state, userId, from, size);
-		return bookingClient.getBookings(userId, state, from, size);
+		                                      @Positive @RequestParam(name = "size", defaultValue = "10") Integer size,
+											  @PositiveOrZero @RequestParam(name = "cursor", required = false) Long cursor) {
+		log.info("Get booking with state {}, userId={}, from={}, size={}, cursor={}", state, userId, from, size, cursor);
+		return bookingClient.getBookings(userId, state, from, size, cursor);
 	}
 
 	@PostMapping
-	public ResponseEntity<Object> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
+	public Mono<ResponseEntity<Object>> bookItem(@RequestHeader("X-Sharer-User-Id") long userId,
 			@RequestBody @Valid BookItemRequestDto requestDto) {
 		log.info("Creating booking {}, userId={}", requestDto, userId);
 		return bookingClient.bookItem(userId, requestDto);
 	}
 
+	//Создание нескольких бронирований одним запросом. Бронирования проверяются на сервере по отдельности,
+	//чтобы ошибка в одном из них не отменяла создание остальных, здесь проверяется только размер пакета
+	@PostMapping("/batch")
+	public Mono<ResponseEntity<Object>> bookItems(@RequestHeader("X-Sharer-User-Id") long userId,
+			@RequestBody @NotEmpty @Size(max = MAX_SIZE_OF_BATCH) List<BookItemRequestDto> requestDtos) {
+		log.info("Creating batch of {} bookings, userId={}", requestDtos.size(), userId);
+		return bookingClient.bookItems(userId, requestDtos);
+	}
+
 	@GetMapping("/{bookingId}")
-	public ResponseEntity<Object> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
+	public Mono<ResponseEntity<Object>> getBooking(@RequestHeader("X-Sharer-User-Id") long userId,
 			@PathVariable Long bookingId) {
 		log.info("Get booking {}, userId={}", bookingId, userId);
 		return bookingClient.getBooking(userId, bookingId);
@@ -47,20 +64,29 @@ public class BookingController {
 
 	//Обновление бронирования
 	@PatchMapping("/{bookingId}")
-	public ResponseEntity<Object> update(@PathVariable("bookingId") long bookingId,
+	public Mono<ResponseEntity<Object>> update(@PathVariable("bookingId") long bookingId,
 										 @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
 										 @RequestParam("approved") boolean approved) {
 		log.info("Patch request for booking with id: {} .", bookingId);
 		return bookingClient.updateBooking(bookingId, userId, approved);
 	}
 
+	//Подтверждение или отклонение нескольких бронирований одним запросом, решения проверяются на сервере по отдельности
+	@PatchMapping("/batch")
+	public Mono<ResponseEntity<Object>> updateBookings(@RequestHeader("X-Sharer-User-Id") long userId,
+			@RequestBody @NotEmpty @Size(max = MAX_SIZE_OF_BATCH) List<BookingDecisionDto> decisions) {
+		log.info("Patch request for batch of {} bookings, userId={}", decisions.size(), userId);
+		return bookingClient.updateBookings(userId, decisions);
+	}
+
 	//Все бронирования вещей владельца определенного по id
 	@GetMapping("/owner")
-	public ResponseEntity<Object> findAllBookingForAllItems(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+	public Mono<ResponseEntity<Object>> findAllBookingForAllItems(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
 															@RequestParam(value = "state", required = false, defaultValue = "ALL") String state,
 															@RequestParam(value = "from", required = false, defaultValue = "0") Integer from,
-															@RequestParam(value = "size", required = false, defaultValue = "99") Integer size) {
-		log.info("Get booking with state {}, userId={}, from={}, size={}", state, userId, from, size);
-		return bookingClient.findAllBookingForAllItems(userId, state, from, size);
+															@RequestParam(value = "size", required = false, defaultValue = "99") Integer size,
+															@PositiveOrZero @RequestParam(value = "cursor", required = false) Long cursor) {
+		log.info("Get booking with state {}, userId={}, from={}, size={}, cursor={}", state, userId, from, size, cursor);
+		return bookingClient.findAllBookingForAllItems(userId, state, from, size, cursor);
 	}
 }
@@ -1,115 +1,368 @@
 package ru.practicum.shareit.client;
 
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.core.io.buffer.DataBufferUtils;
 import org.springframework.http.*;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
 import org.springframework.lang.Nullable;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.ResourceAccessException;
 import org.springframework.web.client.RestTemplate;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 public class BaseClient {
+    //Заголовки, относящиеся к соединению шлюза с сервером, клиенту не передаются.
+    //Длину тела записывает сам шлюз
+    private static final Set<String> NOT_FORWARDED_HEADERS = Set.of("connection", "keep-alive", "transfer-encoding",
+            "te", "trailer", "upgrade", "proxy-authenticate", "proxy-authorization", "content-length");
+    private static final int STREAM_LINES_PER_WRITE = 256;
+
     protected final RestTemplate rest;
+    //Неблокирующий клиент, задан в режиме shareit-server.http.mode=reactive. Иначе запросы выполняет RestTemplate
+    @Nullable
+    private final WebClient webClient;
+    //Кеш ответов на GET-запросы, задан при shareit-gateway.cache.enabled=true
+    @Nullable
+    private final GatewayResponseCache responseCache;
 
     public BaseClient(RestTemplate rest) {
+        this(rest, null, null);
+    }
+
+    public BaseClient(RestTemplate rest, @Nullable WebClient webClient, @Nullable GatewayResponseCache responseCache) {
         this.rest = rest;
+        this.webClient = webClient;
+        this.responseCache = responseCache;
     }
 
-    protected ResponseEntity<Object> get(String path) {
+    //Ответы на GET-запросы клиента можно сохранять в кеше шлюза
+    protected boolean isCacheable() {
+        return true;
+    }
+
+    protected Mono<ResponseEntity<Object>> get(String path) {
         return get(path, null, null);
     }
 
-    protected ResponseEntity<Object> get(String path, long userId) {
+    protected Mono<ResponseEntity<Object>> get(String path, long userId) {
         return get(path, userId, null);
     }
 
-    protected ResponseEntity<Object> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<Object>> get(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.GET, path, userId, parameters, null);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, T body) {
+    protected <T> Mono<ResponseEntity<Object>> post(String path, T body) {
         return post(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> post(String path, long userId, T body) {
         return post(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<Object>> post(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.POST, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> put(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> put(String path, long userId, T body) {
         return put(path, userId, null, body);
     }
 
-    public <T> ResponseEntity<Object> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
+    public <T> Mono<ResponseEntity<Object>> put(String path, long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PUT, path, userId, parameters, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, T body) {
         return patch(path, null, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId) {
         return patch(path, userId, null, null);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, long userId, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, long userId, T body) {
         return patch(path, userId, null, body);
     }
 
-    protected <T> ResponseEntity<Object> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
+    protected <T> Mono<ResponseEntity<Object>> patch(String path, Long userId, @Nullable Map<String, Object> parameters, T body) {
         return makeAndSendRequest(HttpMethod.PATCH, path, userId, parameters, body);
     }
 
-    protected ResponseEntity<Object> delete(String path) {
+    protected Mono<ResponseEntity<Object>> delete(String path) {
         return delete(path, null, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, long userId) {
+    protected Mono<ResponseEntity<Object>> delete(String path, long userId) {
         return delete(path, userId, null);
     }
 
-    protected ResponseEntity<Object> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
+    protected Mono<ResponseEntity<Object>> delete(String path, Long userId, @Nullable Map<String, Object> parameters) {
         return makeAndSendRequest(HttpMethod.DELETE, path, userId, parameters, null);
     }
 
-    private <T> ResponseEntity<Object> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
-        HttpEntity<T> requestEntity = new HttpEntity<>(body, defaultHeaders(userId));
+    //Потоковое получение ответа сервера в формате NDJSON. Строки передаются клиенту без разбора JSON по мере
+    //получения. Spring MVC записывает и отправляет каждый элемент отдельно, поэтому строки объединяются в фрагменты
+    //по STREAM_LINES_PER_WRITE строк. Кеш шлюза не используется
+    protected Flux<String> stream(String path) {
+        Flux<String> lines = webClient != null
+                ? webClient.get()
+                        .uri(path)
+                        .accept(MediaType.APPLICATION_NDJSON)
+                        .retrieve()
+                        .bodyToFlux(String.class)
+                : Flux.using(() -> openStream(path), BaseClient::readLines, ClientHttpResponse::close)
+                        //RestTemplate читает ответ блокирующим вызовом, поэтому строки читаются вне потока сервлета
+                        .subscribeOn(Schedulers.boundedElastic());
+        return Flux.defer(() -> {
+            Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+            return lines
+                    .filter(line -> !line.isEmpty())
+                    .buffer(STREAM_LINES_PER_WRITE)
+                    .map(chunk -> String.join("\n", chunk) + "\n")
+                    .doOnComplete(() -> sample.stop(requestTimer(HttpMethod.GET, String.valueOf(HttpStatus.OK.value()))))
+                    .doOnError(e -> sample.stop(requestTimer(HttpMethod.GET, "ERROR")));
+        });
+    }
+
+    //Ответ с ошибкой обрабатывается так же, как в RestTemplate
+    private ClientHttpResponse openStream(String path) throws IOException {
+        ClientHttpRequest request = rest.getRequestFactory().createRequest(rest.getUriTemplateHandler().expand(path), HttpMethod.GET);
+        request.getHeaders().setAccept(List.of(MediaType.APPLICATION_NDJSON));
+        ClientHttpResponse response = request.execute();
+        if (rest.getErrorHandler().hasError(response)) {
+            try {
+                rest.getErrorHandler().handleError(response);
+            } finally {
+                response.close();
+            }
+        }
+        return response;
+    }
+
+    private static Flux<String> readLines(ClientHttpResponse response) {
+        try {
+            BufferedReader reader = new BufferedReader(new InputStreamReader(response.getBody(), StandardCharsets.UTF_8));
+            return Flux.fromStream(reader.lines());
+        } catch (IOException e) {
+            return Flux.error(new UncheckedIOException(e));
+        }
+    }
+
+    //Время выполнения запроса, в том числе ответа из кеша шлюза, публикуется в метрике shareit.gateway.requests
+    //с тегами клиента, метода и статуса ответа. Метрика регистрируется в глобальном реестре, к которому
+    //Spring Boot подключает реестры Actuator
+    private <T> Mono<ResponseEntity<Object>> makeAndSendRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        Mono<ResponseEntity<Object>> response = routeRequest(method, path, userId, parameters, body);
+        return Mono.defer(() -> {
+            Timer.Sample sample = Timer.start(Metrics.globalRegistry);
+            return response
+                    .doOnSuccess(result -> sample.stop(requestTimer(method,
+                            result != null ? String.valueOf(result.getStatusCodeValue()) : "NONE")))
+                    .doOnError(e -> sample.stop(requestTimer(method, "ERROR")));
+        });
+    }
+
+    private Timer requestTimer(HttpMethod method, String status) {
+        return Timer.builder("shareit.gateway.requests")
+                .tag("client", getClass().getSimpleName())
+                .tag("method", method.name())
+                .tag("status", status)
+                .publishPercentileHistogram()
+                .register(Metrics.globalRegistry);
+    }
+
+    //Условный заголовок клиента передается серверу, если ответ не берется из кеша шлюза. Ответ из кеша на условный
+    //запрос Spring MVC сам заменяет на 304 по заголовку ETag сохраненного ответа
+    private <T> Mono<ResponseEntity<Object>> routeRequest(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        String ifNoneMatch = method == HttpMethod.GET ? clientIfNoneMatch() : null;
+        if (responseCache == null) {
+            return send(method, path, userId, parameters, body, ifNoneMatch, false);
+        }
+        if (method != HttpMethod.GET) {
+            return send(method, path, userId, parameters, body, null, false)
+                    .doOnNext(response -> {
+                        if (response.getStatusCode().is2xxSuccessful()) {
+                            responseCache.invalidateAll();
+                        }
+                    });
+        }
+        if (!isCacheable()) {
+            return send(method, path, userId, parameters, null, ifNoneMatch, false);
+        }
+        return Mono.defer(() -> sendCached(responseCache, path, userId, parameters));
+    }
+
+    //Свежий ответ из кеша возвращается без запроса к серверу, устаревший запрашивается с ETag сохраненного ответа.
+    //Тело ответа для кеша читается в память целиком
+    private Mono<ResponseEntity<Object>> sendCached(GatewayResponseCache responseCache, String path, Long userId,
+                                                    @Nullable Map<String, Object> parameters) {
+        URI uri = parameters != null
+                ? rest.getUriTemplateHandler().expand(path, parameters)
+                : rest.getUriTemplateHandler().expand(path);
+        String key = GatewayResponseCache.key(uri, userId);
+        GatewayResponseCache.CachedResponse cached = responseCache.get(key);
+        if (cached != null && responseCache.isFresh(cached)) {
+            return Mono.just(cached.getResponse());
+        }
+        long generation = responseCache.generation();
+        return send(HttpMethod.GET, path, userId, parameters, null, cached != null ? cached.getEtag() : null, true)
+                .map(response -> responseCache.update(key, cached, response, generation));
+    }
+
+    //Если buffered = false, тело ответа сервера передается клиенту потоком (StreamedBody), иначе читается в массив байт
+    private <T> Mono<ResponseEntity<Object>> send(HttpMethod method, String path, Long userId, @Nullable Map<String, Object> parameters,
+                                                  @Nullable T body, @Nullable String ifNoneMatch, boolean buffered) {
+        HttpHeaders headers = defaultHeaders(userId, ifNoneMatch);
+        if (webClient != null) {
+            return buffered
+                    ? exchange(webClient, method, path, headers, parameters, body)
+                    : exchangeStreamed(webClient, method, path, headers, parameters, body);
+        }
+        //RestTemplate выполняет запрос в потоке сервлета при подписке на результат
+        return Mono.fromCallable(() -> buffered
+                ? exchange(method, path, headers, parameters, body)
+                : exchangeStreamed(method, path, headers, parameters, body));
+    }
+
+    //Ответ сервера открывается без RestTemplate.exchange, который закрывает ответ сразу после чтения тела.
+    //Ответ с ошибкой передается клиенту так же, как успешный
+    private <T> ResponseEntity<Object> exchangeStreamed(HttpMethod method, String path, HttpHeaders headers,
+                                                        @Nullable Map<String, Object> parameters, @Nullable T body) {
+        URI uri = parameters != null
+                ? rest.getUriTemplateHandler().expand(path, parameters)
+                : rest.getUriTemplateHandler().expand(path);
+        ClientHttpResponse response = null;
+        try {
+            ClientHttpRequest request = rest.getRequestFactory().createRequest(uri, method);
+            rest.httpEntityCallback(new HttpEntity<>(body, headers)).doWithRequest(request);
+            response = request.execute();
+            if (!hasBody(method, response.getStatusCode())) {
+                response.close();
+                return prepareGatewayResponse(response.getStatusCode(), response.getHeaders(), null);
+            }
+            return prepareGatewayResponse(response.getStatusCode(), response.getHeaders(), StreamedBody.of(response));
+        } catch (IOException e) {
+            if (response != null) {
+                response.close();
+            }
+            throw new ResourceAccessException("I/O error on " + method + " request for \"" + uri + "\": " + e.getMessage(), e);
+        }
+    }
+
+    private <T> ResponseEntity<Object> exchange(HttpMethod method, String path, HttpHeaders headers, @Nullable Map<String, Object> parameters, @Nullable T body) {
+        HttpEntity<T> requestEntity = new HttpEntity<>(body, headers);
 
-        ResponseEntity<Object> shareitServerResponse;
+        ResponseEntity<byte[]> shareitServerResponse;
         try {
             if (parameters != null) {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class, parameters);
+                shareitServerResponse = rest.exchange(path, method, requestEntity, byte[].class, parameters);
             } else {
-                shareitServerResponse = rest.exchange(path, method, requestEntity, Object.class);
+                shareitServerResponse = rest.exchange(path, method, requestEntity, byte[].class);
             }
         } catch (HttpStatusCodeException e) {
-            return ResponseEntity.status(e.getStatusCode()).body(e.getResponseBodyAsByteArray());
+            return prepareGatewayResponse(e.getStatusCode(), e.getResponseHeaders(), e.getResponseBodyAsByteArray());
         }
-        return prepareGatewayResponse(shareitServerResponse);
+        return prepareGatewayResponse(shareitServerResponse.getStatusCode(), shareitServerResponse.getHeaders(),
+                shareitServerResponse.getBody());
     }
 
-    private HttpHeaders defaultHeaders(Long userId) {
+    //Запрос выполняется без блокировки потока: поток сервлета освобождается до получения ответа сервера.
+    //Тело ответа для кеша шлюза читается в память целиком, размер ограничен shareit-server.http.max-in-memory-size
+    private <T> Mono<ResponseEntity<Object>> exchange(WebClient webClient, HttpMethod method, String path, HttpHeaders headers,
+                                                      @Nullable Map<String, Object> parameters, @Nullable T body) {
+        WebClient.RequestBodySpec request = webClient.method(method)
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(requestHeaders -> requestHeaders.addAll(headers));
+        WebClient.RequestHeadersSpec<?> requestWithBody = body != null ? request.bodyValue(body) : request;
+        return requestWithBody.exchangeToMono(response -> response.toEntity(byte[].class)
+                .map(entity -> prepareGatewayResponse(entity.getStatusCode(), entity.getHeaders(), entity.getBody())));
+    }
+
+    //Тело ответа читается фрагментами DataBuffer по мере записи клиенту, поэтому ограничение
+    //shareit-server.http.max-in-memory-size к нему не применяется. Ответ с ошибкой передается клиенту так же, как успешный
+    private <T> Mono<ResponseEntity<Object>> exchangeStreamed(WebClient webClient, HttpMethod method, String path, HttpHeaders headers,
+                                                              @Nullable Map<String, Object> parameters, @Nullable T body) {
+        WebClient.RequestBodySpec request = webClient.method(method)
+                .uri(path, parameters != null ? parameters : Map.of())
+                .headers(requestHeaders -> requestHeaders.addAll(headers));
+        WebClient.RequestHeadersSpec<?> requestWithBody = body != null ? request.bodyValue(body) : request;
+        return requestWithBody.retrieve()
+                .onStatus(status -> true, response -> Mono.empty())
+                .toEntityFlux(DataBuffer.class)
+                .map(entity -> {
+                    if (!hasBody(method, entity.getStatusCode())) {
+                        //Подписка на пустое тело освобождает соединение
+                        entity.getBody().subscribe(DataBufferUtils::release);
+                        return prepareGatewayResponse(entity.getStatusCode(), entity.getHeaders(), null);
+                    }
+                    return prepareGatewayResponse(entity.getStatusCode(), entity.getHeaders(), StreamedBody.of(entity.getBody()));
+                });
+    }
+
+    //Ответы 1xx, 204, 304 и ответ на HEAD не содержат тела
+    private static boolean hasBody(HttpMethod method, HttpStatus status) {
+        return method != HttpMethod.HEAD && !status.is1xxInformational()
+                && status != HttpStatus.NO_CONTENT && status != HttpStatus.NOT_MODIFIED;
+    }
+
+    //Значение заголовка If-None-Match запроса к шлюзу, обрабатываемого в текущем потоке
+    @Nullable
+    private static String clientIfNoneMatch() {
+        RequestAttributes attributes = RequestContextHolder.getRequestAttributes();
+        if (attributes instanceof ServletRequestAttributes) {
+            return ((ServletRequestAttributes) attributes).getRequest().getHeader(HttpHeaders.IF_NONE_MATCH);
+        }
+        return null;
+    }
+
+    private HttpHeaders defaultHeaders(Long userId, @Nullable String ifNoneMatch) {
         HttpHeaders headers = new HttpHeaders();
         headers.setContentType(MediaType.APPLICATION_JSON);
         headers.setAccept(List.of(MediaType.APPLICATION_JSON));
         if (userId != null) {
             headers.set("X-Sharer-User-Id", String.valueOf(userId));
         }
+        if (ifNoneMatch != null) {
+            headers.setIfNoneMatch(ifNoneMatch);
+        }
         return headers;
     }
 
-    private static ResponseEntity<Object> prepareGatewayResponse(ResponseEntity<Object> response) {
-        if (response.getStatusCode().is2xxSuccessful()) {
-            return response;
-        }
+    //Ответ сервера передается клиенту без разбора JSON: статус, заголовки и тело в исходном виде.
+    //Тело (массив байт или StreamedBody) записывается конвертером с типом содержимого из ответа сервера
+    private static ResponseEntity<Object> prepareGatewayResponse(HttpStatus status, @Nullable HttpHeaders serverHeaders,
+                                                                 @Nullable Object body) {
+        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(status);
 
-        ResponseEntity.BodyBuilder responseBuilder = ResponseEntity.status(response.getStatusCode());
+        if (serverHeaders != null) {
+            serverHeaders.forEach((name, values) -> {
+                if (!NOT_FORWARDED_HEADERS.contains(name.toLowerCase())) {
+                    responseBuilder.header(name, values.toArray(String[]::new));
+                }
+            });
+        }
 
-        if (response.hasBody()) {
-            return responseBuilder.body(response.getBody());
+        if (body != null) {
+            return responseBuilder.body(body);
         }
 
         return responseBuilder.build();
@@ -0,0 +1,22 @@
+package ru.practicum.shareit.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+//Параметры кеша ответов шлюза на GET-запросы (shareit-gateway.cache.* в application.properties)
+@Data
+@Component
+@ConfigurationProperties(prefix = "shareit-gateway.cache")
+public class GatewayCacheProperties {
+    private boolean enabled = false;
+    //В течение этого времени ответ отдается из кеша без обращения к серверу
+    private Duration ttl = Duration.ofSeconds(10);
+    //Устаревший ответ с ETag хранится до этого срока и проверяется на сервере запросом с If-None-Match
+    private Duration maxAge = Duration.ofMinutes(10);
+    //Ограничение суммарного размера тел ответов в кеше
+    private DataSize maxSize = DataSize.ofMegabytes(64);
+}
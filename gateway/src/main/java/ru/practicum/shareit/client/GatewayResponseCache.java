@@ -0,0 +1,110 @@
+package ru.practicum.shareit.client;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.net.URI;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Кеш ответов сервера на GET-запросы, включается свойством shareit-gateway.cache.enabled=true.
+//Ключ - адрес запроса с параметрами и пользователь из заголовка X-Sharer-User-Id.
+//Свежий ответ отдается без обращения к серверу, устаревший проверяется на сервере по ETag.
+//Успешное изменение данных через шлюз очищает кеш целиком: ответы одних ресурсов содержат данные других
+//(вещь - бронирования и отзывы, запрос - вещи), поэтому точечная очистка была бы ненадежной
+@Component
+@ConditionalOnProperty(name = "shareit-gateway.cache.enabled", havingValue = "true")
+public class GatewayResponseCache {
+    public static final String CACHE_NAME = "gatewayResponses";
+
+    private final Cache<String, CachedResponse> cache;
+    private final long ttlNanos;
+    //Увеличивается при каждой очистке кеша, ответ на запрос, начатый до очистки, в кеш не записывается
+    private final AtomicLong generation = new AtomicLong();
+
+    public GatewayResponseCache(GatewayCacheProperties properties, MeterRegistry meterRegistry) {
+        this.cache = Caffeine.newBuilder()
+                .expireAfterWrite(properties.getMaxAge())
+                .maximumWeight(properties.getMaxSize().toBytes())
+                .weigher((String key, CachedResponse response) -> key.length() + response.getSize())
+                .recordStats()
+                .build();
+        this.ttlNanos = properties.getTtl().toNanos();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    }
+
+    public static String key(URI uri, @Nullable Long userId) {
+        return userId + " " + uri;
+    }
+
+    @Nullable
+    public CachedResponse get(String key) {
+        return cache.getIfPresent(key);
+    }
+
+    public boolean isFresh(CachedResponse response) {
+        return System.nanoTime() - response.getStoredAt() < ttlNanos;
+    }
+
+    public long generation() {
+        return generation.get();
+    }
+
+    //Сохранение ответа сервера. Ответ 304 подтверждает сохраненный ответ, остальные ответы кроме 200 удаляют его из кеша
+    public ResponseEntity<Object> update(String key, @Nullable CachedResponse cached, ResponseEntity<Object> response,
+                                         long requestGeneration) {
+        if (response.getStatusCode() == HttpStatus.NOT_MODIFIED && cached != null) {
+            put(key, cached.revalidated(), requestGeneration);
+            return cached.getResponse();
+        }
+        if (response.getStatusCode() == HttpStatus.OK && response.getBody() instanceof byte[]) {
+            put(key, CachedResponse.of(response), requestGeneration);
+        } else {
+            cache.invalidate(key);
+        }
+        return response;
+    }
+
+    public void invalidateAll() {
+        generation.incrementAndGet();
+        cache.invalidateAll();
+    }
+
+    private void put(String key, CachedResponse response, long requestGeneration) {
+        if (generation.get() != requestGeneration) {
+            return;
+        }
+        cache.put(key, response);
+        //Очистка могла произойти во время записи
+        if (generation.get() != requestGeneration) {
+            cache.invalidate(key);
+        }
+    }
+
+    @Getter
+    @RequiredArgsConstructor
+    public static class CachedResponse {
+        private final ResponseEntity<Object> response;
+        @Nullable
+        private final String etag;
+        private final int size;
+        private final long storedAt;
+
+        static CachedResponse of(ResponseEntity<Object> response) {
+            return new CachedResponse(response, response.getHeaders().getETag(), ((byte[]) response.getBody()).length,
+                    System.nanoTime());
+        }
+
+        CachedResponse revalidated() {
+            return new CachedResponse(response, etag, size, System.nanoTime());
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package ru.practicum.shareit.client;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+import java.time.Duration;
+
+//Параметры общего пула соединений шлюза с сервером (shareit-server.http.* в application.properties)
+@Data
+@Component
+@ConfigurationProperties(prefix = "shareit-server.http")
+public class HttpClientProperties {
+    //Режим выполнения запросов к серверу: blocking - RestTemplate в потоке сервлета, reactive - WebClient на Netty
+    private Mode mode = Mode.BLOCKING;
+    //Все запросы шлюза идут на один сервер, поэтому ограничение на маршрут совпадает с общим
+    private int maxConnections = 200;
+    private int maxConnectionsPerRoute = 200;
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    //Время ожидания свободного соединения из пула
+    private Duration connectionRequestTimeout = Duration.ofSeconds(1);
+    private Duration readTimeout = Duration.ofSeconds(10);
+    //Время жизни соединения, если сервер не передал заголовок Keep-Alive
+    private Duration keepAlive = Duration.ofSeconds(30);
+    //Соединения, простаивающие дольше этого времени, закрываются фоновым потоком
+    private Duration idleTimeout = Duration.ofSeconds(60);
+    //Соединение, не использовавшееся дольше этого времени, проверяется перед отправкой запроса
+    private Duration validateAfterInactivity = Duration.ofSeconds(2);
+    //Режим reactive: ограничение размера ответа сервера, который сохраняется в кеше шлюза и поэтому читается
+    //в память целиком. На ответ большего размера шлюз возвращает 502 Bad Gateway. Остальные ответы передаются
+    //клиенту потоком и не ограничены, в режиме blocking размер ответа не ограничен
+    private DataSize maxInMemorySize = DataSize.ofMegabytes(16);
+
+    public enum Mode {
+        BLOCKING,
+        REACTIVE
+    }
+}
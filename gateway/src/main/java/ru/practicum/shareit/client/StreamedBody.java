@@ -0,0 +1,98 @@
+package ru.practicum.shareit.client;
+
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.buffer.DataBuffer;
+import org.springframework.http.client.ClientHttpResponse;
+import reactor.core.publisher.Flux;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Iterator;
+import java.util.stream.Stream;
+
+//Тело ответа сервера, которое передается клиенту шлюза по мере чтения, без загрузки в память целиком.
+//Spring MVC записывает InputStreamResource конвертером ResourceHttpMessageConverter: поток копируется в ответ
+//и закрывается после записи, длина тела заранее не вычисляется. Закрытие потока освобождает соединение с сервером
+class StreamedBody {
+
+    //Тело ответа RestTemplate, соединение возвращается в пул после закрытия ответа
+    static InputStreamResource of(ClientHttpResponse response) throws IOException {
+        return new InputStreamResource(new FilterInputStream(response.getBody()) {
+            @Override
+            public void close() {
+                response.close();
+            }
+        });
+    }
+
+    //Тело ответа WebClient. Фрагменты читаются в потоке, записывающем ответ клиенту, следующий фрагмент
+    //запрашивается у сервера только после записи предыдущего, поэтому в памяти находится не больше одного фрагмента
+    static InputStreamResource of(Flux<DataBuffer> body) {
+        return new InputStreamResource(new DataBufferInputStream(body));
+    }
+
+    private static class DataBufferInputStream extends InputStream {
+        private final Flux<DataBuffer> body;
+        //Подписка на тело создается при первом чтении: ожидание фрагмента блокирует поток, что недопустимо в потоках Netty
+        private Stream<DataBuffer> buffers;
+        private Iterator<DataBuffer> iterator;
+        private InputStream current;
+
+        private DataBufferInputStream(Flux<DataBuffer> body) {
+            this.body = body;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) == -1 ? -1 : single[0] & 0xFF;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            if (length == 0) {
+                return 0;
+            }
+            while (current != null || nextBuffer()) {
+                int count = current.read(bytes, offset, length);
+                if (count != -1) {
+                    return count;
+                }
+                //Прочитанный фрагмент освобождается при закрытии его потока
+                current.close();
+                current = null;
+            }
+            return -1;
+        }
+
+        private boolean nextBuffer() throws IOException {
+            if (iterator == null) {
+                buffers = body.toStream(1);
+                iterator = buffers.iterator();
+            }
+            try {
+                if (!iterator.hasNext()) {
+                    return false;
+                }
+                current = iterator.next().asInputStream(true);
+                return true;
+            } catch (RuntimeException e) {
+                throw new IOException("Failed to read response of ShareIt server", e);
+            }
+        }
+
+        //Если тело прочитано не полностью, подписка отменяется, и соединение с сервером закрывается
+        @Override
+        public void close() throws IOException {
+            if (current != null) {
+                current.close();
+                current = null;
+            }
+            if (buffers == null) {
+                buffers = body.toStream(1);
+            }
+            buffers.close();
+        }
+    }
+}
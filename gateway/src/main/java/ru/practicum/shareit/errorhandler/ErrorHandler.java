@@ -1,6 +1,7 @@
 package ru.practicum.shareit.errorhandler;
 
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.io.buffer.DataBufferLimitException;
 import org.springframework.http.HttpStatus;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
@@ -37,6 +38,14 @@ public class ErrorHandler {
         return new ErrorResponse("Ошибка.", e.getMessage());
     }
 
+    //Ответ сервера для кеша шлюза в режиме reactive больше shareit-server.http.max-in-memory-size
+    @ExceptionHandler({DataBufferLimitException.class})
+    @ResponseStatus(HttpStatus.BAD_GATEWAY)
+    public ErrorResponse ErrorResponseTooLarge(RuntimeException e) {
+        log.error("Ошибка: " + e.getMessage());
+        return new ErrorResponse("Ответ сервера превышает shareit-server.http.max-in-memory-size.", e.getMessage());
+    }
+
     @ExceptionHandler({UnsupportedStatusException.class})
     @ResponseStatus(HttpStatus.BAD_REQUEST)
     public ErrorResponse ErrorUnsupportedStatus(RuntimeException e) {
@@ -4,10 +4,14 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.GatewayResponseCache;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
@@ -17,33 +21,45 @@ import java.util.Map;
 public class ItemClient extends BaseClient {
     private static final String API_PREFIX = "/items";
     @Autowired
-    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public ItemClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ClientHttpRequestFactory requestFactory, @Nullable WebClient webClient,
+                      @Nullable GatewayResponseCache responseCache) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient == null ? null : webClient.mutate().baseUrl(serverUrl + API_PREFIX).build(),
+                responseCache
         );
     }
 
     //Создание вещи
-    public ResponseEntity<Object> addItem(long userId, ItemDto itemDto) {
+    public Mono<ResponseEntity<Object>> addItem(long userId, ItemDto itemDto) {
         return post("", userId, itemDto);
     }
 
     //Обновление вещи
-    public ResponseEntity<Object> updateItem(long userId, long itemId, ItemDto item) {
+    public Mono<ResponseEntity<Object>> updateItem(long userId, long itemId, ItemDto item) {
         item.setId(itemId);
         return patch("/" + itemId, userId, item);
     }
 
     //Запрос вещи по ее id
-    public ResponseEntity<Object> getById(long userId, long itemId) {
+    public Mono<ResponseEntity<Object>> getById(long userId, long itemId) {
         return get("/" + itemId, userId);
     }
 
     //Запрос вещей
-    public ResponseEntity<Object> getItemsOfOwner(long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getItemsOfOwner(long userId, Integer from, Integer size, Long cursor) {
+        //Постраничный вывод по курсору
+        if (cursor != null) {
+            Map<String, Object> parameters = Map.of(
+                    "cursor", cursor,
+                    "size", size
+            );
+            return get("?cursor={cursor}&size={size}", userId, parameters);
+        }
         Map<String, Object> parameters = Map.of(
                 "from", from,
                 "size", size
@@ -51,7 +67,16 @@ public class ItemClient extends BaseClient {
         return get("?from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> getItemsWithText(String searchText, long userId, Integer from, Integer size) {
+    public Mono<ResponseEntity<Object>> getItemsWithText(String searchText, long userId, Integer from, Integer size, Long cursor) {
+        //Постраничный вывод по курсору
+        if (cursor != null) {
+            Map<String, Object> parameters = Map.of(
+                    "text", searchText,
+                    "cursor", cursor,
+                    "size", size
+            );
+            return get("/search?text={text}&cursor={cursor}&size={size}", userId, parameters);
+        }
         Map<String, Object> parameters = Map.of(
                 "text", searchText,
                 "from", from,
@@ -60,7 +85,7 @@ public class ItemClient extends BaseClient {
         return get("/search?text={text}&from={from}&size={size}", userId, parameters);
     }
 
-    public ResponseEntity<Object> addComment(long userId, long itemId, CommentDto commentDto) {
+    public Mono<ResponseEntity<Object>> addComment(long userId, long itemId, CommentDto commentDto) {
         Map<String, Object> parameters = Map.of(
                 "itemId", itemId
         );
@@ -6,9 +6,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.item.dto.ItemDto;
 
+import javax.validation.constraints.PositiveOrZero;
+
 
 @Controller
 @RequestMapping(path = "/items")
@@ -19,7 +22,7 @@ public class ItemController {
     private final ItemClient itemClient;
     //Добавление вещи
     @PostMapping
-    public ResponseEntity<Object> addItem(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+    public Mono<ResponseEntity<Object>> addItem(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                           @RequestBody ItemDto itemDto) {
         log.info("Post request for new Item by user with id {} ", userId);
         return itemClient.addItem(userId, itemDto);
@@ -27,7 +30,7 @@ public class ItemController {
 
     //Обновление вещи
     @PatchMapping("/{itemId}")
-    public ResponseEntity<Object> update(@PathVariable("itemId") long itemId,
+    public Mono<ResponseEntity<Object>> update(@PathVariable("itemId") long itemId,
                                          @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                          @RequestBody ItemDto item) {
         log.info("Patch request to update item with id {} ", itemId);
@@ -36,7 +39,7 @@ public class ItemController {
 
     //Запрос вещи по ее id
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getById(@PathVariable("id") long itemId,
+    public Mono<ResponseEntity<Object>> getById(@PathVariable("id") long itemId,
                                     @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId) {
         log.info("Get request to receive item with id {} ", itemId);
         return itemClient.getById(userId, itemId);
@@ -44,26 +47,28 @@ public class ItemController {
 
     //Запрос по id владельца перечня всех вещей
     @GetMapping()
-    public ResponseEntity<Object> getItemsOfOwner(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+    public Mono<ResponseEntity<Object>> getItemsOfOwner(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                                   @RequestParam(value = "from", required = false, defaultValue = "0") Integer from,
-                                                  @RequestParam(value = "size", required = false, defaultValue = "99") Integer size) {
+                                                  @RequestParam(value = "size", required = false, defaultValue = "99") Integer size,
+                                                  @PositiveOrZero @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of Items by owner with id {} ", userId);
-        return itemClient.getItemsOfOwner(userId, from, size);
+        return itemClient.getItemsOfOwner(userId, from, size, cursor);
     }
 
     //Запрос доступных вещей по тексту в имени или описании
     @GetMapping("/search")
-    public ResponseEntity<Object> searchItem(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+    public Mono<ResponseEntity<Object>> searchItem(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                              @RequestParam(value = "text", required = true) String searchText,
                                              @RequestParam(value = "from", required = false, defaultValue = "0") Integer from,
-                                             @RequestParam(value = "size", required = false, defaultValue = "99") Integer size) {
+                                             @RequestParam(value = "size", required = false, defaultValue = "99") Integer size,
+                                             @PositiveOrZero @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of Items by string {} un name or description", searchText);
-        return itemClient.getItemsWithText(searchText, userId, from, size);
+        return itemClient.getItemsWithText(searchText, userId, from, size, cursor);
     }
 
     //Добавление комментария
     @PostMapping("/{itemId}/comment")
-    public ResponseEntity<Object> addComment(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+    public Mono<ResponseEntity<Object>> addComment(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                              @PathVariable("itemId") long itemId,
                                              @RequestBody CommentDto commentDto) {
         log.info("Add comment to item with id: {} by user with id {}", itemId, userId);
@@ -4,13 +4,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.GatewayResponseCache;
 import ru.practicum.shareit.request.dto.RequestDto;
 
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.stream.Collectors;
 
 @Service
 public class RequestClient extends BaseClient {
@@ -18,38 +24,61 @@ public class RequestClient extends BaseClient {
     private static final String API_PREFIX = "/requests";
 
     @Autowired
-    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public RequestClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                         ClientHttpRequestFactory requestFactory, @Nullable WebClient webClient,
+                         @Nullable GatewayResponseCache responseCache) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient == null ? null : webClient.mutate().baseUrl(serverUrl + API_PREFIX).build(),
+                responseCache
         );
     }
 
     //Добавление запроса
-    public ResponseEntity<Object> addRequest(long userId, RequestDto requestDto) {
+    public Mono<ResponseEntity<Object>> addRequest(long userId, RequestDto requestDto) {
         return post("", userId, requestDto);
     }
 
-    //Поиск всех запросов
-    public ResponseEntity<Object> findAllRequests(long userId) {
-        return get("", userId);
+    //Поиск страницы всех запросов. Передаются только указанные параметры, размер страницы по умолчанию определяет сервер
+    public Mono<ResponseEntity<Object>> findAllRequests(long userId, Integer from, Integer size, Long cursor) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        //Постраничный вывод по курсору
+        if (cursor != null) {
+            parameters.put("cursor", cursor);
+        } else if (from != null) {
+            parameters.put("from", from);
+        }
+        if (size != null) {
+            parameters.put("size", size);
+        }
+        return get(parameters.isEmpty() ? "" : toQuery(parameters), userId, parameters);
     }
 
 
-    public ResponseEntity<Object> findById(long userId, long requestId) {
+    public Mono<ResponseEntity<Object>> findById(long userId, long requestId) {
         Map<String, Object> parameters = Map.of(
                 "requestId", requestId
         );
         return get("/{requestId}", userId, parameters);
     }
 
-    public ResponseEntity<Object> findAllRequestsByPages(long userId, Integer from, Integer size) {
-        Map<String, Object> parameters = Map.of(
-                "from", from,
-                "size", size
-        );
-        return get("/all?from={from}&size={size}", userId, parameters);
+    public Mono<ResponseEntity<Object>> findAllRequestsByPages(long userId, Integer from, Integer size) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        if (from != null) {
+            parameters.put("from", from);
+        }
+        if (size != null) {
+            parameters.put("size", size);
+        }
+        return get(parameters.isEmpty() ? "/all" : "/all" + toQuery(parameters), userId, parameters);
+    }
+
+    private static String toQuery(Map<String, Object> parameters) {
+        return parameters.keySet().stream()
+                .map(name -> name + "={" + name + "}")
+                .collect(Collectors.joining("&", "?", ""));
     }
 }
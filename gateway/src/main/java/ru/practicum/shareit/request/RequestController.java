@@ -6,8 +6,12 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.request.dto.RequestDto;
 
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
+
 @Controller
 @RequestMapping(path = "/requests")
 @RequiredArgsConstructor
@@ -18,22 +22,26 @@ public class RequestController {
 
     //создание запроса
     @PostMapping
-    public ResponseEntity<Object> addRequest(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+    public Mono<ResponseEntity<Object>> addRequest(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                              @RequestBody RequestDto requestDto) {
         log.info("Post request to add new booking");
         return requestClient.addRequest(userId, requestDto);
     }
 
-    //Метод возвращающий список всех запросов
+    //Метод возвращающий одну из страниц со списком всех запросов. Размер страницы по умолчанию задается
+    //только на сервере, поэтому не указанные параметры на сервер не передаются
     @GetMapping()
-    public ResponseEntity<Object> findAllRequests(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId) {
+    public Mono<ResponseEntity<Object>> findAllRequests(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                                        @PositiveOrZero @RequestParam(value = "from", required = false) Integer from,
+                                                        @Positive @RequestParam(value = "size", required = false) Integer size,
+                                                        @PositiveOrZero @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of all requests");
-        return requestClient.findAllRequests(userId);
+        return requestClient.findAllRequests(userId, from, size, cursor);
     }
 
     //Метод возвращающий информацию по запросу по его id
     @GetMapping("{requestId}")
-    public ResponseEntity<Object> findRequestById(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+    public Mono<ResponseEntity<Object>> findRequestById(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                                   @PathVariable(value = "requestId", required = true) long requestId) {
         log.info("Get request by id");
         return requestClient.findById(userId, requestId);
@@ -41,9 +49,9 @@ public class RequestController {
 
     //Метод возвращающий одну из страниц с информацией по запросам
     @GetMapping("/all")
-    public ResponseEntity<Object> findRequestById(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
-                                                  @RequestParam(value = "from", required = false, defaultValue = "0") Integer from,
-                                                  @RequestParam(value = "size", required = false, defaultValue = "99") Integer size) {
+    public Mono<ResponseEntity<Object>> findRequestById(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                                  @PositiveOrZero @RequestParam(value = "from", required = false) Integer from,
+                                                  @Positive @RequestParam(value = "size", required = false) Integer size) {
         log.info("Get list of all requests page by page");
         return requestClient.findAllRequestsByPages(userId, from, size);
     }
@@ -4,49 +4,81 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.ResponseEntity;
-import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
+import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.DefaultUriBuilderFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.client.BaseClient;
+import ru.practicum.shareit.client.GatewayResponseCache;
 import ru.practicum.shareit.user.dto.UserDto;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
 @Service
 public class UserClient extends BaseClient {
 
     private static final String API_PREFIX = "/users";
 
     @Autowired
-    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder) {
+    public UserClient(@Value("${shareit-server.url}") String serverUrl, RestTemplateBuilder builder,
+                      ClientHttpRequestFactory requestFactory, @Nullable WebClient webClient,
+                      @Nullable GatewayResponseCache responseCache) {
         super(
                 builder
                         .uriTemplateHandler(new DefaultUriBuilderFactory(serverUrl + API_PREFIX))
-                        .requestFactory(HttpComponentsClientHttpRequestFactory::new)
-                        .build()
+                        .requestFactory(() -> requestFactory)
+                        .build(),
+                webClient == null ? null : webClient.mutate().baseUrl(serverUrl + API_PREFIX).build(),
+                responseCache
         );
     }
 
     //Создание пользователя
-    public ResponseEntity<Object> addUser(UserDto requestDto) {
+    public Mono<ResponseEntity<Object>> addUser(UserDto requestDto) {
         return post("", requestDto);
     }
 
     //Обновление пользователя
-    public ResponseEntity<Object> updateUser(long id, UserDto requestDto) {
+    public Mono<ResponseEntity<Object>> updateUser(long id, UserDto requestDto) {
         return patch("/" + id, id,  requestDto);
     }
 
     //Получение информации о пользователе
-    public ResponseEntity<Object> getUser(long userId) {
+    public Mono<ResponseEntity<Object>> getUser(long userId) {
         return get("/" + userId);
     }
 
-    //Получение информации о всех пользователях
-    public ResponseEntity<Object> getAll() {
-        return get("");
+    //Получение страницы со списком пользователей. Передаются только указанные параметры,
+    //размер страницы по умолчанию определяет сервер
+    public Mono<ResponseEntity<Object>> getAll(Integer from, Integer size, Long cursor) {
+        Map<String, Object> parameters = new LinkedHashMap<>();
+        //Постраничный вывод по курсору
+        if (cursor != null) {
+            parameters.put("cursor", cursor);
+        } else if (from != null) {
+            parameters.put("from", from);
+        }
+        if (size != null) {
+            parameters.put("size", size);
+        }
+        String query = parameters.keySet().stream()
+                .map(name -> name + "={" + name + "}")
+                .collect(Collectors.joining("&", "?", ""));
+        return get(parameters.isEmpty() ? "" : query, null, parameters);
+    }
+
+    //Потоковое получение всех пользователей в формате NDJSON
+    public Flux<String> streamAll() {
+        return stream("");
     }
 
     //Удаление пользователя по Id
-    public ResponseEntity<Object> deleteById(long userId) {
+    public Mono<ResponseEntity<Object>> deleteById(long userId) {
         return delete("/" + userId);
     }
 
@@ -2,13 +2,18 @@ package ru.practicum.shareit.user;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import ru.practicum.shareit.user.dto.UserDto;
 
 import javax.validation.Valid;
+import javax.validation.constraints.Positive;
+import javax.validation.constraints.PositiveOrZero;
 
 @Controller
 @RequestMapping(path = "/users")
@@ -20,35 +25,46 @@ public class UserController {
 
     //создание пользователя
     @PostMapping
-    public ResponseEntity<Object> addUser(@RequestBody @Valid UserDto userDto) {
+    public Mono<ResponseEntity<Object>> addUser(@RequestBody @Valid UserDto userDto) {
         log.info("Creating booking {}", userDto);
         return userClient.addUser(userDto);
     }
 
     //Обновление пользователя
     @PatchMapping("/{id}")
-    public ResponseEntity<Object> updateUser(@PathVariable("id") long id, @RequestBody UserDto user) {
+    public Mono<ResponseEntity<Object>> updateUser(@PathVariable("id") long id, @RequestBody UserDto user) {
         log.info("Update user with name {}", user.getName());
         return userClient.updateUser(id, user);
     }
 
     //Получение пользователя по id
     @GetMapping("/{id}")
-    public ResponseEntity<Object> getById(@PathVariable("id") long id) {
+    public Mono<ResponseEntity<Object>> getById(@PathVariable("id") long id) {
         log.info("Get user by id: {}", id);
         return userClient.getUser(id);
     }
 
-    //Запрос всех пользователей
-    @GetMapping
-    public ResponseEntity<Object> getAll() {
+    //Запрос пользователей постранично. Размер страницы по умолчанию задается только на сервере
+    //(PageableUtility.DEFAULT_SIZE_OF_PAGE), поэтому не указанные параметры на сервер не передаются
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    public Mono<ResponseEntity<Object>> getAll(@PositiveOrZero @RequestParam(value = "from", required = false) Integer from,
+                                               @Positive @RequestParam(value = "size", required = false) Integer size,
+                                               @PositiveOrZero @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get request to receive all users");
-        return userClient.getAll();
+        return userClient.getAll(from, size, cursor);
+    }
+
+    //Потоковая выгрузка всех пользователей в формате NDJSON (Accept: application/x-ndjson)
+    @ResponseBody
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<String> streamAll() {
+        log.info("Get request to stream all users");
+        return userClient.streamAll();
     }
 
     //Метод удаляет пользователя по его id
     @DeleteMapping("/{id}")
-    public ResponseEntity<Object> deleteById(@PathVariable("id") long id) {
+    public Mono<ResponseEntity<Object>> deleteById(@PathVariable("id") long id) {
         log.info("Delete user by id: {}", id);
         return userClient.deleteById(id);
     }
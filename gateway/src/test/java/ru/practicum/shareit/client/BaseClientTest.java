@@ -0,0 +1,275 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.core.io.InputStreamResource;
+import org.springframework.core.io.buffer.DataBufferLimitException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.lang.Nullable;
+import org.springframework.util.unit.DataSize;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.resources.ConnectionProvider;
+import ru.practicum.shareit.user.UserClient;
+import ru.practicum.shareit.user.dto.UserDto;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+//Запросы шлюза к серверу в обоих режимах HTTP-клиента проверяются на MockWebServer вместо сервера ShareIt
+public class BaseClientTest {
+    private static final String USER_JSON = "{\"id\":1,\"name\":\"Пользователь\",\"email\":\"user@ya.ru\"}";
+
+    private final HttpClientConfiguration configuration = new HttpClientConfiguration();
+    private final HttpClientProperties properties = new HttpClientProperties();
+    private final GatewayCacheProperties cacheProperties = new GatewayCacheProperties();
+    private MockWebServer server;
+    private PoolingHttpClientConnectionManager connectionManager;
+    private CloseableHttpClient httpClient;
+    private ConnectionProvider connectionProvider;
+
+    @BeforeEach
+    void startServer() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        properties.setReadTimeout(Duration.ofSeconds(5));
+    }
+
+    @AfterEach
+    void stopServer() throws IOException {
+        if (connectionProvider != null) {
+            connectionProvider.dispose();
+        }
+        if (httpClient != null) {
+            httpClient.close();
+        }
+        if (connectionManager != null) {
+            connectionManager.close();
+        }
+        server.shutdown();
+    }
+
+    //Статус, заголовки и тело ответа сервера передаются клиенту без изменений, кроме заголовков соединения
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void serverResponseIsPassedThrough(HttpClientProperties.Mode mode) throws InterruptedException {
+        UserClient client = createClient(mode, null);
+        server.enqueue(new MockResponse()
+                .setResponseCode(404)
+                .setHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .setHeader(HttpHeaders.ETAG, "\"v1\"")
+                .setHeader("Keep-Alive", "timeout=60")
+                .setBody(USER_JSON));
+
+        ResponseEntity<Object> response = client.getUser(1).block();
+
+        assertEquals(response.getStatusCode(), HttpStatus.NOT_FOUND, "Статус ответа не совпадает");
+        assertEquals(response.getHeaders().getETag(), "\"v1\"", "Заголовок ETag не совпадает");
+        assertNull(response.getHeaders().getFirst("Keep-Alive"), "Заголовки соединения не должны передаваться");
+        assertArrayEquals(bodyOf(response), USER_JSON.getBytes(StandardCharsets.UTF_8), "Тело ответа не совпадает");
+        assertEquals(server.takeRequest(1, TimeUnit.SECONDS).getPath(), "/users/1", "Адрес запроса не совпадает");
+    }
+
+    //Тело запроса и заголовок пользователя передаются серверу
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void requestBodyAndUserAreSent(HttpClientProperties.Mode mode) throws InterruptedException {
+        UserClient client = createClient(mode, null);
+        server.enqueue(new MockResponse().setHeader(HttpHeaders.CONTENT_TYPE, "application/json").setBody(USER_JSON));
+
+        client.updateUser(1, new UserDto(0, "Пользователь", null)).block();
+
+        RecordedRequest request = server.takeRequest(1, TimeUnit.SECONDS);
+        assertEquals(request.getMethod(), "PATCH", "Метод запроса не совпадает");
+        assertEquals(request.getHeader("X-Sharer-User-Id"), "1", "Пользователь не передан серверу");
+        assertEquals(request.getBody().readUtf8(), "{\"id\":0,\"name\":\"Пользователь\",\"email\":null}",
+                "Тело запроса не совпадает");
+    }
+
+    //Свежий ответ из кеша возвращается без запроса к серверу
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void freshCachedResponseSkipsServer(HttpClientProperties.Mode mode) {
+        UserClient client = createClient(mode, createCache());
+        server.enqueue(okResponse("\"v1\""));
+
+        ResponseEntity<Object> first = client.getUser(1).block();
+        ResponseEntity<Object> second = client.getUser(1).block();
+
+        assertEquals(server.getRequestCount(), 1, "Свежий ответ должен браться из кеша");
+        assertArrayEquals((byte[]) second.getBody(), (byte[]) first.getBody(), "Ответ из кеша не совпадает");
+    }
+
+    //Устаревший ответ проверяется на сервере по ETag, на ответ 304 возвращается сохраненный ответ
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void staleCachedResponseIsRevalidated(HttpClientProperties.Mode mode) throws InterruptedException {
+        cacheProperties.setTtl(Duration.ZERO);
+        UserClient client = createClient(mode, createCache());
+        server.enqueue(okResponse("\"v1\""));
+        server.enqueue(new MockResponse().setResponseCode(304).setHeader(HttpHeaders.ETAG, "\"v1\""));
+
+        client.getUser(1).block();
+        ResponseEntity<Object> revalidated = client.getUser(1).block();
+
+        assertNull(server.takeRequest(1, TimeUnit.SECONDS).getHeader(HttpHeaders.IF_NONE_MATCH),
+                "Первый запрос не должен быть условным");
+        assertEquals(server.takeRequest(1, TimeUnit.SECONDS).getHeader(HttpHeaders.IF_NONE_MATCH), "\"v1\"",
+                "Устаревший ответ должен проверяться по ETag");
+        assertEquals(revalidated.getStatusCode(), HttpStatus.OK, "Статус ответа не совпадает");
+        assertArrayEquals((byte[]) revalidated.getBody(), USER_JSON.getBytes(StandardCharsets.UTF_8), "Ответ из кеша не совпадает");
+    }
+
+    //Успешные POST, PATCH и DELETE очищают кеш, запрос с ошибкой - нет
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void successfulChangesClearCache(HttpClientProperties.Mode mode) {
+        UserClient client = createClient(mode, createCache());
+        List<Function<UserClient, ResponseEntity<Object>>> changes = List.of(
+                changeClient -> changeClient.addUser(new UserDto(0, "Пользователь", "user@ya.ru")).block(),
+                changeClient -> changeClient.updateUser(1, new UserDto(0, "Пользователь", null)).block(),
+                changeClient -> changeClient.deleteById(2).block());
+
+        server.enqueue(okResponse("\"v1\""));
+        client.getUser(1).block();
+        int requests = server.getRequestCount();
+        for (Function<UserClient, ResponseEntity<Object>> change : changes) {
+            server.enqueue(new MockResponse().setResponseCode(400));
+            change.apply(client);
+            client.getUser(1).block();
+            assertEquals(server.getRequestCount(), requests + 1, "Изменение с ошибкой не должно очищать кеш");
+
+            server.enqueue(okResponse("\"v1\""));
+            change.apply(client);
+            server.enqueue(okResponse("\"v2\""));
+            assertEquals(client.getUser(1).block().getHeaders().getETag(), "\"v2\"", "Ответ должен запрашиваться у сервера");
+            assertEquals(server.getRequestCount(), requests + 3, "Успешное изменение должно очищать кеш");
+            requests = server.getRequestCount();
+        }
+    }
+
+    //Ответ на запрос, во время которого кеш был очищен, в кеш не записывается
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void responseFetchedDuringInvalidationIsNotCached(HttpClientProperties.Mode mode) {
+        GatewayResponseCache cache = createCache();
+        UserClient client = createClient(mode, cache);
+        server.setDispatcher(new Dispatcher() {
+            @Override
+            public MockResponse dispatch(RecordedRequest request) {
+                //Изменение данных параллельным запросом, пока сервер готовит ответ
+                cache.invalidateAll();
+                return okResponse("\"v1\"");
+            }
+        });
+
+        client.getUser(1).block();
+        client.getUser(1).block();
+
+        assertEquals(server.getRequestCount(), 2, "Ответ, полученный во время очистки кеша, не должен сохраняться");
+    }
+
+    //Строки NDJSON передаются клиенту без разбора, пустые строки пропускаются
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void streamPassesNdjsonLines(HttpClientProperties.Mode mode) {
+        UserClient client = createClient(mode, null);
+        server.enqueue(new MockResponse()
+                .setHeader(HttpHeaders.CONTENT_TYPE, "application/x-ndjson")
+                .setBody(USER_JSON + "\n\n" + USER_JSON + "\n"));
+
+        String body = client.streamAll().collect(Collectors.joining()).block();
+
+        assertEquals(body, USER_JSON + "\n" + USER_JSON + "\n", "Строки ответа не совпадают");
+    }
+
+    //Без кеша тело ответа не читается в память, а передается потоком, который закрывается после чтения.
+    //Ограничение shareit-server.http.max-in-memory-size к такому ответу не применяется
+    @ParameterizedTest
+    @EnumSource(HttpClientProperties.Mode.class)
+    void responseWithoutCacheIsStreamed(HttpClientProperties.Mode mode) {
+        properties.setMaxInMemorySize(DataSize.ofBytes(16));
+        UserClient client = createClient(mode, null);
+        String largeBody = "[" + String.join(",", Collections.nCopies(10_000, USER_JSON)) + "]";
+        server.enqueue(new MockResponse().setHeader(HttpHeaders.CONTENT_TYPE, "application/json").setBody(largeBody));
+        server.enqueue(okResponse("\"v1\""));
+
+        ResponseEntity<Object> response = client.getUser(1).block();
+
+        assertInstanceOf(InputStreamResource.class, response.getBody(), "Тело ответа должно передаваться потоком");
+        assertArrayEquals(bodyOf(response), largeBody.getBytes(StandardCharsets.UTF_8), "Тело ответа не совпадает");
+        //Соединение освобождено после чтения тела и используется следующим запросом
+        assertArrayEquals(bodyOf(client.getUser(1).block()), USER_JSON.getBytes(StandardCharsets.UTF_8), "Тело ответа не совпадает");
+    }
+
+    //В режиме reactive тело ответа для кеша больше shareit-server.http.max-in-memory-size не читается в память
+    @Test
+    void reactiveCachedResponseLargerThanLimitFails() {
+        properties.setMaxInMemorySize(DataSize.ofBytes(16));
+        UserClient client = createClient(HttpClientProperties.Mode.REACTIVE, createCache());
+        server.enqueue(okResponse("\"v1\""));
+
+        assertThrows(DataBufferLimitException.class, () -> client.getUser(1).block());
+    }
+
+    private UserClient createClient(HttpClientProperties.Mode mode, @Nullable GatewayResponseCache cache) {
+        connectionManager = configuration.shareItServerConnectionManager(properties);
+        httpClient = configuration.shareItServerHttpClient(connectionManager, properties);
+        WebClient webClient = null;
+        if (mode == HttpClientProperties.Mode.REACTIVE) {
+            connectionProvider = configuration.shareItServerConnectionProvider(properties);
+            webClient = configuration.shareItServerWebClient(WebClient.builder(), connectionProvider, properties);
+        }
+        return new UserClient("http://" + server.getHostName() + ":" + server.getPort(), new RestTemplateBuilder(),
+                configuration.shareItServerRequestFactory(httpClient), webClient, cache);
+    }
+
+    //Тело ответа без кеша - поток, тело ответа из кеша - массив байт
+    private static byte[] bodyOf(ResponseEntity<Object> response) {
+        if (response.getBody() instanceof byte[]) {
+            return (byte[]) response.getBody();
+        }
+        try (InputStream body = ((InputStreamResource) response.getBody()).getInputStream()) {
+            return body.readAllBytes();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private GatewayResponseCache createCache() {
+        return new GatewayResponseCache(cacheProperties, new SimpleMeterRegistry());
+    }
+
+    private static MockResponse okResponse(String etag) {
+        return new MockResponse()
+                .setHeader(HttpHeaders.CONTENT_TYPE, "application/json")
+                .setHeader(HttpHeaders.ETAG, etag)
+                .setBody(USER_JSON);
+    }
+}
@@ -0,0 +1,91 @@
+package ru.practicum.shareit.client;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class GatewayResponseCacheTest {
+    private static final String KEY = GatewayResponseCache.key(URI.create("http://localhost:9090/items/1"), 1L);
+
+    private final GatewayCacheProperties properties = new GatewayCacheProperties();
+    private final GatewayResponseCache cache = new GatewayResponseCache(properties, new SimpleMeterRegistry());
+
+    //Ответ 200 сохраняется, если кеш не очищался с начала запроса
+    @Test
+    void updateStoresOkResponse() {
+        ResponseEntity<Object> response = okResponse("\"v1\"", "{\"id\":1}");
+
+        assertSame(cache.update(KEY, null, response, cache.generation()), response, "Должен вернуться ответ сервера");
+
+        GatewayResponseCache.CachedResponse cached = cache.get(KEY);
+        assertNotNull(cached, "Ответ должен быть сохранен в кеше");
+        assertSame(cached.getResponse(), response, "Сохраненный ответ не совпадает");
+        assertTrue(cache.isFresh(cached), "Только что сохраненный ответ должен быть свежим");
+    }
+
+    //Ответ на запрос, начатый до очистки кеша, не сохраняется: он мог быть получен до изменения данных
+    @Test
+    void updateSkipsResponseFetchedBeforeInvalidation() {
+        long generation = cache.generation();
+        cache.invalidateAll();
+
+        ResponseEntity<Object> response = okResponse("\"v1\"", "{\"id\":1}");
+        assertSame(cache.update(KEY, null, response, generation), response, "Должен вернуться ответ сервера");
+        assertNull(cache.get(KEY), "Ответ, полученный до очистки кеша, не должен сохраняться");
+    }
+
+    //Ответ 304 возвращает сохраненный ответ и продлевает его свежесть, но не после очистки кеша
+    @Test
+    void updateRevalidatesCachedResponseOnNotModified() {
+        ResponseEntity<Object> stored = okResponse("\"v1\"", "{\"id\":1}");
+        cache.update(KEY, null, stored, cache.generation());
+        GatewayResponseCache.CachedResponse cached = cache.get(KEY);
+
+        ResponseEntity<Object> notModified = ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag("\"v1\"").build();
+        assertSame(cache.update(KEY, cached, notModified, cache.generation()), stored, "Должен вернуться сохраненный ответ");
+        assertTrue(cache.get(KEY).getStoredAt() >= cached.getStoredAt(), "Время проверки ответа должно обновиться");
+
+        long generation = cache.generation();
+        cache.invalidateAll();
+        assertSame(cache.update(KEY, cached, notModified, generation), stored, "Должен вернуться сохраненный ответ");
+        assertNull(cache.get(KEY), "Ответ, проверенный до очистки кеша, не должен сохраняться");
+    }
+
+    //Ответ с ошибкой удаляет сохраненный ответ
+    @Test
+    void updateInvalidatesKeyOnError() {
+        cache.update(KEY, null, okResponse("\"v1\"", "{\"id\":1}"), cache.generation());
+
+        cache.update(KEY, cache.get(KEY), ResponseEntity.status(HttpStatus.NOT_FOUND).build(), cache.generation());
+
+        assertNull(cache.get(KEY), "Ответ должен быть удален из кеша");
+    }
+
+    //Ответ старше ttl устаревает, но остается в кеше для проверки по ETag
+    @Test
+    void responseOlderThanTtlIsStale() {
+        properties.setTtl(Duration.ZERO);
+        GatewayResponseCache staleCache = new GatewayResponseCache(properties, new SimpleMeterRegistry());
+
+        staleCache.update(KEY, null, okResponse("\"v1\"", "{\"id\":1}"), staleCache.generation());
+
+        GatewayResponseCache.CachedResponse cached = staleCache.get(KEY);
+        assertNotNull(cached, "Ответ должен быть сохранен в кеше");
+        assertFalse(staleCache.isFresh(cached), "Ответ должен устареть");
+    }
+
+    private static ResponseEntity<Object> okResponse(String etag, String body) {
+        return ResponseEntity.ok().eTag(etag).body(body.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.shareit.booking.availability;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.time.LocalDateTime;
+
+//Период подтвержденного бронирования вещи [start, end)
+@Data
+@AllArgsConstructor
+public class BookedInterval {
+    private LocalDateTime start;
+    private LocalDateTime end;
+}
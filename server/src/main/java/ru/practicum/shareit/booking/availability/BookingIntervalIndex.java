@@ -0,0 +1,100 @@
+package ru.practicum.shareit.booking.availability;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+//Индекс занятости вещей по подтвержденным бронированиям.
+//Для каждой вещи хранятся непересекающиеся периоды [start, end), упорядоченные по началу,
+//поэтому проверка пересечения с новым периодом выполняется за O(log n) без чтения всех бронирований вещи.
+//Периоды вещи загружаются из базы данных при первом обращении к ней.
+@RequiredArgsConstructor
+@Component
+public class BookingIntervalIndex {
+    private final BookingRepository bookingRepository;
+    //Периоды занятости по id вещи: начало периода -> окончание периода
+    private final Map<Long, NavigableMap<LocalDateTime, LocalDateTime>> intervalsByItem = new ConcurrentHashMap<>();
+    //Увеличивается при каждом удалении периодов из индекса, периоды, загруженные до удаления, в индексе не остаются
+    private final AtomicLong evictions = new AtomicLong();
+
+    //Метод возвращает пересекающийся с [start, end) подтвержденный период вещи или null, если вещь свободна
+    public BookedInterval findOverlap(long itemId, LocalDateTime start, LocalDateTime end) {
+        NavigableMap<LocalDateTime, LocalDateTime> intervals = getIntervals(itemId);
+        synchronized (intervals) {
+            //Периоды не пересекаются, поэтому у последнего периода, начавшегося до end, самое позднее окончание
+            Map.Entry<LocalDateTime, LocalDateTime> candidate = intervals.lowerEntry(end);
+            if (candidate == null || !candidate.getValue().isAfter(start)) {
+                return null;
+            }
+            return new BookedInterval(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    //Метод добавляет период подтвержденного бронирования вещи
+    public void add(long itemId, LocalDateTime start, LocalDateTime end) {
+        NavigableMap<LocalDateTime, LocalDateTime> intervals = getIntervals(itemId);
+        synchronized (intervals) {
+            merge(intervals, start, end);
+        }
+    }
+
+    //Метод удаляет периоды вещи из индекса, при следующем обращении они будут загружены из базы данных
+    public void evict(long itemId) {
+        evictions.incrementAndGet();
+        intervalsByItem.remove(itemId);
+    }
+
+    //Периоды загружаются вне computeIfAbsent: иначе на время запроса к базе данных блокировалась бы ячейка
+    //ConcurrentHashMap вместе с другими вещами, попавшими в нее. Если вещь одновременно загружают несколько потоков,
+    //в индексе остается первый загруженный вариант
+    private NavigableMap<LocalDateTime, LocalDateTime> getIntervals(long itemId) {
+        NavigableMap<LocalDateTime, LocalDateTime> intervals = intervalsByItem.get(itemId);
+        if (intervals != null) {
+            return intervals;
+        }
+
+        long evictionsBeforeLoad = evictions.get();
+        NavigableMap<LocalDateTime, LocalDateTime> loaded = new TreeMap<>();
+        bookingRepository.getApprovedIntervalsByItemId(itemId)
+                .forEach(interval -> merge(loaded, interval.getStart(), interval.getEnd()));
+
+        NavigableMap<LocalDateTime, LocalDateTime> existing = intervalsByItem.putIfAbsent(itemId, loaded);
+        if (existing != null) {
+            return existing;
+        }
+        //Во время загрузки периоды могли быть удалены из индекса, тогда загруженные данные могут быть устаревшими
+        if (evictions.get() != evictionsBeforeLoad) {
+            intervalsByItem.remove(itemId, loaded);
+        }
+        return loaded;
+    }
+
+    //Служебный метод объединяет период с пересекающимися периодами, чтобы периоды в индексе не пересекались.
+    //Пересечения возможны только для данных, сохраненных до появления проверки.
+    private static void merge(NavigableMap<LocalDateTime, LocalDateTime> intervals, LocalDateTime start, LocalDateTime end) {
+        Map.Entry<LocalDateTime, LocalDateTime> previous = intervals.lowerEntry(start);
+        if (previous != null && previous.getValue().isAfter(start)) {
+            start = previous.getKey();
+            end = max(end, previous.getValue());
+            intervals.remove(previous.getKey());
+        }
+        Map.Entry<LocalDateTime, LocalDateTime> next = intervals.ceilingEntry(start);
+        while (next != null && next.getKey().isBefore(end)) {
+            end = max(end, next.getValue());
+            intervals.remove(next.getKey());
+            next = intervals.ceilingEntry(start);
+        }
+        intervals.put(start, end);
+    }
+
+    private static LocalDateTime max(LocalDateTime first, LocalDateTime second) {
+        return first.isAfter(second) ? first : second;
+    }
+}
@@ -0,0 +1,44 @@
+package ru.practicum.shareit.booking.availability;
+
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+//Набор блокировок, распределенных по id вещи.
+//Изменения бронирований одной вещи выполняются последовательно, а бронирования разных вещей
+//обрабатываются параллельно, пока их id не попадают на одну и ту же блокировку.
+@Component
+public class ItemLockStripes {
+    private static final int NUMBER_OF_STRIPES = 64;
+    private final Lock[] stripes = new Lock[NUMBER_OF_STRIPES];
+
+    public ItemLockStripes() {
+        for (int i = 0; i < NUMBER_OF_STRIPES; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    //Метод возвращает блокировку, отвечающую за вещь
+    public Lock forItem(long itemId) {
+        return stripes[stripeOf(itemId)];
+    }
+
+    //Метод возвращает блокировки, отвечающие за вещи, без повторов и упорядоченные по номеру.
+    //Запросы, захватывающие несколько блокировок, берут их в одном порядке и поэтому не могут ждать друг друга бесконечно
+    public List<Lock> forItems(Collection<Long> itemIds) {
+        return itemIds.stream()
+                .map(ItemLockStripes::stripeOf)
+                .distinct()
+                .sorted()
+                .map(stripe -> stripes[stripe])
+                .collect(Collectors.toList());
+    }
+
+    private static int stripeOf(long itemId) {
+        return Math.floorMod(Long.hashCode(itemId), NUMBER_OF_STRIPES);
+    }
+}
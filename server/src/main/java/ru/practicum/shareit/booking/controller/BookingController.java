@@ -2,11 +2,16 @@ package ru.practicum.shareit.booking.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.dto.BookingState;
 import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.etag.EntityTags;
 import ru.practicum.shareit.exception.UnsupportedStatusException;
+import ru.practicum.shareit.metrics.QueryBudget;
 
 
 import java.util.List;
@@ -22,6 +27,7 @@ public class BookingController {
     }
 
     //Добавление бронирования
+    @QueryBudget(4)
     @PostMapping
     private BookingResponseDto addBooking(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                           @RequestBody BookingDto bookingDto) {
@@ -29,7 +35,16 @@ public class BookingController {
         return bookingService.addBooking(userId, bookingDto);
     }
 
+    //Добавление нескольких бронирований одним запросом, результат возвращается для каждого бронирования
+    @PostMapping("/batch")
+    private List<BookingBatchResultDto> addBookings(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                                    @RequestBody List<BookingDto> bookingDtos) {
+        log.info("Post request to add batch of {} bookings", bookingDtos.size());
+        return bookingService.addBookings(userId, bookingDtos);
+    }
+
     //Обновление бронирования
+    @QueryBudget(4)
     @PatchMapping("/{bookingId}")
     private BookingResponseDto update(@PathVariable("bookingId") long bookingId,
                                       @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
@@ -38,31 +53,54 @@ public class BookingController {
         return bookingService.updateBooking(bookingId, userId, approved);
     }
 
-    //Получение бронирования по его Id
+    //Подтверждение или отклонение нескольких бронирований одним запросом, результат возвращается для каждого бронирования
+    @PatchMapping("/batch")
+    private List<BookingBatchResultDto> updateBookings(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                                       @RequestBody List<BookingDecisionDto> decisions) {
+        log.info("Patch request for batch of {} bookings", decisions.size());
+        return bookingService.updateBookings(userId, decisions);
+    }
+
+    //Получение бронирования по его Id. Если ETag по версиям строк бронирования совпадает с If-None-Match,
+    //возвращается ответ 304 без тела
+    @QueryBudget(3)
     @GetMapping("/{bookingId}")
     private BookingResponseDto findBookingByUserId(@PathVariable("bookingId") long bookingId,
-                                                   @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId) {
+                                                   @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                                   NativeWebRequest request) {
         log.info("Get request for booking with id: {} .", bookingId);
-        return bookingService.findBookingByUserId(bookingId, userId);
+        return bookingService.findBookingByUserId(bookingId, userId, eTag -> EntityTags.isNotModified(request, eTag));
     }
 
     //Получение бронирования по его статусу с разбиением по страницам
+    @QueryBudget(3)
     @GetMapping()
     private List<BookingResponseDto> findAllBookingByUserId(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                                             @RequestParam(value = "state", required = false, defaultValue = "ALL") String state,
                                                             @RequestParam(value = "from", required = false) Integer from,
-                                                            @RequestParam(value = "size", required = false) Integer size) {
+                                                            @RequestParam(value = "size", required = false) Integer size,
+                                                            @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of booking by state: {} .", state);
+        //Если указан курсор, то страница определяется по id последнего полученного бронирования
+        if (cursor != null) {
+            return bookingService.findAllBookingByUserIdAfterCursor(userId, state, cursor, size);
+        }
         return bookingService.findAllBookingByUserId(userId, state, from, size);
     }
 
     //Все бронирования вещей владельца определенного по id
+    @QueryBudget(3)
     @GetMapping("/owner")
     private List<BookingResponseDto> findAllBookingForAllItems(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                                                @RequestParam(value = "state", required = false, defaultValue = "ALL") String state,
                                                                @RequestParam(value = "from", required = false) Integer from,
-                                                               @RequestParam(value = "size", required = false) Integer size) {
+                                                               @RequestParam(value = "size", required = false) Integer size,
+                                                               @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of booking by owner: {} .", state);
+        //Если указан курсор, то страница определяется по id последнего полученного бронирования
+        if (cursor != null) {
+            return bookingService.findAllBookingForAllItemsAfterCursor(userId, state, cursor, size);
+        }
         return bookingService.findAllBookingForAllItems(userId, state, from, size);
     }
 }
@@ -0,0 +1,28 @@
+package ru.practicum.shareit.booking.dto;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.http.HttpStatus;
+
+//Результат обработки одного элемента пакета: созданное или измененное бронирование либо описание ошибки.
+//Поле status содержит код ответа, который вернул бы одиночный запрос POST /bookings или PATCH /bookings/{bookingId}
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class BookingBatchResultDto {
+    private int index;
+    private int status;
+    private BookingResponseDto booking;
+    private String error;
+
+    public static BookingBatchResultDto succeeded(int index, BookingResponseDto booking) {
+        return new BookingBatchResultDto(index, HttpStatus.OK.value(), booking, null);
+    }
+
+    public static BookingBatchResultDto failed(int index, HttpStatus status, String error) {
+        return new BookingBatchResultDto(index, status.value(), null, error);
+    }
+}
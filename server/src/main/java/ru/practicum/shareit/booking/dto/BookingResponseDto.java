@@ -6,6 +6,8 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import ru.practicum.shareit.booking.model.StatusOfBooking;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 
 import java.time.LocalDateTime;
@@ -21,4 +23,34 @@ public class BookingResponseDto {
     private Item item;
     private User booker;
     private StatusOfBooking status;
+
+    //Конструктор для запросов JPQL (BookingRepository.SELECT_RESPONSE): ответ собирается из значений столбцов,
+    //сущности бронирования, вещи и пользователей не создаются и не отслеживаются Hibernate
+    public BookingResponseDto(long id, LocalDateTime start, LocalDateTime end, StatusOfBooking status,
+                              long itemId, String itemName, String itemDescription, boolean itemAvailable,
+                              Long ownerId, String ownerName, String ownerEmail,
+                              Long requestId, String requestDescription, LocalDateTime requestCreated,
+                              Long requestorId, String requestorName, String requestorEmail,
+                              Long bookerId, String bookerName, String bookerEmail) {
+        this.id = id;
+        this.start = start;
+        this.end = end;
+        this.status = status;
+        this.booker = UserMapper.toUser(bookerId, bookerName, bookerEmail);
+
+        item = new Item();
+        item.setId(itemId);
+        item.setName(itemName);
+        item.setDescription(itemDescription);
+        item.setAvailable(itemAvailable);
+        item.setOwner(UserMapper.toUser(ownerId, ownerName, ownerEmail));
+        if (requestId != null) {
+            Request request = new Request();
+            request.setId(requestId);
+            request.setDescription(requestDescription);
+            request.setCreated(requestCreated);
+            request.setRequestor(UserMapper.toUser(requestorId, requestorName, requestorEmail));
+            item.setRequest(request);
+        }
+    }
 }
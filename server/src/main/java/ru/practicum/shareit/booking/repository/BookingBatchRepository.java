@@ -0,0 +1,34 @@
+package ru.practicum.shareit.booking.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.model.Booking;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Пакетное изменение статусов бронирований через JDBC: условие на текущий статус проверяется в самом запросе,
+//чего нельзя выразить через сохранение сущностей Hibernate
+@RequiredArgsConstructor
+@Repository
+public class BookingBatchRepository {
+    //Статус меняется только у бронирований в ожидании, решение параллельного запроса не перезаписывается.
+    //Версия строки увеличивается так же, как при сохранении сущности через Hibernate
+    private static final String UPDATE_STATUS = "update bookings set status = ?, version = version + 1 where id = ? and status = 'WAITING'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    //Метод меняет статусы бронирований одним пакетом в одной транзакции.
+    //Возвращает количество измененных строк по каждому бронированию, 0 - бронирование уже не в ожидании
+    @Transactional
+    public int[] updateStatuses(List<Booking> bookings) {
+        if (bookings.isEmpty()) {
+            return new int[0];
+        }
+        return jdbcTemplate.batchUpdate(UPDATE_STATUS, bookings.stream()
+                .map(booking -> new Object[]{booking.getStatus().name(), booking.getId()})
+                .collect(Collectors.toList()));
+    }
+}
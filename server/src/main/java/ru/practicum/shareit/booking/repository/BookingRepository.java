@@ -3,106 +3,268 @@ package ru.practicum.shareit.booking.repository;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.booking.availability.BookedInterval;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.LastNextBooking;
 import ru.practicum.shareit.booking.model.StatusOfBooking;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
+import java.util.Set;
 
 public interface BookingRepository extends JpaRepository<Booking, Long> {
+    //Ответ о бронировании: бронирование, вещь с владельцем и запросом, арендатор.
+    //Значения столбцов передаются прямо в конструктор DTO, поэтому сущности не создаются и не попадают в контекст постоянства.
+    //Вещи владельца отбираются подзапросом: при внешних соединениях H2 не меняет порядок таблиц и иначе читает все бронирования.
+    String SELECT_RESPONSE = " select new ru.practicum.shareit.booking.dto.BookingResponseDto(" +
+                             "b.id, b.start, b.end, b.status, " +
+                             "i.id, i.name, i.description, i.available, " +
+                             "o.id, o.name, o.email, " +
+                             "r.id, r.description, r.created, " +
+                             "rq.id, rq.name, rq.email, " +
+                             "bk.id, bk.name, bk.email) " +
+                             "from Booking b " +
+                             "join b.item i " +
+                             "left join i.owner o " +
+                             "left join i.request r " +
+                             "left join r.requestor rq " +
+                             "left join b.booker bk ";
+
+    //Бронирование вместе с вещью, ее владельцем, запросом и арендатором для изменения бронирования.
+    //Все связи загружаются одним SQL-запросом, а не отдельными запросами к вещи и пользователям.
+    String SELECT_WITH_DETAILS = " select b from Booking b " +
+                                 "join fetch b.item i " +
+                                 "left join fetch i.owner " +
+                                 "left join fetch i.request r " +
+                                 "left join fetch r.requestor " +
+                                 "left join fetch b.booker ";
 
     //Метод возвращает список бронирований указанного статуса для пользователя по его id
-    List<Booking> getAllByBookerIdAndStatusOrderByStartDesc(long bookerId, StatusOfBooking state, Pageable pageable);
+    @Query(SELECT_RESPONSE +
+           "where b.booker.id = ?1 " +
+           "  and b.status = ?2 " +
+           "order by b.start desc ")
+    List<BookingResponseDto> getAllByBookerIdAndStatusOrderByStartDesc(long bookerId, StatusOfBooking state, Pageable pageable);
 
     //Метод возвращает все бронирования указанного пользователя по его id
-    List<Booking> getAllByBookerIdOrderByStartDesc(long bookerId, Pageable pageable);
+    @Query(SELECT_RESPONSE +
+           "where b.booker.id = ?1 " +
+           "order by b.start desc ")
+    List<BookingResponseDto> getAllByBookerIdOrderByStartDesc(long bookerId, Pageable pageable);
 
     //Метод возвращает текущие бронирования пользователя
-    @Query(" select b from Booking b " +
+    @Query(SELECT_RESPONSE +
            "where current_timestamp between b.start and b.end " +
            "  and b.booker.id = ?1 " +
            "order by b.start desc ")
-    List<Booking> getCurrentBookings(long bookerId, Pageable pageable);
+    List<BookingResponseDto> getCurrentBookings(long bookerId, Pageable pageable);
 
     //Метод возвращает будущие бронирования пользователя
-    @Query(" select b from Booking b " +
+    @Query(SELECT_RESPONSE +
            "where b.start > current_timestamp " +
            "  and b.booker.id = ?1 " +
            "order by b.start desc ")
-    List<Booking> getFutureBookings(long bookerId, Pageable pageable);
+    List<BookingResponseDto> getFutureBookings(long bookerId, Pageable pageable);
 
     //Метод возвращает прошедшие бронирования пользователя
-    @Query(" select b from Booking b " +
+    @Query(SELECT_RESPONSE +
            "where b.end < current_timestamp " +
            "  and b.booker.id = ?1 " +
            "order by b.start desc ")
-    List<Booking> getPastBookings(long bookerId, Pageable pageable);
+    List<BookingResponseDto> getPastBookings(long bookerId, Pageable pageable);
 
     //Метод возвращает список всех бронирований по вещам указанного пользователя
-    @Query(" select b from Booking b " +
-           "where b.item.owner.id = ?1 " +
+    @Query(SELECT_RESPONSE +
+           "where b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
            "order by b.start desc ")
-    List<Booking> getAllByItemOwnerId(long ownerId, Pageable pageable);
+    List<BookingResponseDto> getAllByItemOwnerId(long ownerId, Pageable pageable);
 
     //Метод возвращает список бронирований по вещам указанного пользователя с определенным статусом
-    @Query(" select b from Booking b " +
-           "where b.item.owner.id = ?1 " +
+    @Query(SELECT_RESPONSE +
+           "where b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
            "  and b.status = ?2 " +
            "order by b.start desc ")
-    List<Booking> getAllByItemOwnerIdAndState(long ownerId, StatusOfBooking state, Pageable pageable);
+    List<BookingResponseDto> getAllByItemOwnerIdAndState(long ownerId, StatusOfBooking state, Pageable pageable);
 
     //Метод возвращает текущие бронирования по вещам пользователя
-    @Query(" select b from Booking b " +
+    @Query(SELECT_RESPONSE +
            "where current_timestamp between b.start and b.end " +
-           "  and b.item.owner.id = ?1 " +
+           "  and b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
            "order by b.start desc ")
-    List<Booking> getCurrentBookingsByItems(long ownerId, Pageable pageable);
+    List<BookingResponseDto> getCurrentBookingsByItems(long ownerId, Pageable pageable);
 
     //Метод возвращает будущие бронирования по вещам пользователя
-    @Query(" select b from Booking b " +
+    @Query(SELECT_RESPONSE +
            "where b.start > current_timestamp " +
-           "  and b.item.owner.id = ?1 " +
+           "  and b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
            "order by b.start desc ")
-    List<Booking> getFutureBookingsByItems(long ownerId, Pageable pageable);
+    List<BookingResponseDto> getFutureBookingsByItems(long ownerId, Pageable pageable);
 
     //Метод возвращает прошедшие бронирования по вещам пользователя
-    @Query("select b from Booking b " +
+    @Query(SELECT_RESPONSE +
            "where b.end < current_timestamp " +
-           "  and b.item.owner.id = ?1 " +
+           "  and b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
            "order by b.start desc ")
-    List<Booking> getPastBookingsByItems(long ownerId, Pageable pageable);
+    List<BookingResponseDto> getPastBookingsByItems(long ownerId, Pageable pageable);
 
-    //Метод возвращающий следующее бронирование вещи
-    @Query("select b from Booking b " +
+    //Метод возвращает бронирования пользователя указанного статуса, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.booker.id = ?1 " +
+           "  and b.status = ?2 " +
+           "  and (b.start < ?3 or (b.start = ?3 and b.id < ?4)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getAllByBookerIdAndStatusAfterCursor(long bookerId, StatusOfBooking state, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает все бронирования пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.booker.id = ?1 " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getAllByBookerIdAfterCursor(long bookerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает текущие бронирования пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where current_timestamp between b.start and b.end " +
+           "  and b.booker.id = ?1 " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getCurrentBookingsAfterCursor(long bookerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает будущие бронирования пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
            "where b.start > current_timestamp " +
-           "  and b.item.id = ?1 " +
-           "  and b.item.owner.id = ?2 " +
-           "  and b.status = 'APPROVED' " +
-           "order by b.start asc ")
-    List<Booking> getNextBooking(long itemId, long userId);
+           "  and b.booker.id = ?1 " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getFutureBookingsAfterCursor(long bookerId, LocalDateTime start, long id, Pageable pageable);
 
-    //Метод возвращающий последнее бронирование вещи
-    @Query("select b from Booking b " +
-            "where b.end < current_timestamp " +
-            "  and b.item.id = ?1 " +
-            "  and b.item.owner.id = ?2 " +
-            "  and b.status = 'APPROVED' " +
-            "order by b.end desc " )
-    List<Booking> getLastBooking(long itemId, long userId);
+    //Метод возвращает прошедшие бронирования пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.end < current_timestamp " +
+           "  and b.booker.id = ?1 " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getPastBookingsAfterCursor(long bookerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает бронирования по вещам пользователя с определенным статусом, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
+           "  and b.status = ?2 " +
+           "  and (b.start < ?3 or (b.start = ?3 and b.id < ?4)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getAllByItemOwnerIdAndStateAfterCursor(long ownerId, StatusOfBooking state, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает все бронирования по вещам пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getAllByItemOwnerIdAfterCursor(long ownerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает текущие бронирования по вещам пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where current_timestamp between b.start and b.end " +
+           "  and b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getCurrentBookingsByItemsAfterCursor(long ownerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает будущие бронирования по вещам пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.start > current_timestamp " +
+           "  and b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getFutureBookingsByItemsAfterCursor(long ownerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает прошедшие бронирования по вещам пользователя, следующие за курсором (start, id)
+    @Query(SELECT_RESPONSE +
+           "where b.end < current_timestamp " +
+           "  and b.item.id in (select o.id from Item o where o.owner.id = ?1) " +
+           "  and (b.start < ?2 or (b.start = ?2 and b.id < ?3)) " +
+           "order by b.start desc, b.id desc ")
+    List<BookingResponseDto> getPastBookingsByItemsAfterCursor(long ownerId, LocalDateTime start, long id, Pageable pageable);
+
+    //Метод возвращает бронирование по id вместе с вещью и арендатором
+    @Query(SELECT_WITH_DETAILS +
+           "where b.id = ?1 ")
+    Optional<Booking> getWithDetailsById(long bookingId);
+
+    //Метод возвращает бронирования по списку id вместе с вещами, владельцами вещей и арендаторами одним запросом
+    @Query(SELECT_WITH_DETAILS +
+           "where b.id in ?1 ")
+    List<Booking> getAllWithDetailsByIdIn(Collection<Long> bookingIds);
+
+    //Метод возвращает дату начала бронирования, используемую как курсор постраничного вывода
+    @Query("select b.start from Booking b " +
+           "where b.id = ?1 ")
+    Optional<LocalDateTime> getStartById(long bookingId);
+
+    //Метод возвращает id вещи бронирования без загрузки самого бронирования
+    @Query("select b.item.id from Booking b " +
+           "where b.id = ?1 ")
+    Optional<Long> getItemIdById(long bookingId);
+
+    //Метод возвращает id вещей бронирований по списку id без загрузки самих бронирований
+    @Query("select distinct b.item.id from Booking b " +
+           "where b.id in ?1 ")
+    Set<Long> getItemIdsByIdIn(Collection<Long> bookingIds);
 
     //Метод возвращает все бронирования по номеру вещи
+    @Query("select b from Booking b " +
+           "where b.item.id = ?1 ")
     List<Booking> getAllByItemId(long itemId);
 
     //Метод возвращает завершенные бронирования арендатора
+    @Query("select b from Booking b " +
+           "where b.booker.id = ?1 " +
+           "  and b.item.id = ?2 " +
+           "  and b.end < ?3 ")
     List<Booking> getAllByBookerIdAndItemIdAndEndIsBefore(long bookerId, long itemId, LocalDateTime now);
 
-    //Метод возвращает количество бронирований вещи
-    long countBookingsByItemIdAndItemOwnerId(long itemId, long ownerId);
+    //Метод возвращает подтвержденные бронирования указанных вещей вместе с арендаторами одним запросом
+    @Query("select b from Booking b " +
+            "join fetch b.booker " +
+            "where b.item.id in ?1 " +
+            "  and b.status = 'APPROVED' ")
+    List<Booking> getApprovedWithBookerByItemsId(List<Long> items);
 
-    Booking getBookingByItemIdAndItemOwnerId(long itemId, long ownerId);
+    //Метод возвращает периоды подтвержденных бронирований вещи для индекса занятости
+    @Query("select new ru.practicum.shareit.booking.availability.BookedInterval(b.start, b.end) " +
+            "from Booking b " +
+            "where b.item.id = ?1 " +
+            "  and b.status = 'APPROVED' " +
+            "order by b.start asc ")
+    List<BookedInterval> getApprovedIntervalsByItemId(long itemId);
 
-    @Query("select b from Booking b " +
-            "where b.item.id in ?1 " )
-    List<Booking> getBookingsByItemsId(List<Long> items);
+    //Метод возвращает последнее подтвержденное бронирование вещи, завершившееся до указанного момента.
+    //Размер выборки ограничивается страницей, поэтому читается не больше одной строки индекса bookings_item_status_end_idx
+    @Query("select new ru.practicum.shareit.booking.model.LastNextBooking(b.id, b.booker.id) " +
+            "from Booking b " +
+            "where b.item.id = ?1 " +
+            "  and b.status = 'APPROVED' " +
+            "  and b.end < ?2 " +
+            "order by b.end desc ")
+    List<LastNextBooking> getLastApprovedByItemId(long itemId, LocalDateTime now, Pageable pageable);
+
+    //Метод возвращает следующее подтвержденное бронирование вещи, начинающееся после указанного момента
+    @Query("select new ru.practicum.shareit.booking.model.LastNextBooking(b.id, b.booker.id) " +
+            "from Booking b " +
+            "where b.item.id = ?1 " +
+            "  and b.status = 'APPROVED' " +
+            "  and b.start > ?2 " +
+            "order by b.start asc ")
+    List<LastNextBooking> getNextApprovedByItemId(long itemId, LocalDateTime now, Pageable pageable);
+
+    //Метод возвращает подтвержденное бронирование вещи, если у вещи только одно бронирование в любом статусе
+    @Query("select new ru.practicum.shareit.booking.model.LastNextBooking(b.id, b.booker.id) " +
+            "from Booking b " +
+            "where b.item.id = ?1 " +
+            "  and b.status = 'APPROVED' " +
+            "  and (select count(o) from Booking o where o.item.id = ?1) = 1 ")
+    List<LastNextBooking> getApprovedByItemIdIfOnlyOne(long itemId);
 
 }
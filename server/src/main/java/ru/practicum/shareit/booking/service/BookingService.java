@@ -1,89 +1,253 @@
 package ru.practicum.shareit.booking.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.http.HttpStatus;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.booking.availability.BookedInterval;
+import ru.practicum.shareit.booking.availability.BookingIntervalIndex;
+import ru.practicum.shareit.booking.availability.ItemLockStripes;
 import ru.practicum.shareit.booking.dto.*;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingBatchRepository;
 import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.etag.EntityTags;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.exception.UnsupportedStatusException;
+import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.utility.PageableUtility;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Function;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
+@Timed(value = "shareit.service", histogram = true)
 public class BookingService {
+    //Максимальное количество бронирований в одном пакете
+    public static final int MAX_SIZE_OF_BATCH = 1000;
     private final BookingRepository bookingRepository;
+    private final BookingBatchRepository bookingBatchRepository;
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
+    private final BookingIntervalIndex bookingIntervalIndex;
+    private final ItemLockStripes itemLockStripes;
 
     //Метод создания нового бронирования
     public BookingResponseDto addBooking(long userId, BookingDto bookingDto) {
-        //Если пользователя не существует, то выбрасываем исключение
-        if (!userRepository.existsById(userId)) {
+        //Если пользователя не существует, то выбрасываем исключение. Пользователь загружается один раз и для проверки,
+        //и для сохранения бронирования
+        User booker = userRepository.findById(userId).orElse(null);
+        if (booker == null) {
             log.info("User with id: {} is not exist.", userId);
             throw new NoSuchElementException("User with id: " + userId + " is not exist.");
         }
-        //Если вещи не существует или она не доступна, то выбрасываем исключение
-        if (!itemRepository.existsById(bookingDto.getItemId())) {
-            log.info("Item with id: {} is not exist.", bookingDto.getItemId());
-            throw new NoSuchElementException("Item with id: " + bookingDto.getItemId() + " is not exist.");
-        } else if (!itemRepository.findById(bookingDto.getItemId()).orElseThrow().isAvailable()) {
-            log.info("Item: {} is not available.", bookingDto.getItemId());
-            throw new BadRequestException("Item: " + bookingDto.getItemId() + " is not available.");
-        }
+        //Вещь берется из кеша, а доступность проверяется по базе данных, чтобы не забронировать вещь по устаревшим данным
+        Item item = itemRepository.findById(bookingDto.getItemId()).orElse(null);
+        checkNewBooking(userId, bookingDto, item, item != null && itemRepository.getAvailableById(item.getId()).orElse(false));
 
-        if (bookingDto.getStart() == null) {
-            //Дата начала бронирования должна быть определена
-            log.info("Start should be defined.");
-            throw new BadRequestException("Start should be defined.");
-        } else if (bookingDto.getEnd() == null) {
-            //Дата окончания бронирования должна быть определена
-            log.info("End date should be defined.");
-            throw new BadRequestException("End date should be defined.");
-        } else if (bookingDto.getStart().isAfter(bookingDto.getEnd())) {
-            //Если дата начала бронирования после даты окончания, то выбрасываем исключение
-            log.info("Start: {} is after end: {} .", bookingDto.getStart(), bookingDto.getEnd());
-            throw new BadRequestException("Start: " + bookingDto.getStart() + " is after end: " + bookingDto.getEnd() + " .");
-        } else if (bookingDto.getStart().isEqual(bookingDto.getEnd())) {
-            //Если начало бронирования и окончание бронирования совпадают, то выбрасываем исключение
-            log.info("Start: {} should be different from end: {}.", bookingDto.getStart(), bookingDto.getEnd());
-            throw new BadRequestException("Start: " + bookingDto.getStart() + " should be different from end: " + bookingDto.getEnd() + " .");
-        } else if (bookingDto.getStart().isBefore(LocalDateTime.now())) {
-            //Дата начала бронирования должна быть в будущем
-            log.info("Start date should be in the future.");
-            throw new BadRequestException("Start date should be in the future.");
-        }
+        bookingDto.setItem(item);
+        bookingDto.setBooker(booker);
+        bookingDto.setStatus(StatusOfBooking.WAITING);
+        Booking savedBooking = bookingRepository.save(BookingMapper.toBooking(bookingDto));
+        return BookingResponseMapper.toBookingResponseDto(savedBooking);
+    }
 
-        bookingDto.setItem(itemRepository.findById(bookingDto.getItemId()).orElseThrow());
+    //Метод создания нескольких бронирований пользователя. Каждое бронирование проверяется отдельно,
+    //ошибка в одном из них не отменяет создание остальных, результаты возвращаются в порядке бронирований в запросе
+    public List<BookingBatchResultDto> addBookings(long userId, List<BookingDto> bookingDtos) {
+        if (!userRepository.existsById(userId)) {
+            log.info("User with id: {} is not exist.", userId);
+            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
+        } else if (bookingDtos == null || bookingDtos.isEmpty()) {
+            log.info("Batch should include at least one booking.");
+            throw new BadRequestException("Batch should include at least one booking.");
+        } else if (bookingDtos.size() > MAX_SIZE_OF_BATCH) {
+            log.info("Batch could include at most {} bookings, now it's: {}", MAX_SIZE_OF_BATCH, bookingDtos.size());
+            throw new BadRequestException("Batch could include at most " + MAX_SIZE_OF_BATCH + " bookings, now it's: " + bookingDtos.size());
+        }
+        User booker = userRepository.findById(userId).orElseThrow();
+        //Все вещи пакета загружаются одним запросом вместе с владельцами, поэтому доступность вещей актуальна
+        List<Long> itemIds = bookingDtos.stream().map(BookingDto::getItemId).distinct().collect(Collectors.toList());
+        Map<Long, Item> items = itemRepository.getAllWithDetailsByIdIn(itemIds).stream()
+                .collect(Collectors.toMap(Item::getId, Function.identity()));
 
-        //Владелец вещи не может сам ее взять в аренду
-        if (bookingDto.getItem().getOwner().getId() == userId) {
-            log.info("Owner couldn't create booking.");
-            throw new NoSuchElementException("Owner couldn't create booking.");
+        BookingBatchResultDto[] results = new BookingBatchResultDto[bookingDtos.size()];
+        List<Booking> newBookings = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        for (int i = 0; i < bookingDtos.size(); i++) {
+            BookingDto bookingDto = bookingDtos.get(i);
+            Item item = items.get(bookingDto.getItemId());
+            try {
+                checkNewBooking(userId, bookingDto, item, item != null && item.isAvailable());
+            } catch (NoSuchElementException e) {
+                results[i] = BookingBatchResultDto.failed(i, HttpStatus.NOT_FOUND, e.getMessage());
+                continue;
+            } catch (BadRequestException e) {
+                results[i] = BookingBatchResultDto.failed(i, HttpStatus.BAD_REQUEST, e.getMessage());
+                continue;
+            }
+            bookingDto.setItem(item);
+            bookingDto.setBooker(booker);
+            bookingDto.setStatus(StatusOfBooking.WAITING);
+            newBookings.add(BookingMapper.toBooking(bookingDto));
+            positions.add(i);
         }
 
-        bookingDto.setBooker(userRepository.findById(userId).orElseThrow());
-        bookingDto.setStatus(StatusOfBooking.WAITING);
-        Booking savedBooking = bookingRepository.save(BookingMapper.toBooking(bookingDto));
-        return BookingResponseMapper.toBookingResponseDto(savedBooking);
+        //Прошедшие проверку бронирования сохраняются в одной транзакции, Hibernate вставляет их пакетами JDBC
+        bookingRepository.saveAll(newBookings);
+        for (int i = 0; i < newBookings.size(); i++) {
+            results[positions.get(i)] = BookingBatchResultDto.succeeded(positions.get(i),
+                    BookingResponseMapper.toBookingResponseDto(newBookings.get(i)));
+        }
+        log.info("Batch of {} bookings is processed, created: {}", bookingDtos.size(), newBookings.size());
+        return Arrays.asList(results);
     }
 
     public BookingResponseDto updateBooking(long bookingId, long userId, boolean approved) {
         //Проверяем, что бронирование и пользователь существуют, а так же то, что пользователь является владельцем вещи
         checkUserAndBooking(userId, bookingId);
-        Booking currentBooking = bookingRepository.findById(bookingId).orElseThrow();
+        //Решения по бронированиям одной вещи принимаются последовательно, иначе два параллельных запроса
+        //могут одновременно увидеть статус WAITING и подтвердить пересекающиеся бронирования
+        Lock itemLock = itemLockStripes.forItem(bookingRepository.getItemIdById(bookingId).orElseThrow());
+        itemLock.lock();
+        try {
+            return changeStatus(bookingId, userId, approved);
+        } finally {
+            itemLock.unlock();
+        }
+    }
+
+    //Метод подтверждения или отклонения нескольких бронирований владельцем вещей. Каждое решение проверяется до записи,
+    //и ошибка одного решения не отменяет остальные: результат возвращается по каждому решению отдельно.
+    //Прошедшие проверку решения записываются одним пакетом в одной транзакции
+    public List<BookingBatchResultDto> updateBookings(long userId, List<BookingDecisionDto> decisions) {
+        if (!userRepository.existsById(userId)) {
+            log.info("User with id: {} is not exist.", userId);
+            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
+        } else if (decisions == null || decisions.isEmpty()) {
+            log.info("Batch should include at least one decision.");
+            throw new BadRequestException("Batch should include at least one decision.");
+        } else if (decisions.size() > MAX_SIZE_OF_BATCH) {
+            log.info("Batch could include at most {} decisions, now it's: {}", MAX_SIZE_OF_BATCH, decisions.size());
+            throw new BadRequestException("Batch could include at most " + MAX_SIZE_OF_BATCH + " decisions, now it's: " + decisions.size());
+        }
+        List<Long> bookingIds = decisions.stream().map(BookingDecisionDto::getBookingId).distinct().collect(Collectors.toList());
+
+        //Блокировки всех вещей пакета захватываются на время проверки и изменения статусов, как и при изменении одного бронирования.
+        //До блокировки читаются только id вещей, они у бронирования не меняются
+        List<Lock> itemLocks = itemLockStripes.forItems(bookingRepository.getItemIdsByIdIn(bookingIds));
+        itemLocks.forEach(Lock::lock);
+        try {
+            //Бронирования читаются уже под блокировками, чтобы проверка статусов учитывала решения параллельных запросов
+            Map<Long, Booking> bookings = bookingRepository.getAllWithDetailsByIdIn(bookingIds).stream()
+                    .collect(Collectors.toMap(Booking::getId, Function.identity()));
+            return changeStatuses(userId, decisions, bookings);
+        } finally {
+            itemLocks.forEach(Lock::unlock);
+        }
+    }
+
+    //Служебный метод меняет статусы бронирований пакета, вызывается под блокировками вещей. Подтверждение проверяется
+    //по индексу занятости и по подтверждениям, прошедшим проверку раньше в этом же пакете: из пересекающихся подтверждений
+    //применяется первое
+    private List<BookingBatchResultDto> changeStatuses(long userId, List<BookingDecisionDto> decisions, Map<Long, Booking> bookings) {
+        BookingBatchResultDto[] results = new BookingBatchResultDto[decisions.size()];
+        List<Booking> changedBookings = new ArrayList<>();
+        List<Integer> positions = new ArrayList<>();
+        //Прошедшие проверку подтверждения пакета по id вещи
+        Map<Long, List<Booking>> approvedInBatch = new HashMap<>();
+        for (int i = 0; i < decisions.size(); i++) {
+            BookingDecisionDto decision = decisions.get(i);
+            Booking booking = bookings.get(decision.getBookingId());
+            try {
+                checkDecision(userId, decision, booking);
+                if (decision.getApproved()) {
+                    //Подтвердить можно только бронирование, не пересекающееся с подтвержденными
+                    checkItemIsFree(booking.getItem().getId(), booking.getStart(), booking.getEnd());
+                    checkNoOverlapInBatch(booking, approvedInBatch.getOrDefault(booking.getItem().getId(), List.of()));
+                }
+            } catch (NoSuchElementException e) {
+                results[i] = BookingBatchResultDto.failed(i, HttpStatus.NOT_FOUND, e.getMessage());
+                continue;
+            } catch (BadRequestException e) {
+                results[i] = BookingBatchResultDto.failed(i, HttpStatus.BAD_REQUEST, e.getMessage());
+                continue;
+            }
+            booking.setStatus(decision.getApproved() ? StatusOfBooking.APPROVED : StatusOfBooking.REJECTED);
+            if (decision.getApproved()) {
+                approvedInBatch.computeIfAbsent(booking.getItem().getId(), id -> new ArrayList<>()).add(booking);
+            }
+            changedBookings.add(booking);
+            positions.add(i);
+        }
+
+        applyStatuses(changedBookings, positions, results);
+        log.info("Batch of {} decisions is processed, changed: {}", decisions.size(),
+                Arrays.stream(results).filter(result -> result.getBooking() != null).count());
+        return Arrays.asList(results);
+    }
+
+    //Служебный метод сохраняет статусы бронирований одним пакетом и записывает результаты по ним. Решение, чье бронирование
+    //уже не в ожидании, не меняет строку и возвращается с ошибкой, остальные решения пакета при этом применяются.
+    //Если ограничение базы данных отклонило пакет, транзакция откатывается и ни один статус пакета не меняется
+    private void applyStatuses(List<Booking> changedBookings, List<Integer> positions, BookingBatchResultDto[] results) {
+        int[] updated;
+        try {
+            updated = bookingBatchRepository.updateStatuses(changedBookings);
+        } catch (DataIntegrityViolationException e) {
+            //Ограничение базы данных не допускает пересечения подтвержденных бронирований, даже если индекс в памяти устарел,
+            //поэтому периоды вещей пакета будут заново загружены из базы при следующей проверке
+            log.info("Batch of {} statuses is rejected by database constraint.", changedBookings.size());
+            for (int i = 0; i < changedBookings.size(); i++) {
+                Booking booking = changedBookings.get(i);
+                booking.setStatus(StatusOfBooking.WAITING);
+                bookingIntervalIndex.evict(booking.getItem().getId());
+                results[positions.get(i)] = BookingBatchResultDto.failed(positions.get(i), HttpStatus.BAD_REQUEST,
+                        "Batch is rejected: approved bookings of items have changed, booking status is not changed.");
+            }
+            return;
+        }
+        for (int i = 0; i < changedBookings.size(); i++) {
+            Booking booking = changedBookings.get(i);
+            if (updated[i] == 0) {
+                //Статус бронирования изменили без блокировки вещи, например другим экземпляром сервера, и условие запроса строку не изменило
+                log.info("Only booking in status Wait can be approved");
+                results[positions.get(i)] = BookingBatchResultDto.failed(positions.get(i), HttpStatus.BAD_REQUEST,
+                        "Only booking in status Wait can be approved");
+                continue;
+            }
+            if (booking.getStatus() == StatusOfBooking.APPROVED) {
+                bookingIntervalIndex.add(booking.getItem().getId(), booking.getStart(), booking.getEnd());
+            }
+            results[positions.get(i)] = BookingBatchResultDto.succeeded(positions.get(i), BookingResponseMapper.toBookingResponseDto(booking));
+        }
+    }
+
+    //Служебный метод меняет статус бронирования, вызывается под блокировкой вещи
+    private BookingResponseDto changeStatus(long bookingId, long userId, boolean approved) {
+        //Бронирование читается уже под блокировкой, чтобы проверка статуса учитывала решения параллельных запросов
+        Booking currentBooking = bookingRepository.getWithDetailsById(bookingId).orElseThrow();
         if (currentBooking.getItem().getOwner().getId() != userId) {
             log.info("Booking with id: {} has other owner.", userId);
             throw new NoSuchElementException("Booking with id: " + userId + " has other owner.");
@@ -94,24 +258,52 @@ public class BookingService {
 
         //Меняем статус бронирования
         if (approved) {
+            //Подтвердить можно только бронирование, не пересекающееся с уже подтвержденными
+            checkItemIsFree(currentBooking.getItem().getId(), currentBooking.getStart(), currentBooking.getEnd());
             currentBooking.setStatus(StatusOfBooking.APPROVED);
         } else {
             currentBooking.setStatus(StatusOfBooking.REJECTED);
         }
 
-        //Обновляем бронирование
-        currentBooking = bookingRepository.save(currentBooking);
+        //Обновляем бронирование, в ответ попадает уже загруженное бронирование с вещью и арендатором
+        try {
+            bookingRepository.save(currentBooking);
+        } catch (DataIntegrityViolationException e) {
+            //Ограничение базы данных не допускает пересечения подтвержденных бронирований, даже если индекс в памяти устарел,
+            //поэтому периоды вещи будут заново загружены из базы при следующей проверке
+            bookingIntervalIndex.evict(currentBooking.getItem().getId());
+            log.info("Item: {} is already booked for this period.", currentBooking.getItem().getId());
+            throw new BadRequestException("Item: " + currentBooking.getItem().getId() + " is already booked for this period.");
+        }
+        if (approved) {
+            bookingIntervalIndex.add(currentBooking.getItem().getId(), currentBooking.getStart(), currentBooking.getEnd());
+        }
         return BookingResponseMapper.toBookingResponseDto(currentBooking);
     }
 
     //Метод возвращающий бронирование (только для владельца вещи или того, кто создал бронирование)
     public BookingResponseDto findBookingByUserId(long bookingId, long userId) {
+        return findBookingByUserId(bookingId, userId, eTag -> false);
+    }
+
+    //Метод возвращающий бронирование с проверкой ETag. ETag строится по версиям бронирования, вещи, ее владельца и запроса
+    //и арендатора, если notModified подтверждает совпадение ETag, то возвращается null
+    public BookingResponseDto findBookingByUserId(long bookingId, long userId, Predicate<String> notModified) {
         //Проверяем корректность указанного в запросе пользователя и бронирования
         checkUserAndBooking(userId, bookingId);
         //Проверяем, что запрос делает владелец вещи или создатель бронирования и в этом случае возвращаем бронирование
-        if (bookingRepository.findById(bookingId).orElseThrow().getItem().getOwner().getId() == userId
-                || bookingRepository.findById(bookingId).orElseThrow().getBooker().getId() == userId) {
-            return BookingResponseMapper.toBookingResponseDto(bookingRepository.findById(bookingId).orElseThrow());
+        Booking booking = bookingRepository.getWithDetailsById(bookingId).orElseThrow();
+        if (booking.getItem().getOwner().getId() == userId || booking.getBooker().getId() == userId) {
+            Item item = booking.getItem();
+            Request request = item.getRequest();
+            String eTag = EntityTags.of("booking", bookingId, booking.getVersion(), item.getVersion(),
+                    item.getOwner().getVersion(), booking.getBooker().getVersion(),
+                    request == null ? null : request.getId(), request == null ? null : request.getVersion(),
+                    request == null || request.getRequestor() == null ? null : request.getRequestor().getVersion());
+            if (notModified.test(eTag)) {
+                return null;
+            }
+            return BookingResponseMapper.toBookingResponseDto(booking);
         } else {
             log.info("Only owner of item or booker can review booking");
             throw new NoSuchElementException("Only owner of item or booker can review booking");
@@ -119,13 +311,13 @@ public class BookingService {
     }
 
     public List<BookingResponseDto> findAllBookingByUserId(long userId, String state, Integer from, Integer size) {
+        //Если параметры страницы не указаны, то возвращаем первую страницу размера по умолчанию
+        from = from == null ? PageableUtility.MINIMUM_INDEX_OF_START_POSITION : from;
+        size = size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size;
         //Проверка на существование пользователя
-        PageRequest currentPageRequest = null;
         if (!userRepository.existsById(userId)) {
             log.info("User with id: {} is not exist.", userId);
             throw new NoSuchElementException("User with id: " + userId + " is not exist.");
-        } else if (from == null || size == null) {
-            currentPageRequest = PageRequest.of(0, (int) bookingRepository.count(), Sort.by("start").descending());
         } else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
             //Можно сформировать список бронирований только начиная с 0, отрицательные значения не допустимы
             log.info("Start position couldn't be negative, it's: {}", from);
@@ -137,50 +329,30 @@ public class BookingService {
         }
 
 
-        if (currentPageRequest == null) {
-            int currentPage = (from / size);
-            currentPageRequest = PageRequest.of(currentPage, size, Sort.by("start").descending());
-        }
+        int currentPage = (from / size);
+        Pageable currentPageRequest = PageRequest.of(currentPage, size, Sort.by("start").descending().and(Sort.by("id").descending()));
 
         BookingState stateParam = BookingState.from(state)
                 .orElseThrow(() -> new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS"));
         //Возвращаем бронирования запрошенного статуса
         switch (stateParam) {
             case WAITING: {
-                return bookingRepository.getAllByBookerIdAndStatusOrderByStartDesc(userId, StatusOfBooking.WAITING, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getAllByBookerIdAndStatusOrderByStartDesc(userId, StatusOfBooking.WAITING, currentPageRequest);
             }
             case REJECTED: {
-                return bookingRepository.getAllByBookerIdAndStatusOrderByStartDesc(userId, StatusOfBooking.REJECTED, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getAllByBookerIdAndStatusOrderByStartDesc(userId, StatusOfBooking.REJECTED, currentPageRequest);
             }
             case ALL: {
-                return bookingRepository.getAllByBookerIdOrderByStartDesc(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getAllByBookerIdOrderByStartDesc(userId, currentPageRequest);
             }
             case CURRENT: {
-                return bookingRepository.getCurrentBookings(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getCurrentBookings(userId, currentPageRequest);
             }
             case FUTURE: {
-                return bookingRepository.getFutureBookings(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getFutureBookings(userId, currentPageRequest);
             }
             case PAST: {
-                return bookingRepository.getPastBookings(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getPastBookings(userId, currentPageRequest);
             }
             default: {
                 log.info("Unknown state: UNSUPPORTED_STATUS");
@@ -190,15 +362,14 @@ public class BookingService {
     }
 
     public List<BookingResponseDto> findAllBookingForAllItems(long userId, String state, Integer from, Integer size) {
+        //Если параметры страницы не указаны, то возвращаем первую страницу размера по умолчанию
+        from = from == null ? PageableUtility.MINIMUM_INDEX_OF_START_POSITION : from;
+        size = size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size;
         //Проверка на существование пользователя
-        PageRequest currentPageRequest = null;
         if (!userRepository.existsById(userId)) {
             log.info("User with id: {} is not exist.", userId);
             throw new NoSuchElementException("User with id: " + userId + " is not exist.");
-        } else if (from == null || size == null) {
-            currentPageRequest = PageRequest.of(0, (int) bookingRepository.count(), Sort.by("start").descending());
-        }
-        else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
+        } else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
             //Можно сформировать список бронирований только начиная с 0, отрицательные значения не допустимы
             log.info("Start position couldn't be negative, it's: {}", from);
             throw new BadRequestException("Start position couldn't be negative, it's: " + from);
@@ -208,56 +379,231 @@ public class BookingService {
             throw new BadRequestException("Page should include at least one booking, now it's: {}" + size);
         }
 
-        if (currentPageRequest == null) {
-            int currentPage = (from / size);
-            currentPageRequest = PageRequest.of(currentPage, size, Sort.by("start").descending());
-        }
+        int currentPage = (from / size);
+        Pageable currentPageRequest = PageRequest.of(currentPage, size, Sort.by("start").descending().and(Sort.by("id").descending()));
 
         BookingState stateParam = BookingState.from(state)
                 .orElseThrow(() -> new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS"));
         //Возвращаем бронирования запрошенного статуса
         switch (stateParam) {
             case WAITING: {
-                return bookingRepository.getAllByItemOwnerIdAndState(userId, StatusOfBooking.WAITING, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getAllByItemOwnerIdAndState(userId, StatusOfBooking.WAITING, currentPageRequest);
             }
             case REJECTED: {
-                return bookingRepository.getAllByItemOwnerIdAndState(userId, StatusOfBooking.REJECTED, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getAllByItemOwnerIdAndState(userId, StatusOfBooking.REJECTED, currentPageRequest);
             }
             case ALL: {
-                return bookingRepository.getAllByItemOwnerId(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getAllByItemOwnerId(userId, currentPageRequest);
             }
             case CURRENT: {
-                return bookingRepository.getCurrentBookingsByItems(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getCurrentBookingsByItems(userId, currentPageRequest);
             }
             case FUTURE: {
-                return bookingRepository.getFutureBookingsByItems(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getFutureBookingsByItems(userId, currentPageRequest);
             }
             case PAST: {
-                return bookingRepository.getPastBookingsByItems(userId, currentPageRequest)
-                        .stream()
-                        .map(BookingResponseMapper::toBookingResponseDto)
-                        .collect(Collectors.toList());
+                return bookingRepository.getPastBookingsByItems(userId, currentPageRequest);
+            }
+            default: {
+                log.info("Unknown state: UNSUPPORTED_STATUS");
+                throw new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS");
             }
+        }
+    }
+
+    //Метод возвращает бронирования пользователя постранично, начиная после бронирования с id равным курсору
+    public List<BookingResponseDto> findAllBookingByUserIdAfterCursor(long userId, String state, long cursor, Integer size) {
+        //Первая страница по курсору совпадает с первой страницей обычного постраничного вывода
+        if (cursor == PageableUtility.FIRST_PAGE_CURSOR) {
+            return findAllBookingByUserId(userId, state, PageableUtility.MINIMUM_INDEX_OF_START_POSITION,
+                    size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size);
+        }
+        Pageable currentPageRequest = checkCursorAndGetPage(userId, cursor, size);
+        BookingState stateParam = BookingState.from(state)
+                .orElseThrow(() -> new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS"));
+
+        LocalDateTime cursorStart = getCursorStart(cursor);
+        List<BookingResponseDto> bookings;
+        //Возвращаем бронирования запрошенного статуса
+        switch (stateParam) {
+            case WAITING:
+                bookings = bookingRepository.getAllByBookerIdAndStatusAfterCursor(userId, StatusOfBooking.WAITING, cursorStart, cursor, currentPageRequest);
+                break;
+            case REJECTED:
+                bookings = bookingRepository.getAllByBookerIdAndStatusAfterCursor(userId, StatusOfBooking.REJECTED, cursorStart, cursor, currentPageRequest);
+                break;
+            case ALL:
+                bookings = bookingRepository.getAllByBookerIdAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.getCurrentBookingsAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            case FUTURE:
+                bookings = bookingRepository.getFutureBookingsAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            case PAST:
+                bookings = bookingRepository.getPastBookingsAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
             default: {
                 log.info("Unknown state: UNSUPPORTED_STATUS");
                 throw new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS");
             }
         }
+        return bookings;
+    }
+
+    //Метод возвращает бронирования вещей владельца постранично, начиная после бронирования с id равным курсору
+    public List<BookingResponseDto> findAllBookingForAllItemsAfterCursor(long userId, String state, long cursor, Integer size) {
+        //Первая страница по курсору совпадает с первой страницей обычного постраничного вывода
+        if (cursor == PageableUtility.FIRST_PAGE_CURSOR) {
+            return findAllBookingForAllItems(userId, state, PageableUtility.MINIMUM_INDEX_OF_START_POSITION,
+                    size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size);
+        }
+        Pageable currentPageRequest = checkCursorAndGetPage(userId, cursor, size);
+        BookingState stateParam = BookingState.from(state)
+                .orElseThrow(() -> new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS"));
+
+        LocalDateTime cursorStart = getCursorStart(cursor);
+        List<BookingResponseDto> bookings;
+        //Возвращаем бронирования запрошенного статуса
+        switch (stateParam) {
+            case WAITING:
+                bookings = bookingRepository.getAllByItemOwnerIdAndStateAfterCursor(userId, StatusOfBooking.WAITING, cursorStart, cursor, currentPageRequest);
+                break;
+            case REJECTED:
+                bookings = bookingRepository.getAllByItemOwnerIdAndStateAfterCursor(userId, StatusOfBooking.REJECTED, cursorStart, cursor, currentPageRequest);
+                break;
+            case ALL:
+                bookings = bookingRepository.getAllByItemOwnerIdAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            case CURRENT:
+                bookings = bookingRepository.getCurrentBookingsByItemsAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            case FUTURE:
+                bookings = bookingRepository.getFutureBookingsByItemsAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            case PAST:
+                bookings = bookingRepository.getPastBookingsByItemsAfterCursor(userId, cursorStart, cursor, currentPageRequest);
+                break;
+            default: {
+                log.info("Unknown state: UNSUPPORTED_STATUS");
+                throw new UnsupportedStatusException("Unknown state: UNSUPPORTED_STATUS");
+            }
+        }
+        return bookings;
+    }
+
+    //Служебный метод проверки нового бронирования: вещь должна существовать и быть доступной,
+    //период бронирования должен быть в будущем и не пересекаться с подтвержденными бронированиями вещи
+    private void checkNewBooking(long userId, BookingDto bookingDto, Item item, boolean available) {
+        //Если вещи не существует или она не доступна, то выбрасываем исключение
+        if (item == null) {
+            log.info("Item with id: {} is not exist.", bookingDto.getItemId());
+            throw new NoSuchElementException("Item with id: " + bookingDto.getItemId() + " is not exist.");
+        } else if (!available) {
+            log.info("Item: {} is not available.", bookingDto.getItemId());
+            throw new BadRequestException("Item: " + bookingDto.getItemId() + " is not available.");
+        }
+
+        if (bookingDto.getStart() == null) {
+            //Дата начала бронирования должна быть определена
+            log.info("Start should be defined.");
+            throw new BadRequestException("Start should be defined.");
+        } else if (bookingDto.getEnd() == null) {
+            //Дата окончания бронирования должна быть определена
+            log.info("End date should be defined.");
+            throw new BadRequestException("End date should be defined.");
+        } else if (bookingDto.getStart().isAfter(bookingDto.getEnd())) {
+            //Если дата начала бронирования после даты окончания, то выбрасываем исключение
+            log.info("Start: {} is after end: {} .", bookingDto.getStart(), bookingDto.getEnd());
+            throw new BadRequestException("Start: " + bookingDto.getStart() + " is after end: " + bookingDto.getEnd() + " .");
+        } else if (bookingDto.getStart().isEqual(bookingDto.getEnd())) {
+            //Если начало бронирования и окончание бронирования совпадают, то выбрасываем исключение
+            log.info("Start: {} should be different from end: {}.", bookingDto.getStart(), bookingDto.getEnd());
+            throw new BadRequestException("Start: " + bookingDto.getStart() + " should be different from end: " + bookingDto.getEnd() + " .");
+        } else if (bookingDto.getStart().isBefore(LocalDateTime.now())) {
+            //Дата начала бронирования должна быть в будущем
+            log.info("Start date should be in the future.");
+            throw new BadRequestException("Start date should be in the future.");
+        }
+
+        //Владелец вещи не может сам ее взять в аренду
+        if (item.getOwner().getId() == userId) {
+            log.info("Owner couldn't create booking.");
+            throw new NoSuchElementException("Owner couldn't create booking.");
+        }
+        //Вещь не должна быть занята подтвержденным бронированием на запрошенный период
+        checkItemIsFree(bookingDto.getItemId(), bookingDto.getStart(), bookingDto.getEnd());
+    }
+
+    //Служебный метод проверки решения по бронированию из пакета
+    private void checkDecision(long userId, BookingDecisionDto decision, Booking booking) {
+        if (booking == null) {
+            log.info("Booking with id: {} is not exist.", decision.getBookingId());
+            throw new NoSuchElementException("Booking with id: " + decision.getBookingId() + " is not exist.");
+        } else if (booking.getItem().getOwner().getId() != userId) {
+            log.info("Booking with id: {} has other owner.", decision.getBookingId());
+            throw new NoSuchElementException("Booking with id: " + decision.getBookingId() + " has other owner.");
+        } else if (decision.getApproved() == null) {
+            log.info("Decision for booking with id: {} should be defined.", decision.getBookingId());
+            throw new BadRequestException("Decision for booking with id: " + decision.getBookingId() + " should be defined.");
+        } else if (!booking.getStatus().equals(StatusOfBooking.WAITING)) {
+            //Повторное решение по бронированию в том же пакете также отклоняется: статус уже изменен предыдущим решением
+            log.info("Only booking in status Wait can be approved");
+            throw new BadRequestException("Only booking in status Wait can be approved");
+        }
+    }
+
+    //Служебный метод проверяет, что бронирование не пересекается с бронированиями вещи, подтверждаемыми в том же пакете
+    private void checkNoOverlapInBatch(Booking booking, List<Booking> approvedInBatch) {
+        for (Booking approved : approvedInBatch) {
+            if (overlaps(approved, booking)) {
+                log.info("Item: {} is already booked from: {} to: {}.", booking.getItem().getId(), approved.getStart(), approved.getEnd());
+                throw new BadRequestException("Item: " + booking.getItem().getId() + " is already booked from: " + approved.getStart()
+                        + " to: " + approved.getEnd() + ".");
+            }
+        }
+    }
+
+    //Служебный метод проверяет, пересекаются ли периоды двух бронирований
+    private static boolean overlaps(Booking first, Booking second) {
+        return first.getStart().isBefore(second.getEnd()) && second.getStart().isBefore(first.getEnd());
+    }
+
+    //Служебный метод проверяет, что период [start, end) не пересекается с подтвержденными бронированиями вещи
+    private void checkItemIsFree(long itemId, LocalDateTime start, LocalDateTime end) {
+        BookedInterval overlap = bookingIntervalIndex.findOverlap(itemId, start, end);
+        if (overlap != null) {
+            log.info("Item: {} is already booked from: {} to: {}.", itemId, overlap.getStart(), overlap.getEnd());
+            throw new BadRequestException("Item: " + itemId + " is already booked from: " + overlap.getStart()
+                    + " to: " + overlap.getEnd() + ".");
+        }
+    }
+
+    //Служебный метод проверки параметров постраничного вывода по курсору
+    private Pageable checkCursorAndGetPage(long userId, long cursor, Integer size) {
+        if (!userRepository.existsById(userId)) {
+            log.info("User with id: {} is not exist.", userId);
+            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
+        } else if (cursor < PageableUtility.FIRST_PAGE_CURSOR) {
+            //Курсор является id бронирования и не может быть отрицательным
+            log.info("Cursor couldn't be negative, it's: {}", cursor);
+            throw new BadRequestException("Cursor couldn't be negative, it's: " + cursor);
+        } else if (size != null && size < PageableUtility.MINIMUM_SIZE_OF_PAGE) {
+            //Страница с бронированиями может минимально содержать один запрос, нулевые или отрицательные значения не допустимы
+            log.info("Page should include at least one booking, now it's: {}", size);
+            throw new BadRequestException("Page should include at least one booking, now it's: " + size);
+        }
+        //Сортировка уже задана в запросах, поэтому ограничиваем только размер страницы
+        return PageRequest.of(0, size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size);
+    }
+
+    //Служебный метод возвращает дату начала бронирования, на котором остановился предыдущий вывод
+    private LocalDateTime getCursorStart(long cursor) {
+        return bookingRepository.getStartById(cursor).orElseThrow(() -> {
+            log.info("Booking with id: {} is not exist.", cursor);
+            return new NoSuchElementException("Booking with id: " + cursor + " is not exist.");
+        });
     }
 
     //Служебный метод для проверки корректности пользователя и бронирования
@@ -0,0 +1,54 @@
+package ru.practicum.shareit.cache;
+
+import com.github.benmanes.caffeine.cache.CaffeineSpec;
+import org.springframework.boot.autoconfigure.cache.CacheProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.caffeine.CaffeineCacheManager;
+import org.springframework.cache.transaction.TransactionAwareCacheManagerProxy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.StringUtils;
+import ru.practicum.shareit.item.dto.ItemMapper;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.dto.UserMapper;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.util.Map;
+import java.util.function.UnaryOperator;
+
+//Кеши пользователей и вещей в памяти, имена и параметры кешей задаются свойствами spring.cache.* в application.properties.
+//Запись и удаление значений выполняются только после фиксации транзакции, поэтому данные откаченной транзакции
+//не попадают в кеш, а изменение в базе данных не может оказаться в кеше раньше, чем станет видно другим запросам.
+@Configuration
+@EnableCaching
+@EnableConfigurationProperties(CacheProperties.class)
+public class CacheConfiguration {
+
+    @Bean
+    public CacheManager cacheManager(CacheProperties cacheProperties) {
+        //Кеши сущностей хранят и возвращают копии, чтобы потоки не работали с одним и тем же изменяемым объектом
+        Map<String, UnaryOperator<Object>> copiers = Map.of(
+                UserRepository.USERS_CACHE, user -> UserMapper.copyOf((User) user),
+                ItemRepository.ITEMS_CACHE, item -> ItemMapper.copyOf((Item) item));
+        CaffeineCacheManager cacheManager = new CaffeineCacheManager() {
+            @Override
+            protected Cache adaptCaffeineCache(String name, com.github.benmanes.caffeine.cache.Cache<Object, Object> cache) {
+                UnaryOperator<Object> copier = copiers.get(name);
+                if (copier == null) {
+                    return super.adaptCaffeineCache(name, cache);
+                }
+                return new CopyingCaffeineCache(name, cache, isAllowNullValues(), copier);
+            }
+        };
+        if (StringUtils.hasText(cacheProperties.getCaffeine().getSpec())) {
+            cacheManager.setCaffeineSpec(CaffeineSpec.parse(cacheProperties.getCaffeine().getSpec()));
+        }
+        cacheManager.setCacheNames(cacheProperties.getCacheNames());
+        return new TransactionAwareCacheManagerProxy(cacheManager);
+    }
+}
@@ -0,0 +1,29 @@
+package ru.practicum.shareit.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import org.springframework.cache.caffeine.CaffeineCache;
+
+import java.util.function.UnaryOperator;
+
+//Кеш Caffeine, который хранит копию записываемого значения и при каждом чтении возвращает новую копию.
+//Сущности JPA изменяемы, поэтому без копирования изменение вещи или пользователя в одном запросе было бы видно
+//параллельным запросам, читающим тот же объект из кеша, до сохранения и даже без сохранения изменений
+public class CopyingCaffeineCache extends CaffeineCache {
+    private final UnaryOperator<Object> copier;
+
+    public CopyingCaffeineCache(String name, Cache<Object, Object> cache, boolean allowNullValues, UnaryOperator<Object> copier) {
+        super(name, cache, allowNullValues);
+        this.copier = copier;
+    }
+
+    @Override
+    protected Object toStoreValue(Object userValue) {
+        return super.toStoreValue(userValue == null ? null : copier.apply(userValue));
+    }
+
+    @Override
+    protected Object fromStoreValue(Object storeValue) {
+        Object value = super.fromStoreValue(storeValue);
+        return value == null ? null : copier.apply(value);
+    }
+}
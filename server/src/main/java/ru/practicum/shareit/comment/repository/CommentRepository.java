@@ -1,9 +1,26 @@
 package ru.practicum.shareit.comment.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.comment.model.Comment;
 
 import java.util.List;
 public interface CommentRepository extends JpaRepository<Comment, Long> {
+    @Query("select c from Comment c " +
+           "where c.item.id = ?1 ")
     List<Comment> getAllByItemId(long itemId);
+
+    //Метод возвращает комментарии к вещи вместе с авторами одним запросом
+    @Query("select c from Comment c " +
+           "join fetch c.author " +
+           "where c.item.id = ?1 ")
+    List<Comment> getAllWithAuthorByItemId(long itemId);
+
+    //Метод возвращает id отзывов к вещи и версии их авторов для ETag без загрузки самих отзывов.
+    //Отзывы не изменяются, поэтому ответ меняется только при добавлении отзыва или изменении имени автора
+    @Query("select c.id, a.version from Comment c " +
+           "join c.author a " +
+           "where c.item.id = ?1 " +
+           "order by c.id ")
+    List<Object[]> getAuthorVersionsByItemId(long itemId);
 }
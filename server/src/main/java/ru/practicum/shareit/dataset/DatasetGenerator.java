@@ -0,0 +1,236 @@
+package ru.practicum.shareit.dataset;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+//Генератор большого набора данных для нагрузочного тестирования.
+//Строки вставляются пакетами через JDBC по мере генерации, поэтому объем памяти не зависит от числа бронирований.
+//Данные загружаются только в пустые таблицы. Id пользователей и вещей выдает столбец IDENTITY, который мог уйти вперед
+//после удаления строк, поэтому после вставки они читаются из базы и используются для ссылок между таблицами.
+//Id бронирований, отзывов и запросов указываются явно, после загрузки их последовательности сдвигаются за последний id.
+@Slf4j
+@RequiredArgsConstructor
+@Component
+public class DatasetGenerator {
+    //Слова, из которых составляются наименования и описания вещей
+    public static final List<String> WORDS = List.of("Дрель", "Отвертка", "Пила", "Молоток", "Лестница",
+            "Палатка", "Велосипед", "Самокат", "Шуруповерт", "Перфоратор");
+    private static final String INSERT_USER = "insert into users (name, email) values (?, ?)";
+    private static final String INSERT_REQUEST = "insert into requests (id, description, requestor_id, created) values (?, ?, ?, ?)";
+    private static final String INSERT_ITEM = "insert into items (name, description, available, owner_id, request_id) values (?, ?, ?, ?, ?)";
+    private static final String INSERT_BOOKING = "insert into bookings (id, start_date, end_date, item_id, booker_id, status) values (?, ?, ?, ?, ?, ?)";
+    private static final String INSERT_COMMENT = "insert into comments (id, text, item_id, author_id, created) values (?, ?, ?, ?, ?)";
+    //Размер блока id, который Hibernate получает из последовательности (allocationSize в сущностях)
+    private static final long ID_ALLOCATION_SIZE = 50;
+    private static final long SECONDS_IN_DAY = 24 * 60 * 60;
+    private static final List<String> TABLES = List.of("users", "requests", "items", "bookings", "comments");
+
+    private final JdbcTemplate jdbcTemplate;
+    private final DatasetProperties properties;
+
+    //Метод генерирует и загружает пользователей, запросы, вещи, бронирования и отзывы
+    public void generate() {
+        for (String table : TABLES) {
+            Long existingRows = jdbcTemplate.queryForObject("select count(*) from " + table, Long.class);
+            if (existingRows != null && existingRows > 0) {
+                log.info("Dataset could be loaded only into empty tables, {}: {}", table, existingRows);
+                throw new IllegalStateException("Dataset could be loaded only into empty tables, " + table + ": " + existingRows);
+            }
+        }
+        if (properties.getUsers() < 2) {
+            //Арендатор вещи должен отличаться от владельца
+            log.info("Dataset should include at least two users, now it's: {}", properties.getUsers());
+            throw new IllegalArgumentException("Dataset should include at least two users, now it's: " + properties.getUsers());
+        }
+
+        SplittableRandom random = new SplittableRandom(properties.getSeed());
+        LocalDateTime base = (properties.getBaseDate() == null ? LocalDate.now() : properties.getBaseDate()).atStartOfDay();
+        long startTime = System.currentTimeMillis();
+
+        long[] userIds = generateUsers();
+        generateRequests(random, base, userIds);
+        int[] itemOwners = generateItems(random, userIds);
+        long bookings = generateBookingsAndComments(random, base, userIds, itemOwners, readIds("items", itemOwners.length - 1));
+        moveSequenceAfterRows("requests");
+        moveSequenceAfterRows("bookings");
+        moveSequenceAfterRows("comments");
+
+        log.info("Dataset is loaded in {} ms: {} users, {} requests, {} items, {} bookings", System.currentTimeMillis() - startTime,
+                properties.getUsers(), properties.getRequests(), itemOwners.length - 1, bookings);
+    }
+
+    //Метод возвращает id созданных пользователей: id пользователя с номером n лежит в элементе n - 1
+    private long[] generateUsers() {
+        Batch batch = new Batch(INSERT_USER);
+        for (int user = 1; user <= properties.getUsers(); user++) {
+            batch.add("User " + user, "user" + user + "@shareit.ru");
+        }
+        batch.flush();
+        return readIds("users", properties.getUsers());
+    }
+
+    private void generateRequests(SplittableRandom random, LocalDateTime base, long[] userIds) {
+        Batch batch = new Batch(INSERT_REQUEST);
+        for (int request = 1; request <= properties.getRequests(); request++) {
+            LocalDateTime created = base.minusSeconds(random.nextLong(properties.getHistoryDays() * SECONDS_IN_DAY));
+            batch.add(request, "Нужна вещь: " + word(random), userIds[randomUser(random) - 1], Timestamp.valueOf(created));
+        }
+        batch.flush();
+    }
+
+    //Метод возвращает номера владельцев вещей по номеру вещи, владельцы выбираются по распределению Ципфа
+    private int[] generateItems(SplittableRandom random, long[] userIds) {
+        double[] ownerDistribution = zipfDistribution(properties.getUsers(), properties.getOwnerSkew());
+        int[] itemOwners = new int[properties.getItems() + 1];
+        Batch batch = new Batch(INSERT_ITEM);
+        for (int item = 1; item <= properties.getItems(); item++) {
+            int owner = sample(ownerDistribution, random.nextDouble());
+            Long request = properties.getRequests() > 0 && random.nextDouble() < properties.getItemsByRequestShare()
+                    ? (long) random.nextInt(properties.getRequests()) + 1 : null;
+            //Каждая десятая вещь недоступна для бронирования
+            batch.add(word(random) + " " + item, "Описание: " + word(random) + " " + word(random).toLowerCase(),
+                    random.nextInt(10) != 0, userIds[owner - 1], request);
+            itemOwners[item] = owner;
+        }
+        batch.flush();
+        return itemOwners;
+    }
+
+    //Бронирования каждой вещи идут друг за другом без пересечений, поэтому подтвержденные бронирования
+    //не нарушают ограничения базы данных, а часть бронирований приходится на текущий момент
+    private long generateBookingsAndComments(SplittableRandom random, LocalDateTime base, long[] userIds, int[] itemOwners,
+                                             long[] itemIds) {
+        Batch bookings = new Batch(INSERT_BOOKING);
+        Batch comments = new Batch(INSERT_COMMENT);
+        int items = itemOwners.length - 1;
+        LocalDateTime from = base.minusDays(properties.getHistoryDays());
+        long total = 0;
+        long commentId = 0;
+        for (int item = 1; item <= items; item++) {
+            long count = properties.getBookings() / items + (item <= properties.getBookings() % items ? 1 : 0);
+            if (count == 0) {
+                continue;
+            }
+            long slot = Math.max(2 * properties.getHistoryDays() * SECONDS_IN_DAY / count, 2);
+            for (long i = 0; i < count; i++) {
+                LocalDateTime start = from.plusSeconds(i * slot);
+                LocalDateTime end = start.plusSeconds(slot / 2 + random.nextLong(slot - slot / 2));
+                long booker = userIds[randomUserExcept(random, itemOwners[item]) - 1];
+                StatusOfBooking status = status(random, start, end, base);
+                bookings.add(total + i + 1, Timestamp.valueOf(start), Timestamp.valueOf(end), itemIds[item - 1], booker, status.name());
+                if (status == StatusOfBooking.APPROVED && end.isBefore(base) && random.nextDouble() < properties.getCommentProbability()) {
+                    comments.add(++commentId, "Отзыв о вещи " + item, itemIds[item - 1], booker,
+                            Timestamp.valueOf(end.plusHours(random.nextInt(72))));
+                }
+            }
+            total += count;
+        }
+        bookings.flush();
+        comments.flush();
+        return total;
+    }
+
+    //Служебный метод читает id строк, созданных в пустой таблице, в порядке вставки
+    private long[] readIds(String table, int expected) {
+        long[] ids = new long[expected];
+        int[] position = {0};
+        jdbcTemplate.query("select id from " + table + " order by id", rs -> {
+            if (position[0] < expected) {
+                ids[position[0]] = rs.getLong(1);
+            }
+            position[0]++;
+        });
+        if (position[0] != expected) {
+            log.info("Unexpected number of rows in {}: {}, expected: {}", table, position[0], expected);
+            throw new IllegalStateException("Unexpected number of rows in " + table + ": " + position[0] + ", expected: " + expected);
+        }
+        return ids;
+    }
+
+    //Служебный метод сдвигает последовательность таблицы так, чтобы первый блок id Hibernate начинался после загруженных строк
+    private void moveSequenceAfterRows(String table) {
+        Long maxId = jdbcTemplate.queryForObject("select coalesce(max(id), 0) from " + table, Long.class);
+        jdbcTemplate.execute("alter sequence " + table + "_seq restart with " + (maxId + ID_ALLOCATION_SIZE));
+    }
+
+    //Служебный метод выбирает статус бронирования в зависимости от того, прошлое оно, текущее или будущее
+    private static StatusOfBooking status(SplittableRandom random, LocalDateTime start, LocalDateTime end, LocalDateTime base) {
+        int chance = random.nextInt(10);
+        if (end.isBefore(base)) {
+            return chance < 8 ? StatusOfBooking.APPROVED : (chance == 8 ? StatusOfBooking.REJECTED : StatusOfBooking.CANCELED);
+        } else if (start.isAfter(base)) {
+            return chance < 4 ? StatusOfBooking.WAITING : (chance < 8 ? StatusOfBooking.APPROVED
+                    : (chance == 8 ? StatusOfBooking.REJECTED : StatusOfBooking.CANCELED));
+        }
+        return chance < 9 ? StatusOfBooking.APPROVED : StatusOfBooking.CANCELED;
+    }
+
+    //Служебный метод возвращает накопленные вероятности распределения Ципфа для рангов от 1 до size
+    private static double[] zipfDistribution(int size, double skew) {
+        double[] cumulative = new double[size];
+        double sum = 0;
+        for (int rank = 1; rank <= size; rank++) {
+            sum += 1 / Math.pow(rank, skew);
+            cumulative[rank - 1] = sum;
+        }
+        for (int i = 0; i < size; i++) {
+            cumulative[i] /= sum;
+        }
+        return cumulative;
+    }
+
+    //Служебный метод возвращает ранг (id пользователя), соответствующий случайному значению от 0 до 1
+    private static int sample(double[] cumulative, double value) {
+        int position = Arrays.binarySearch(cumulative, value);
+        position = position >= 0 ? position : -position - 1;
+        return Math.min(position, cumulative.length - 1) + 1;
+    }
+
+    private int randomUser(SplittableRandom random) {
+        return random.nextInt(properties.getUsers()) + 1;
+    }
+
+    private int randomUserExcept(SplittableRandom random, int user) {
+        int other = random.nextInt(properties.getUsers() - 1) + 1;
+        return other >= user ? other + 1 : other;
+    }
+
+    private static String word(SplittableRandom random) {
+        return WORDS.get(random.nextInt(WORDS.size()));
+    }
+
+    //Пакет строк для вставки одним обращением к базе данных
+    private class Batch {
+        private final String sql;
+        private final List<Object[]> rows = new ArrayList<>();
+
+        private Batch(String sql) {
+            this.sql = sql;
+        }
+
+        private void add(Object... row) {
+            rows.add(row);
+            if (rows.size() >= properties.getBatchSize()) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (!rows.isEmpty()) {
+                jdbcTemplate.batchUpdate(sql, rows);
+                rows.clear();
+            }
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.shareit.dataset;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.ApplicationArguments;
+import org.springframework.boot.ApplicationRunner;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
+
+//Загрузка набора данных при старте сервера с профилем dataset, например:
+//java -jar shareit-server-exec.jar --spring.profiles.active=dataset --shareit.dataset.bookings=10000000
+@Profile("dataset")
+@RequiredArgsConstructor
+@Component
+public class DatasetLoader implements ApplicationRunner {
+    private final DatasetGenerator datasetGenerator;
+    private final ItemSearchIndex itemSearchIndex;
+
+    @Override
+    public void run(ApplicationArguments args) {
+        datasetGenerator.generate();
+        //Индекс поиска построен при старте до загрузки данных
+        itemSearchIndex.rebuild();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.shareit.dataset;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+
+//Параметры генератора тестового набора данных (профиль dataset)
+@Data
+@Component
+@ConfigurationProperties(prefix = "shareit.dataset")
+public class DatasetProperties {
+    //Начальное значение генератора случайных чисел, одинаковые параметры дают одинаковые данные
+    private long seed = 42;
+    private int users = 1_000;
+    private int items = 10_000;
+    //Показатель распределения Ципфа для количества вещей у владельцев, 0 - равномерное распределение
+    private double ownerSkew = 1.0;
+    private int requests = 1_000;
+    //Доля вещей, созданных по запросам
+    private double itemsByRequestShare = 0.1;
+    private long bookings = 100_000;
+    //Вероятность отзыва на завершенное подтвержденное бронирование
+    private double commentProbability = 0.2;
+    //Бронирования распределяются на historyDays дней в прошлое и в будущее от baseDate
+    private int historyDays = 365;
+    //Дата, относительно которой бронирования делятся на прошлые, текущие и будущие, по умолчанию текущая дата
+    @DateTimeFormat(iso = DateTimeFormat.ISO.DATE)
+    private LocalDate baseDate;
+    private int batchSize = 1_000;
+}
@@ -0,0 +1,27 @@
+package ru.practicum.shareit.etag;
+
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.util.List;
+
+//Запасной ETag для ответов на GET-запросы списков вещей, пользователей, запросов и бронирований. Тело ответа
+//записывается в буфер один раз, ETag - хеш MD5 записанных байт, и те же байты отправляются клиенту.
+//Если ETag совпадает с заголовком If-None-Match, возвращается ответ 304 без тела, но обработчик и запросы к базе
+//все равно выполняются. Ответы по одной сущности получают ETag по версиям строк до построения ответа (EntityTags)
+//и не буферизуются, как и потоковые ответы: их обработчики вызывают ShallowEtagHeaderFilter.disableContentCaching
+@Component
+public class EntityTagFilter extends ShallowEtagHeaderFilter {
+    private static final List<String> PATHS = List.of("/items", "/users", "/requests", "/bookings");
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!HttpMethod.GET.matches(request.getMethod())) {
+            return true;
+        }
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return PATHS.stream().noneMatch(prefix -> path.equals(prefix) || path.startsWith(prefix + "/"));
+    }
+}
@@ -0,0 +1,30 @@
+package ru.practicum.shareit.etag;
+
+import org.springframework.util.DigestUtils;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+//ETag ответа по одной сущности строится из версий строк, из которых собирается ответ, до построения и записи тела.
+//Если ETag совпадает с заголовком If-None-Match, ответ 304 отправляется без загрузки остальных данных и без сериализации
+public class EntityTags {
+
+    //Сильный ETag вида "item-1-<md5>", где хеш считается по версиям и id строк ответа
+    public static String of(String resource, long id, Object... versions) {
+        String hash = DigestUtils.md5DigestAsHex(Arrays.deepToString(versions).getBytes(StandardCharsets.UTF_8));
+        return "\"" + resource + "-" + id + "-" + hash + "\"";
+    }
+
+    //Метод проверяет If-None-Match и записывает ETag в ответ. Тело такого ответа не буферизуется фильтром EntityTagFilter,
+    //так как ETag уже известен
+    public static boolean isNotModified(NativeWebRequest request, String eTag) {
+        HttpServletRequest servletRequest = request.getNativeRequest(HttpServletRequest.class);
+        if (servletRequest != null) {
+            ShallowEtagHeaderFilter.disableContentCaching(servletRequest);
+        }
+        return request.checkNotModified(eTag);
+    }
+}
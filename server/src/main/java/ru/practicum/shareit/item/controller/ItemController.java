@@ -2,11 +2,14 @@ package ru.practicum.shareit.item.controller;
 
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.dto.CommentResponseDto;
+import ru.practicum.shareit.etag.EntityTags;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemResponseDto;
 import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.metrics.QueryBudget;
 
 import java.util.List;
 
@@ -21,6 +24,7 @@ public class ItemController {
     }
 
     //Добавление вещи
+    @QueryBudget(5)
     @PostMapping
     private ItemResponseDto addItem(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                     @RequestBody ItemDto itemDto) {
@@ -37,29 +41,45 @@ public class ItemController {
         return itemService.updateItem(userId, itemId, item);
     }
 
-    //Запрос вещи по ее id
+    //Запрос вещи по ее id. Владельцу добавляются последнее и следующее бронирование, а если бронирование
+    //у вещи одно, то еще и подсчет бронирований. Для ETag отдельно читаются версии авторов отзывов,
+    //при совпадении ETag с If-None-Match отзывы не загружаются и возвращается ответ 304 без тела
+    @QueryBudget(6)
     @GetMapping("/{id}")
     private ItemResponseDto getById(@PathVariable("id") long itemId,
-                                    @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId) {
+                                    @RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                    NativeWebRequest request) {
         log.info("Get request to receive item with id {} ", itemId);
-        return itemService.getById(userId, itemId);
+        return itemService.getById(userId, itemId, eTag -> EntityTags.isNotModified(request, eTag));
     }
 
     //Запрос по id владельца перечня всех вещей
+    @QueryBudget(3)
     @GetMapping()
     private List<ItemResponseDto> getItemsOfOwner(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                                   @RequestParam(value = "from", required = false) Integer from,
-                                                  @RequestParam(value = "size", required = false) Integer size) {
+                                                  @RequestParam(value = "size", required = false) Integer size,
+                                                  @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of Items by owner with id {} ", userId);
+        //Если указан курсор, то страница определяется по id последней полученной вещи
+        if (cursor != null) {
+            return itemService.getItemsOfOwnerAfterCursor(userId, cursor, size);
+        }
         return itemService.getItemsOfOwner(userId, from, size);
     }
 
     //Запрос доступных вещей по тексту в имени или описании
+    @QueryBudget(3)
     @GetMapping("/search")
     private List<ItemResponseDto> searchItem(@RequestParam(value = "text", required = true) String searchText,
                                              @RequestParam(value = "from", required = false) Integer from,
-                                             @RequestParam(value = "size", required = false) Integer size) {
+                                             @RequestParam(value = "size", required = false) Integer size,
+                                             @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of Items by string {} un name or description", searchText);
+        //Если указан курсор, то страница определяется по id последней полученной вещи
+        if (cursor != null) {
+            return itemService.getItemsWithTextAfterCursor(searchText, cursor, size);
+        }
         return itemService.getItemsWithText(searchText, from, size);
     }
 
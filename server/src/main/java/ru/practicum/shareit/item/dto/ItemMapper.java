@@ -3,6 +3,8 @@ package ru.practicum.shareit.item.dto;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.request.dto.RequestMapper;
+import ru.practicum.shareit.user.dto.UserMapper;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ItemMapper {
@@ -32,4 +34,20 @@ public class ItemMapper {
         return item;
     }
 
+    //Метод создает независимую копию вещи, ее владельца и запроса вместе с версиями строк
+    public static Item copyOf(Item item) {
+        if (item == null) {
+            return null;
+        }
+        Item copy = new Item();
+        copy.setId(item.getId());
+        copy.setVersion(item.getVersion());
+        copy.setName(item.getName());
+        copy.setDescription(item.getDescription());
+        copy.setAvailable(item.isAvailable());
+        copy.setOwner(UserMapper.copyOf(item.getOwner()));
+        copy.setRequest(RequestMapper.copyOf(item.getRequest()));
+        return copy;
+    }
+
 }
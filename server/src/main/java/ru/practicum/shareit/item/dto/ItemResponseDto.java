@@ -5,8 +5,10 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import ru.practicum.shareit.booking.model.LastNextBooking;
 import ru.practicum.shareit.comment.dto.CommentResponseDto;
+import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 
+import java.util.ArrayList;
 import java.util.List;
 
 @Data
@@ -23,4 +25,12 @@ public class ItemResponseDto {
     private LastNextBooking nextBooking;
     private List<CommentResponseDto> comments;
 
+    //Конструктор для запросов JPQL: вещь собирается из значений столбцов без загрузки сущностей вещи и владельца
+    public ItemResponseDto(long id, String name, String description, boolean available,
+                           Long ownerId, String ownerName, String ownerEmail, Long requestId) {
+        this(id, name, description, available, UserMapper.toUser(ownerId, ownerName, ownerEmail),
+                requestId != null ? requestId : ItemResponseMapper.NO_ANY_REQUEST_FOR_ITEM,
+                null, null, new ArrayList<>());
+    }
+
 }
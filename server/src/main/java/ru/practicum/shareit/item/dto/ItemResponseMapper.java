@@ -9,7 +9,7 @@ import java.util.ArrayList;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class ItemResponseMapper {
-    private final static long NO_ANY_REQUEST_FOR_ITEM = -1;
+    final static long NO_ANY_REQUEST_FOR_ITEM = -1;
     //Метод из объекта модели создает DTO-объект
     public static ItemResponseDto toItemDto(Item item) {
         return new ItemResponseDto(
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.item.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.practicum.shareit.request.model.Request;
 import ru.practicum.shareit.user.model.User;
 
@@ -11,6 +12,9 @@ public class Item {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
+    //Версия строки увеличивается при каждом изменении, из нее строится ETag ответа
+    @Version
+    private long version;
     @Column
     private String name;
     @Column
@@ -71,4 +75,13 @@ public class Item {
     public void setRequest(Request request) {
         this.request = request;
     }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
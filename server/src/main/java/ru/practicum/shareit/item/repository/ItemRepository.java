@@ -1,16 +1,44 @@
 package ru.practicum.shareit.item.repository;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.CachePut;
+import org.springframework.cache.annotation.Cacheable;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
+import ru.practicum.shareit.item.dto.ItemResponseDto;
 import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.search.IndexedItem;
 
 import java.util.List;
+import java.util.Optional;
 
+//Вещь вместе с владельцем и запросом кешируется в памяти (spring.cache.* в application.properties),
+//так как создание бронирования, отзыва и изменение вещи несколько раз проверяют одну и ту же вещь.
+//Сохраненная через репозиторий вещь сразу записывается в кеш, удаленная - удаляется из него.
+//Кеш хранит копию вещи и при каждом чтении возвращает новую копию (CopyingCaffeineCache).
 public interface ItemRepository extends JpaRepository<Item, Long> {
+    String ITEMS_CACHE = "items";
+    String ITEM_EXISTS_CACHE = "itemExists";
+
+    //Поля вещи владельца для ответа, значения столбцов передаются прямо в конструктор DTO без создания сущностей
+    String SELECT_OWNER_ITEM_RESPONSE = " select new ru.practicum.shareit.item.dto.ItemResponseDto(" +
+                                        "i.id, i.name, i.description, i.available, o.id, o.name, o.email, i.request.id) " +
+                                        "from Item i " +
+                                        "join i.owner o ";
 
     //Поиск вещи по ID владельца
-    List<Item> findItemByOwnerIdOrderByIdAsc(long ownerId, Pageable pageable);
+    @Query(SELECT_OWNER_ITEM_RESPONSE +
+            "where o.id = ?1 " +
+            "order by i.id ")
+    List<ItemResponseDto> findItemByOwnerIdOrderByIdAsc(long ownerId, Pageable pageable);
+
+    //Поиск вещей владельца с id больше курсора
+    @Query(SELECT_OWNER_ITEM_RESPONSE +
+            "where o.id = ?1 " +
+            "  and i.id > ?2 " +
+            "order by i.id ")
+    List<ItemResponseDto> findItemByOwnerIdAndIdGreaterThanOrderByIdAsc(long ownerId, long cursor, Pageable pageable);
 
     //Поиск любой (доступной или не доступной) вещи по части наименования или описания
     @Query(" select i from Item i " +
@@ -18,18 +46,100 @@ public interface ItemRepository extends JpaRepository<Item, Long> {
            "   or upper(i.description) like upper(concat('%', ?1, '%'))")
     List<Item> search(String text);
 
-    //Поиск доступной вещи по части наименования или описания
+    //Поиск доступной вещи по части наименования или описания, владельцы и запросы загружаются вместе с вещами
+    //Выражения upper(name) и upper(description) покрыты триграммными индексами в PostgreSQL (db/migration/postgresql/V3)
     @Query(" select i from Item i " +
-            "where upper(i.name) like upper(concat('%', ?1, '%')) " +
-            "   or upper(i.description) like upper(concat('%', ?1, '%')) " +
-            "  and i.available = true ")
+            "left join fetch i.owner " +
+            "left join fetch i.request r " +
+            "left join fetch r.requestor " +
+            "where (upper(i.name) like upper(concat('%', ?1, '%')) " +
+            "   or upper(i.description) like upper(concat('%', ?1, '%'))) " +
+            "  and i.available = true " +
+            "order by i.id ")
     List<Item> searchAvailableItemsByText(String text, Pageable pageable);
 
-    //Метод возвращает список вещей по идентификатору запросов
+    //Поиск доступной вещи по части наименования или описания с id больше курсора
+    @Query(" select i from Item i " +
+            "left join fetch i.owner " +
+            "left join fetch i.request r " +
+            "left join fetch r.requestor " +
+            "where (upper(i.name) like upper(concat('%', ?1, '%')) " +
+            "   or upper(i.description) like upper(concat('%', ?1, '%'))) " +
+            "  and i.available = true " +
+            "  and i.id > ?2 " +
+            "order by i.id ")
+    List<Item> searchAvailableItemsByTextAfterCursor(String text, long cursor, Pageable pageable);
+
+    //Метод возвращает поля вещей с id больше указанного для построения поискового индекса в памяти
+    @Query(" select new ru.practicum.shareit.item.search.IndexedItem(i.id, i.name, i.description, i.available) " +
+            "from Item i " +
+            "where i.id > ?1 " +
+            "order by i.id ")
+    List<IndexedItem> findIndexedItemsAfter(long id, Pageable pageable);
+
+    //Метод возвращает вещи по списку id вместе с владельцами и запросами одним запросом
     @Query(" select i from Item i " +
-            "where i.request.id in ?1 ")
+            "left join fetch i.owner " +
+            "left join fetch i.request r " +
+            "left join fetch r.requestor " +
+            "where i.id in ?1 " +
+            "order by i.id ")
+    List<Item> getAllWithDetailsByIdIn(List<Long> ids);
+
+    //Метод возвращает список вещей по идентификатору запросов вместе с владельцами
+    @Query(" select i from Item i " +
+            "join fetch i.owner " +
+            "join fetch i.request r " +
+            "where r.id in ?1 ")
     List<Item> getAllByRequestsId(List<Long> requestsId);
 
-    //Метод возвращает список вещей по идентификатору запроса
+    //Метод возвращает список вещей по идентификатору запроса вместе с владельцами
+    @Query(" select i from Item i " +
+            "join fetch i.owner " +
+            "join fetch i.request r " +
+            "where r.id = ?1 ")
     List<Item> findAllByRequestId(long requestsId);
+
+    //Доступность вещи читается из базы данных в обход кеша: кеш другого экземпляра сервера может быть устаревшим
+    @Query(" select i.available from Item i " +
+            "where i.id = ?1 ")
+    Optional<Boolean> getAvailableById(long itemId);
+
+    //Кешируется только существование вещи, иначе созданная позже вещь считалась бы несуществующей
+    @Override
+    @Cacheable(cacheNames = ITEM_EXISTS_CACHE, key = "#p0", unless = "!#result")
+    boolean existsById(Long id);
+
+    @Override
+    @Cacheable(cacheNames = ITEMS_CACHE, key = "#p0", unless = "#result == null")
+    Optional<Item> findById(Long id);
+
+    @Override
+    @CachePut(cacheNames = ITEMS_CACHE, key = "#result.id")
+    <S extends Item> S save(S item);
+
+    //Пакетное сохранение вызывает save в обход кеша, поэтому кеш вещей очищается целиком
+    @Override
+    @CacheEvict(cacheNames = ITEMS_CACHE, allEntries = true)
+    <S extends Item> List<S> saveAll(Iterable<S> items);
+
+    @Override
+    @CacheEvict(cacheNames = {ITEMS_CACHE, ITEM_EXISTS_CACHE}, key = "#p0")
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = {ITEMS_CACHE, ITEM_EXISTS_CACHE}, key = "#p0.id")
+    void delete(Item item);
+
+    @Override
+    @CacheEvict(cacheNames = {ITEMS_CACHE, ITEM_EXISTS_CACHE}, allEntries = true)
+    void deleteAll();
+
+    @Override
+    @CacheEvict(cacheNames = {ITEMS_CACHE, ITEM_EXISTS_CACHE}, allEntries = true)
+    void deleteAll(Iterable<? extends Item> items);
+
+    @Override
+    @CacheEvict(cacheNames = {ITEMS_CACHE, ITEM_EXISTS_CACHE}, allEntries = true)
+    void deleteAllInBatch();
 }
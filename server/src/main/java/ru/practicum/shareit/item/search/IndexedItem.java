@@ -0,0 +1,14 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+//Поля вещи, необходимые для поиска по тексту в памяти
+@Data
+@AllArgsConstructor
+public class IndexedItem {
+    private long id;
+    private String name;
+    private String description;
+    private boolean available;
+}
@@ -0,0 +1,186 @@
+package ru.practicum.shareit.item.search;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//Инвертированный индекс доступных вещей по триграммам наименования и описания.
+//Поиск дает тот же результат, что и ItemRepository.searchAvailableItemsByText: вхождение текста без учета регистра,
+//только доступные вещи, сортировка по id по возрастанию.
+@Slf4j
+@Component
+public class ItemSearchIndex {
+    private static final int GRAM_LENGTH = 3;
+    private static final int REBUILD_BATCH_SIZE = 10_000;
+    private final ItemRepository itemRepository;
+    private final boolean enabled;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    //Списки id вещей для каждой триграммы
+    private final Map<String, LongPostingList> postings = new HashMap<>();
+    //Наименование и описание вещей в верхнем регистре для проверки кандидатов
+    private final Map<Long, IndexedItem> documents = new HashMap<>();
+    //Все проиндексированные вещи, используются для поиска по тексту короче триграммы
+    private final LongPostingList allIds = new LongPostingList();
+
+    public ItemSearchIndex(ItemRepository itemRepository,
+                           @Value("${shareit.search.in-memory.enabled:false}") boolean enabled) {
+        this.itemRepository = itemRepository;
+        this.enabled = enabled;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    //Метод заполняет индекс всеми вещами из базы при старте приложения
+    @PostConstruct
+    public void rebuild() {
+        if (!enabled) {
+            return;
+        }
+        long lastId = 0;
+        long count = 0;
+        List<IndexedItem> batch = itemRepository.findIndexedItemsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+        while (!batch.isEmpty()) {
+            lock.writeLock().lock();
+            try {
+                batch.forEach(this::put);
+            } finally {
+                lock.writeLock().unlock();
+            }
+            count += batch.size();
+            lastId = batch.get(batch.size() - 1).getId();
+            batch = itemRepository.findIndexedItemsAfter(lastId, PageRequest.of(0, REBUILD_BATCH_SIZE));
+        }
+        log.info("Item search index is built, {} items are indexed", count);
+    }
+
+    //Метод добавляет или обновляет вещь в индексе
+    public void index(Item item) {
+        if (!enabled) {
+            return;
+        }
+        lock.writeLock().lock();
+        try {
+            put(new IndexedItem(item.getId(), item.getName(), item.getDescription(), item.isAvailable()));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //Метод возвращает id найденных вещей, пропуская первые offset результатов
+    public List<Long> search(String text, long offset, int limit) {
+        return search(text, 0, offset, limit);
+    }
+
+    //Метод возвращает id найденных вещей, следующих за вещью с id равным курсору
+    public List<Long> searchAfter(String text, long cursor, int limit) {
+        return search(text, cursor, 0, limit);
+    }
+
+    private List<Long> search(String text, long afterId, long offset, int limit) {
+        String query = text.toUpperCase(Locale.ROOT);
+        List<Long> result = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            List<LongPostingList> lists = new ArrayList<>();
+            for (String gram : grams(query)) {
+                LongPostingList list = postings.get(gram);
+                if (list == null) {
+                    return result;
+                }
+                lists.add(list);
+            }
+            //Перебираем самый короткий список, а по остальным проверяем наличие id
+            lists.sort(Comparator.comparingInt(LongPostingList::size));
+            LongPostingList candidates = lists.isEmpty() ? allIds : lists.get(0);
+            long toSkip = offset;
+            for (int i = candidates.firstIndexAfter(afterId); i < candidates.size() && result.size() < limit; i++) {
+                long id = candidates.get(i);
+                if (!containsInAll(lists, id) || !matches(documents.get(id), query)) {
+                    continue;
+                }
+                if (toSkip > 0) {
+                    toSkip--;
+                } else {
+                    result.add(id);
+                }
+            }
+            return result;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //Служебный метод заменяет данные вещи в индексе, недоступные вещи в индексе не хранятся
+    private void put(IndexedItem item) {
+        IndexedItem previous = documents.remove(item.getId());
+        if (previous != null) {
+            for (String gram : grams(previous)) {
+                LongPostingList list = postings.get(gram);
+                list.remove(previous.getId());
+                if (list.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+            allIds.remove(previous.getId());
+        }
+        if (!item.isAvailable()) {
+            return;
+        }
+
+        IndexedItem document = new IndexedItem(item.getId(), toUpperCase(item.getName()), toUpperCase(item.getDescription()), true);
+        documents.put(document.getId(), document);
+        for (String gram : grams(document)) {
+            postings.computeIfAbsent(gram, g -> new LongPostingList()).add(document.getId());
+        }
+        allIds.add(document.getId());
+    }
+
+    private static boolean containsInAll(List<LongPostingList> lists, long id) {
+        for (int i = 1; i < lists.size(); i++) {
+            if (!lists.get(i).contains(id)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    //Служебный метод проверяет вхождение текста, так как совпадение всех триграмм еще не означает вхождения
+    private static boolean matches(IndexedItem document, String query) {
+        return document.getName().contains(query) || document.getDescription().contains(query);
+    }
+
+    private static Set<String> grams(IndexedItem document) {
+        Set<String> grams = grams(document.getName());
+        grams.addAll(grams(document.getDescription()));
+        return grams;
+    }
+
+    private static Set<String> grams(String text) {
+        Set<String> grams = new HashSet<>();
+        for (int i = 0; i + GRAM_LENGTH <= text.length(); i++) {
+            grams.add(text.substring(i, i + GRAM_LENGTH));
+        }
+        return grams;
+    }
+
+    private static String toUpperCase(String text) {
+        return text == null ? "" : text.toUpperCase(Locale.ROOT);
+    }
+}
@@ -1,19 +1,23 @@
 package ru.practicum.shareit.item.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.booking.availability.ItemLockStripes;
 import ru.practicum.shareit.booking.model.Booking;
 import ru.practicum.shareit.booking.model.LastNextBooking;
-import ru.practicum.shareit.booking.model.StatusOfBooking;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.comment.dto.CommentDto;
 import ru.practicum.shareit.comment.dto.CommentResponseDto;
 import ru.practicum.shareit.comment.dto.CommentResponseMapper;
 import ru.practicum.shareit.comment.model.Comment;
 import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.etag.EntityTags;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemMapper;
@@ -21,6 +25,7 @@ import ru.practicum.shareit.item.dto.ItemResponseDto;
 import ru.practicum.shareit.item.dto.ItemResponseMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.search.ItemSearchIndex;
 import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
@@ -28,23 +33,31 @@ import ru.practicum.shareit.utility.PageableUtility;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.NoSuchElementException;
+import java.util.concurrent.locks.Lock;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
+@Timed(value = "shareit.service", histogram = true)
 public class ItemService {
     private final ItemRepository itemRepository;
     private final UserRepository userRepository;
     private final BookingRepository bookingRepository;
     private final CommentRepository commentRepository;
     private final RequestRepository requestRepository;
-    private static final int ONLY_ONE_BOOKING = 1;
+    private final ItemSearchIndex itemSearchIndex;
+    private final ItemLockStripes itemLockStripes;
     private final static long NO_REQUEST_ID_FOR_ITEM_IN_ITEM_DTO = 0;
 
-    //Метод добавления новой вещи в базу
+    //Метод добавления новой вещи в базу. Вещь индексируется под блокировкой вещи до фиксации транзакции, пока вещь
+    //не видна другим запросам, поэтому ее изменение не может попасть в индекс раньше добавления
+    @Transactional
     public ItemResponseDto addItem(long userId, ItemDto item) {
         //Если указан несуществующий пользователь или при создании новой вещи не указан статус ее доступности выбрасываем исключение
         if (item.getAvailable() == null) {
@@ -70,11 +83,30 @@ public class ItemService {
         }
         //Вызываем метод создания новой вещи в базе данных
         newItem = itemRepository.save(newItem);
+        Lock itemLock = itemLockStripes.forItem(newItem.getId());
+        itemLock.lock();
+        try {
+            itemSearchIndex.index(newItem);
+        } finally {
+            itemLock.unlock();
+        }
         return ItemResponseMapper.toItemDto(newItem);
     }
 
-    //Метод обновления вещи
+    //Метод обновления вещи. Изменения одной вещи выполняются последовательно под блокировкой вещи,
+    //иначе индекс поиска может сохранить данные предыдущего изменения, проиндексированного позже последнего
     public ItemResponseDto updateItem(long userId, long itemId, ItemDto item) {
+        Lock itemLock = itemLockStripes.forItem(itemId);
+        itemLock.lock();
+        try {
+            return changeItem(userId, itemId, item);
+        } finally {
+            itemLock.unlock();
+        }
+    }
+
+    //Служебный метод изменяет вещь и обновляет ее в индексе поиска, вызывается под блокировкой вещи
+    private ItemResponseDto changeItem(long userId, long itemId, ItemDto item) {
         //Item updatedItem;
         Item itemToUpdate = itemRepository.findById(itemId).orElseThrow();
 
@@ -96,67 +128,68 @@ public class ItemService {
             item.setAvailable(itemToUpdate.isAvailable() ? "true" : "false");
         }
         //Заполняем поле запроса на создание вещи, если вещь создавалась по запросу
+        //Версия переносится из загруженной вещи, иначе Hibernate отклонит сохранение как устаревшее
+        long version = itemToUpdate.getVersion();
         itemToUpdate = ItemMapper.toItem(item);
+        itemToUpdate.setVersion(version);
         if (item.getRequestId() != 0 && requestRepository.existsById(item.getRequestId())) {
             itemToUpdate.setRequest(requestRepository.findById(item.getRequestId()).orElseThrow());
         }
 
         itemToUpdate = itemRepository.save(itemToUpdate);
+        itemSearchIndex.index(itemToUpdate);
         return ItemResponseMapper.toItemDto(itemToUpdate);
     }
 
     //Получение вещи по id
+    @Transactional(readOnly = true)
     public ItemResponseDto getById(long userId, long itemId) {
-        //Проверяем, что указанный предмет существуют
-        if (!itemRepository.existsById(itemId)) {
+        return getById(userId, itemId, eTag -> false);
+    }
+
+    //Получение вещи по id с проверкой ETag. ETag строится до загрузки отзывов по версиям вещи и владельца,
+    //последнему и следующему бронированию и версиям авторов отзывов. Если notModified подтверждает совпадение ETag,
+    //то возвращается null
+    @Transactional(readOnly = true)
+    public ItemResponseDto getById(long userId, long itemId, Predicate<String> notModified) {
+        //Определяем текущую вещь, если указанный предмет не существует, то выбрасываем исключение
+        Item item = itemRepository.findById(itemId).orElseThrow(() -> {
             log.info("Item with id: {} is not exist.", itemId);
-            throw new NoSuchElementException("Item with id: " + itemId + " is not exist.");
-        }
-        //Определяем текущую вещь
-        ItemResponseDto currentItem = ItemResponseMapper.toItemDto(itemRepository.findById(itemId).orElseThrow());
-
-        //Добавляем даты следующего и предыдущего бронирования, но только в том случае, если бронирования есть
-        if (bookingRepository.getNextBooking(itemId, userId) != null && bookingRepository.getNextBooking(itemId, userId).size() > 0) {
-            currentItem.setNextBooking(new LastNextBooking(bookingRepository.getNextBooking(itemId, userId).get(0).getId(),
-                    bookingRepository.getNextBooking(itemId, userId).get(0).getBooker().getId()));
-        } else {
-            currentItem.setNextBooking(null);
+            return new NoSuchElementException("Item with id: " + itemId + " is not exist.");
+        });
+        ItemResponseDto currentItem = ItemResponseMapper.toItemDto(item);
+
+        //Даты следующего и предыдущего бронирования видны только владельцу вещи
+        if (item.getOwner() != null && item.getOwner().getId() == userId) {
+            setLastAndNextBooking(currentItem, itemId);
         }
 
-        if (bookingRepository.getLastBooking(itemId, userId) != null && bookingRepository.getLastBooking(itemId, userId).size() > 0) {
-            currentItem.setLastBooking(new LastNextBooking(bookingRepository.getLastBooking(itemId, userId).get(0).getId(),
-                    bookingRepository.getLastBooking(itemId, userId).get(0).getBooker().getId()));
-        } else if (bookingRepository.countBookingsByItemIdAndItemOwnerId(itemId, userId) == ONLY_ONE_BOOKING) {
-            //Если было только одно бронирование, то считаем его последним
-            if (bookingRepository.getBookingByItemIdAndItemOwnerId(itemId, userId).getStatus() == StatusOfBooking.APPROVED) {
-                currentItem.setLastBooking(new LastNextBooking(bookingRepository.getBookingByItemIdAndItemOwnerId(itemId, userId).getId(),
-                        bookingRepository.getBookingByItemIdAndItemOwnerId(itemId, userId).getBooker().getId()));
-            }
-        } else {
-            currentItem.setLastBooking(null);
+        String eTag = EntityTags.of("item", itemId, item.getVersion(),
+                item.getOwner() == null ? null : item.getOwner().getVersion(),
+                currentItem.getLastBooking(), currentItem.getNextBooking(),
+                commentRepository.getAuthorVersionsByItemId(itemId).toArray());
+        if (notModified.test(eTag)) {
+            return null;
         }
 
         //Добавляем комментарии
-        if (commentRepository.getAllByItemId(itemId).size() > 0) {
-            currentItem.setComments(commentRepository.getAllByItemId(itemId).stream()
-                    .map(CommentResponseMapper::toItemDto)
-                    .collect(Collectors.toList()));
-        }
+        currentItem.setComments(commentRepository.getAllWithAuthorByItemId(itemId).stream()
+                .map(CommentResponseMapper::toItemDto)
+                .collect(Collectors.toList()));
 
         return currentItem;
     }
 
     //Получение списка вещей по id владельца
+    @Transactional(readOnly = true)
     public List<ItemResponseDto> getItemsOfOwner(long userId, Integer from, Integer size) {
-        //Список для обогащенных ручным методом вещей
-        PageRequest currentPageRequest = null;
-        List<ItemResponseDto> finalItems = new ArrayList<>();
+        //Если параметры страницы не указаны, то возвращаем первую страницу размера по умолчанию
+        from = from == null ? PageableUtility.MINIMUM_INDEX_OF_START_POSITION : from;
+        size = size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size;
         //Проверяем, что указанный пользователь существуют
         if (!userRepository.existsById(userId)) {
             log.info("User with id: {} is not exist.", userId);
             throw new NoSuchElementException("User with id: " + userId + " is not exist.");
-        } else if (from == null || size == null) {
-            currentPageRequest = PageRequest.of(0, (int) itemRepository.count(), Sort.by("id").descending());
         } else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
             //Можно сформировать список бронирований только начиная с 0, отрицательные значения не допустимы
             log.info("Start position couldn't be negative, it's: {}", from);
@@ -167,56 +200,70 @@ public class ItemService {
             throw new BadRequestException("Page should include at least one booking, now it's: " + size);
         }
 
-        //Получаем список всех вещей владельца
-        if (currentPageRequest == null) {
-            int currentPage = (from / size);
-            currentPageRequest = PageRequest.of(currentPage, size, Sort.by("id").descending());
+        //Получаем страницу вещей владельца
+        int currentPage = (from / size);
+        Pageable currentPageRequest = PageRequest.of(currentPage, size, Sort.by("id").descending());
+        List<ItemResponseDto> resultItems = itemRepository.findItemByOwnerIdOrderByIdAsc(userId, currentPageRequest);
+
+        return addLastAndNextBookings(resultItems);
+    }
+
+    //Получение списка вещей владельца постранично, начиная после вещи с id равным курсору
+    @Transactional(readOnly = true)
+    public List<ItemResponseDto> getItemsOfOwnerAfterCursor(long userId, long cursor, Integer size) {
+        if (!userRepository.existsById(userId)) {
+            log.info("User with id: {} is not exist.", userId);
+            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
         }
-        List<ItemResponseDto> resultItems = itemRepository.findItemByOwnerIdOrderByIdAsc(userId, currentPageRequest).stream()
-                .map(ItemResponseMapper::toItemDto)
-                .collect(Collectors.toList());
+        Pageable currentPageRequest = checkCursorAndGetPage(cursor, size);
 
-        //Получаем информацию обо всех бронированиях вещей владельца
-        List<Booking> bookingsOfOwner = bookingRepository.getBookingsByItemsId(resultItems.stream()
-                                                                                          .map(ItemResponseDto::getId)
-                                                                                          .collect(Collectors.toList()));
+        List<ItemResponseDto> resultItems = itemRepository.findItemByOwnerIdAndIdGreaterThanOrderByIdAsc(userId, cursor, currentPageRequest);
 
-        for (ItemResponseDto currentItem : resultItems) {
-            //Определяем следующее бронирование для вещи
-            long currentItemId = currentItem.getId();
-            if (bookingsOfOwner.stream().filter(i -> i.getItem().getId() == currentItemId && i.getStatus() == StatusOfBooking.APPROVED).count() > 0) {
-                Booking nextBooking = bookingsOfOwner.stream()
-                        .filter(i -> i.getItem().getId() == currentItemId)
-                        .filter(i -> i.getStatus() == StatusOfBooking.APPROVED)
-                        .filter(i -> i.getStart().isAfter(LocalDateTime.now())).min((o1, o2) -> o1.getStart().isBefore(o2.getStart()) ? -1 : o1.getStart().isEqual(o2.getStart()) ? 0 : 1).orElseThrow();
-                currentItem.setNextBooking(new LastNextBooking(nextBooking.getId(), nextBooking.getBooker().getId()));
-            } else {
-                currentItem.setNextBooking(null);
-            }
+        return addLastAndNextBookings(resultItems);
+    }
+
+    //Служебный метод добавляет к вещам владельца следующее и последнее бронирование
+    private List<ItemResponseDto> addLastAndNextBookings(List<ItemResponseDto> resultItems) {
+        if (resultItems.isEmpty()) {
+            return resultItems;
+        }
+
+        //Получаем информацию обо всех подтвержденных бронированиях вещей владельца
+        List<Booking> bookingsOfOwner = bookingRepository.getApprovedWithBookerByItemsId(resultItems.stream()
+                                                                                                   .map(ItemResponseDto::getId)
+                                                                                                   .collect(Collectors.toList()));
 
-            //Определяем последнее бронирование вещи
-            if (bookingsOfOwner.stream().filter(i -> i.getItem().getId() == currentItemId && i.getStatus() == StatusOfBooking.APPROVED).count() > 0) {
-                Booking lastBooking = bookingsOfOwner.stream()
-                        .filter(i -> i.getItem().getId() == currentItemId)
-                        .filter(i -> i.getStatus() == StatusOfBooking.APPROVED)
-                        .filter(i -> i.getStart().isBefore(LocalDateTime.now())).max((o1, o2) -> o1.getStart().isBefore(o2.getStart()) ? 1 : o1.getStart().isEqual(o2.getStart()) ? 0 : -1).orElseThrow();
-                currentItem.setLastBooking(new LastNextBooking(lastBooking.getId(), lastBooking.getBooker().getId()));
-            } else {
-                currentItem.setLastBooking(null);
+        //За один проход по бронированиям определяем следующее и последнее бронирование каждой вещи
+        LocalDateTime now = LocalDateTime.now();
+        Map<Long, Booking> nextBookings = new HashMap<>();
+        Map<Long, Booking> lastBookings = new HashMap<>();
+        for (Booking booking : bookingsOfOwner) {
+            if (booking.getStart().isAfter(now)) {
+                nextBookings.merge(booking.getItem().getId(), booking,
+                        (current, other) -> other.getStart().isBefore(current.getStart()) ? other : current);
+            } else if (booking.getStart().isBefore(now)) {
+                lastBookings.merge(booking.getItem().getId(), booking,
+                        (current, other) -> other.getStart().isAfter(current.getStart()) ? other : current);
             }
-            finalItems.add(currentItem);
         }
 
-        return finalItems;
+        for (ItemResponseDto currentItem : resultItems) {
+            Booking nextBooking = nextBookings.get(currentItem.getId());
+            Booking lastBooking = lastBookings.get(currentItem.getId());
+            currentItem.setNextBooking(nextBooking == null ? null : new LastNextBooking(nextBooking.getId(), nextBooking.getBooker().getId()));
+            currentItem.setLastBooking(lastBooking == null ? null : new LastNextBooking(lastBooking.getId(), lastBooking.getBooker().getId()));
+        }
+
+        return resultItems;
     }
 
     //Получение списка доступных вещей по тексту входящему в название или описание
     public List<ItemResponseDto> getItemsWithText(String searchText, Integer from, Integer size) {
-        PageRequest currentPageRequest = null;
+        //Если параметры страницы не указаны, то возвращаем первую страницу размера по умолчанию
+        from = from == null ? PageableUtility.MINIMUM_INDEX_OF_START_POSITION : from;
+        size = size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size;
         if (searchText.isBlank()) {
             return new ArrayList<>();
-        } else if (from == null || size == null) {
-            currentPageRequest = PageRequest.of(0, (int) itemRepository.count(), Sort.by("id").ascending());
         } else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
             //Можно сформировать список бронирований только начиная с 0, отрицательные значения не допустимы
             log.info("Start position couldn't be negative, it's: {}", from);
@@ -227,9 +274,12 @@ public class ItemService {
             throw new BadRequestException("Page should include at least one booking, now it's: " + size);
         }
 
-        if (currentPageRequest == null) {
-            int currentPage = (from / size);
-            currentPageRequest = PageRequest.of(currentPage, size, Sort.by("id").ascending());
+        int currentPage = (from / size);
+        Pageable currentPageRequest = PageRequest.of(currentPage, size, Sort.by("id").ascending());
+
+        //Если включен поиск в памяти, то база данных используется только для получения найденных вещей по id
+        if (itemSearchIndex.isEnabled()) {
+            return getItemsByIds(itemSearchIndex.search(searchText, currentPageRequest.getOffset(), currentPageRequest.getPageSize()));
         }
 
         return itemRepository.searchAvailableItemsByText(searchText, currentPageRequest).stream()
@@ -237,6 +287,32 @@ public class ItemService {
                 .collect(Collectors.toList());
     }
 
+    //Получение списка доступных вещей по тексту постранично, начиная после вещи с id равным курсору
+    public List<ItemResponseDto> getItemsWithTextAfterCursor(String searchText, long cursor, Integer size) {
+        Pageable currentPageRequest = checkCursorAndGetPage(cursor, size);
+        if (searchText.isBlank()) {
+            return new ArrayList<>();
+        }
+
+        if (itemSearchIndex.isEnabled()) {
+            return getItemsByIds(itemSearchIndex.searchAfter(searchText, cursor, currentPageRequest.getPageSize()));
+        }
+
+        return itemRepository.searchAvailableItemsByTextAfterCursor(searchText, cursor, currentPageRequest).stream()
+                .map(ItemResponseMapper::toItemDto)
+                .collect(Collectors.toList());
+    }
+
+    //Служебный метод возвращает вещи по списку id в порядке возрастания id
+    private List<ItemResponseDto> getItemsByIds(List<Long> ids) {
+        if (ids.isEmpty()) {
+            return new ArrayList<>();
+        }
+        return itemRepository.getAllWithDetailsByIdIn(ids).stream()
+                .map(ItemResponseMapper::toItemDto)
+                .collect(Collectors.toList());
+    }
+
     //Метод добавления комментария
     public CommentResponseDto addComment(long userId, long itemId, CommentDto commentDto) {
         //Проверяем, что пользователь брал вещь в аренду и аренд закончена
@@ -257,6 +333,43 @@ public class ItemService {
         return CommentResponseMapper.toItemDto(currentComment);
     }
 
+    //Служебный метод определяет следующее и последнее подтвержденное бронирование вещи двумя запросами по индексу,
+    //каждый из которых читает не больше одной строки
+    private void setLastAndNextBooking(ItemResponseDto currentItem, long itemId) {
+        LocalDateTime now = LocalDateTime.now();
+        Pageable firstBooking = PageRequest.of(0, 1);
+        LastNextBooking lastBooking = bookingRepository.getLastApprovedByItemId(itemId, now, firstBooking).stream()
+                .findFirst()
+                .orElse(null);
+        LastNextBooking nextBooking = bookingRepository.getNextApprovedByItemId(itemId, now, firstBooking).stream()
+                .findFirst()
+                .orElse(null);
+        //Если было только одно бронирование, то считаем его последним, даже если оно еще не завершилось
+        if (lastBooking == null) {
+            lastBooking = bookingRepository.getApprovedByItemIdIfOnlyOne(itemId).stream()
+                    .findFirst()
+                    .orElse(null);
+        }
+
+        currentItem.setNextBooking(nextBooking);
+        currentItem.setLastBooking(lastBooking);
+    }
+
+    //Служебный метод проверки параметров постраничного вывода по курсору
+    private Pageable checkCursorAndGetPage(long cursor, Integer size) {
+        if (cursor < PageableUtility.FIRST_PAGE_CURSOR) {
+            //Курсор является id вещи и не может быть отрицательным
+            log.info("Cursor couldn't be negative, it's: {}", cursor);
+            throw new BadRequestException("Cursor couldn't be negative, it's: " + cursor);
+        } else if (size != null && size < PageableUtility.MINIMUM_SIZE_OF_PAGE) {
+            //Страница может минимально содержать одну вещь, нулевые или отрицательные значения не допустимы
+            log.info("Page should include at least one item, now it's: {}", size);
+            throw new BadRequestException("Page should include at least one item, now it's: " + size);
+        }
+        //Сортировка уже задана в запросах, поэтому ограничиваем только размер страницы
+        return PageRequest.of(0, size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size);
+    }
+
     //Служебный метод проверки вещи и пользователя
     private boolean checkUserIdAndItemId(long userId, long itemId) {
         if (!userRepository.existsById(userId)) {
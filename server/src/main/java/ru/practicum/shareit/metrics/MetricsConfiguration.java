@@ -0,0 +1,59 @@
+package ru.practicum.shareit.metrics;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.event.service.spi.EventListenerRegistry;
+import org.hibernate.event.spi.EventType;
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+
+import javax.annotation.PostConstruct;
+import javax.persistence.EntityManagerFactory;
+import javax.sql.DataSource;
+
+//Метрики сервера, доступны в Actuator по адресам /actuator/metrics и /actuator/prometheus:
+//время выполнения методов сервисов (shareit.service, классы отмечены @Timed),
+//количество SQL-запросов и загруженных сущностей на HTTP-запрос (shareit.request.*)
+@Configuration
+@RequiredArgsConstructor
+public class MetricsConfiguration {
+    private final MeterRegistry meterRegistry;
+    private final EntityManagerFactory entityManagerFactory;
+
+    @Bean
+    public TimedAspect timedAspect() {
+        return new TimedAspect(meterRegistry);
+    }
+
+    //Источник данных заменяется оберткой, которая считает SQL-запросы. Метод статический, чтобы обработчик бинов
+    //создавался до источника данных и не требовал зависимостей конфигурации
+    @Bean
+    public static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                return bean instanceof DataSource && !(bean instanceof StatementCountingDataSource)
+                        ? new StatementCountingDataSource((DataSource) bean) : bean;
+            }
+        };
+    }
+
+    //Перехватчик подключается ко всем адресам как бин MappedInterceptor
+    @Bean
+    public MappedInterceptor requestStatisticsInterceptor() {
+        return new MappedInterceptor(null, new RequestStatisticsInterceptor(meterRegistry));
+    }
+
+    //Загрузки сущностей считаются обработчиком события Hibernate, SQL-запросы - StatementCountingDataSource
+    @PostConstruct
+    void registerEntityLoadListener() {
+        entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getServiceRegistry()
+                .getService(EventListenerRegistry.class)
+                .appendListeners(EventType.POST_LOAD, event -> RequestStatistics.entityLoaded());
+    }
+}
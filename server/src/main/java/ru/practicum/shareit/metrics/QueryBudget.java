@@ -0,0 +1,18 @@
+package ru.practicum.shareit.metrics;
+
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+//Максимальное количество SQL-запросов обработки HTTP-запроса методом контроллера. Аннотация на классе контроллера
+//задает бюджет методов без собственной аннотации. Превышение записывается в журнал и в метрику
+//shareit.request.query.budget.exceeded. На тестах с QueryBudgetExtension превышение завершает тест ошибкой.
+//На тестовом методе или классе аннотация задает бюджет всего теста
+@Documented
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.METHOD, ElementType.TYPE})
+public @interface QueryBudget {
+    long value();
+}
@@ -0,0 +1,80 @@
+package ru.practicum.shareit.metrics;
+
+import org.springframework.lang.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+//Счетчики SQL-запросов и загруженных сущностей HTTP-запроса, обрабатываемого в текущем потоке.
+//Вне HTTP-запроса (загрузка набора данных, тесты сервисов) счетчики не ведутся.
+//Счетчики могут быть вложенными: при завершении значения и превышения бюджета передаются внешним счетчикам,
+//поэтому запросы MockMvc учитываются и в бюджете теста, а превышение бюджета метода контроллера завершает тест ошибкой
+public final class RequestStatistics {
+    private static final ThreadLocal<RequestStatistics> CURRENT = new ThreadLocal<>();
+
+    @Nullable
+    private final RequestStatistics outer;
+    private long statements;
+    private long entityLoads;
+    private final List<String> exceededBudgets = new ArrayList<>();
+
+    private RequestStatistics(@Nullable RequestStatistics outer) {
+        this.outer = outer;
+    }
+
+    public static RequestStatistics start() {
+        RequestStatistics statistics = new RequestStatistics(CURRENT.get());
+        CURRENT.set(statistics);
+        return statistics;
+    }
+
+    @Nullable
+    public static RequestStatistics current() {
+        return CURRENT.get();
+    }
+
+    public static void finish() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics == null) {
+            return;
+        }
+        if (statistics.outer == null) {
+            CURRENT.remove();
+            return;
+        }
+        statistics.outer.statements += statistics.statements;
+        statistics.outer.entityLoads += statistics.entityLoads;
+        statistics.outer.exceededBudgets.addAll(statistics.exceededBudgets);
+        CURRENT.set(statistics.outer);
+    }
+
+    static void statementPrepared() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.statements++;
+        }
+    }
+
+    static void entityLoaded() {
+        RequestStatistics statistics = CURRENT.get();
+        if (statistics != null) {
+            statistics.entityLoads++;
+        }
+    }
+
+    void budgetExceeded(String description) {
+        exceededBudgets.add(description);
+    }
+
+    public long getStatements() {
+        return statements;
+    }
+
+    public long getEntityLoads() {
+        return entityLoads;
+    }
+
+    public List<String> getExceededBudgets() {
+        return exceededBudgets;
+    }
+}
@@ -0,0 +1,73 @@
+package ru.practicum.shareit.metrics;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.lang.Nullable;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+
+//Публикует количество SQL-запросов и загруженных сущностей каждого HTTP-запроса в метриках
+//shareit.request.sql.statements и shareit.request.entity.loads с тегами метода и шаблона адреса,
+//а также проверяет бюджет SQL-запросов методов контроллеров, отмеченных @QueryBudget на методе или классе
+@Slf4j
+@RequiredArgsConstructor
+public class RequestStatisticsInterceptor implements HandlerInterceptor {
+    private final MeterRegistry meterRegistry;
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        RequestStatistics.start();
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        RequestStatistics statistics = RequestStatistics.current();
+        if (statistics == null) {
+            return;
+        }
+        Object uri = request.getAttribute(HandlerMapping.BEST_MATCHING_PATTERN_ATTRIBUTE);
+        Tags tags = Tags.of("method", request.getMethod(), "uri", uri != null ? uri.toString() : "UNKNOWN");
+
+        QueryBudget budget = findBudget(handler);
+        if (budget != null && statistics.getStatements() > budget.value()) {
+            log.warn("Request {} {} executed {} SQL statements, query budget is {}.", request.getMethod(),
+                    request.getRequestURI(), statistics.getStatements(), budget.value());
+            //Превышение передается внешним счетчикам, в тестах их проверяет QueryBudgetExtension
+            statistics.budgetExceeded(request.getMethod() + " " + request.getRequestURI() + ": "
+                    + statistics.getStatements() + ", бюджет: " + budget.value());
+            meterRegistry.counter("shareit.request.query.budget.exceeded", tags).increment();
+        }
+        RequestStatistics.finish();
+
+        DistributionSummary.builder("shareit.request.sql.statements")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.getStatements());
+        DistributionSummary.builder("shareit.request.entity.loads")
+                .tags(tags)
+                .publishPercentileHistogram()
+                .register(meterRegistry)
+                .record(statistics.getEntityLoads());
+    }
+
+    //Бюджет метода контроллера, если его нет - бюджет класса контроллера
+    @Nullable
+    private static QueryBudget findBudget(Object handler) {
+        if (!(handler instanceof HandlerMethod)) {
+            return null;
+        }
+        HandlerMethod handlerMethod = (HandlerMethod) handler;
+        QueryBudget budget = handlerMethod.getMethodAnnotation(QueryBudget.class);
+        return budget != null ? budget : AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), QueryBudget.class);
+    }
+}
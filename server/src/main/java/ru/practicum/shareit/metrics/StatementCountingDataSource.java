@@ -0,0 +1,72 @@
+package ru.practicum.shareit.metrics;
+
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Set;
+
+//Подсчет SQL-запросов на уровне источника данных, поэтому учитываются запросы и Hibernate, и JdbcTemplate.
+//Подготовленный запрос считается один раз при создании, в том числе если он выполняется пакетом JDBC,
+//запрос без подготовки - при каждом выполнении
+public class StatementCountingDataSource extends DelegatingDataSource {
+    private static final Set<String> PREPARE_METHODS = Set.of("prepareStatement", "prepareCall");
+    private static final Set<String> EXECUTE_METHODS = Set.of("execute", "executeQuery", "executeUpdate",
+            "executeLargeUpdate", "executeBatch", "executeLargeBatch");
+
+    public StatementCountingDataSource(DataSource targetDataSource) {
+        super(targetDataSource);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return countingConnection(super.getConnection());
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return countingConnection(super.getConnection(username, password));
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    //Соединение сравнивается по ссылке, как и соединения пула
+                    if (method.getName().equals("equals")) {
+                        return proxy == args[0];
+                    } else if (method.getName().equals("hashCode")) {
+                        return System.identityHashCode(proxy);
+                    }
+                    Object result = invoke(connection, method, args);
+                    if (PREPARE_METHODS.contains(method.getName())) {
+                        RequestStatistics.statementPrepared();
+                    } else if (method.getName().equals("createStatement")) {
+                        return countingStatement((Statement) result);
+                    }
+                    return result;
+                });
+    }
+
+    private static Statement countingStatement(Statement statement) {
+        return (Statement) Proxy.newProxyInstance(StatementCountingDataSource.class.getClassLoader(),
+                new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                    if (EXECUTE_METHODS.contains(method.getName())) {
+                        RequestStatistics.statementPrepared();
+                    }
+                    return invoke(statement, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
@@ -3,6 +3,9 @@ package ru.practicum.shareit.request.controller;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import ru.practicum.shareit.etag.EntityTags;
+import ru.practicum.shareit.metrics.QueryBudget;
 import ru.practicum.shareit.request.dto.RequestDto;
 import ru.practicum.shareit.request.dto.ResponseRequestDto;
 import ru.practicum.shareit.request.service.RequestService;
@@ -18,6 +21,7 @@ public class RequestController {
     private final RequestService requestService;
 
     //Метод создания запроса на вещь
+    @QueryBudget(4)
     @PostMapping
     private RequestDto addRequest(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                   @RequestBody RequestDto requestDto) {
@@ -25,22 +29,34 @@ public class RequestController {
         return requestService.addRequest(userId, requestDto);
     }
 
-    //Метод возвращающий список всех запросов
+    //Метод возвращающий одну из страниц со списком всех запросов
+    @QueryBudget(4)
     @GetMapping()
-    private List<ResponseRequestDto> findAllRequests(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId) {
+    private List<ResponseRequestDto> findAllRequests(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
+                                                     @RequestParam(value = "from", required = false) Integer from,
+                                                     @RequestParam(value = "size", required = false) Integer size,
+                                                     @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get list of all requests");
-        return requestService.findAllRequests(userId);
+        //Если указан курсор, то страница определяется по id последнего полученного запроса
+        if (cursor != null) {
+            return requestService.findAllRequestsAfterCursor(userId, cursor, size);
+        }
+        return requestService.findAllRequests(userId, from, size);
     }
 
-    //Метод возвращающий информацию по запросу по его id
+    //Метод возвращающий информацию по запросу по его id. Если ETag по версиям запроса и его вещей совпадает
+    //с If-None-Match, возвращается ответ 304 без тела
+    @QueryBudget(4)
     @GetMapping("{requestId}")
     private ResponseRequestDto findRequestById(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
-                                               @PathVariable(value = "requestId", required = true) long requestId) {
+                                               @PathVariable(value = "requestId", required = true) long requestId,
+                                               NativeWebRequest request) {
         log.info("Get request by id");
-        return requestService.findById(userId, requestId);
+        return requestService.findById(userId, requestId, eTag -> EntityTags.isNotModified(request, eTag));
     }
 
     //Метод возвращающий одну из страниц с информацией по запросам
+    @QueryBudget(3)
     @GetMapping("/all")
     private List<ResponseRequestDto> findRequestById(@RequestHeader(value = "X-Sharer-User-Id", required = true) long userId,
                                                      @RequestParam(value = "from", required = false) Integer from,
@@ -3,6 +3,7 @@ package ru.practicum.shareit.request.dto;
 import lombok.AccessLevel;
 import lombok.NoArgsConstructor;
 import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.user.dto.UserMapper;
 
 @NoArgsConstructor(access = AccessLevel.PRIVATE)
 public class RequestMapper {
@@ -26,4 +27,18 @@ public class RequestMapper {
         request.setCreated(requestDto.getCreated());
         return request;
     }
+
+    //Метод создает независимую копию запроса и его автора вместе с версиями строк
+    public static Request copyOf(Request request) {
+        if (request == null) {
+            return null;
+        }
+        Request copy = new Request();
+        copy.setId(request.getId());
+        copy.setVersion(request.getVersion());
+        copy.setDescription(request.getDescription());
+        copy.setRequestor(UserMapper.copyOf(request.getRequestor()));
+        copy.setCreated(request.getCreated());
+        return copy;
+    }
 }
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.request.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import ru.practicum.shareit.user.model.User;
 
 import javax.persistence.*;
@@ -9,8 +10,12 @@ import java.time.LocalDateTime;
 @Table(name = "requests")
 public class Request {
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "requests_seq")
+    @SequenceGenerator(name = "requests_seq", sequenceName = "requests_seq", allocationSize = 50)
     private long id;
+    //Версия строки увеличивается при каждом изменении, из нее строится ETag ответа
+    @Version
+    private long version;
     @Column
     private String description;
     @ManyToOne
@@ -49,4 +54,13 @@ public class Request {
     public void setCreated(LocalDateTime created) {
         this.created = created;
     }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
@@ -2,15 +2,31 @@ package ru.practicum.shareit.request.repository;
 
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.shareit.request.model.Request;
 
+import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Optional;
 
 public interface RequestRepository extends JpaRepository<Request, Long> {
 
-    //Метод возвращает список запросов отсортированных по дате создания
-    List<Request> getAllByOrderByCreatedDesc();
-
+    //Метод возвращает список запросов отсортированных по дате создания. Авторы запросов загружаются
+    //вместе с запросами, иначе каждый автор читается отдельным запросом
+    @Query(" select r from Request r " +
+            "join fetch r.requestor ")
     List<Request> getAllByOrderByCreatedDesc(Pageable pageable);
+
+    //Метод возвращает запросы, следующие за курсором (created, id), вместе с их авторами
+    @Query(" select r from Request r " +
+            "join fetch r.requestor " +
+            "where r.created < ?1 or (r.created = ?1 and r.id < ?2) " +
+            "order by r.created desc, r.id desc ")
+    List<Request> getAllAfterCursor(LocalDateTime created, long id, Pageable pageable);
+
+    //Метод возвращает дату создания запроса без загрузки самого запроса
+    @Query(" select r.created from Request r " +
+            "where r.id = ?1 ")
+    Optional<LocalDateTime> getCreatedById(long requestId);
 }
 
@@ -1,10 +1,13 @@
 package ru.practicum.shareit.request.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import ru.practicum.shareit.etag.EntityTags;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.item.dto.ShortItemDtoMapper;
 import ru.practicum.shareit.item.model.Item;
@@ -19,13 +22,16 @@ import ru.practicum.shareit.user.repository.UserRepository;
 import ru.practicum.shareit.utility.PageableUtility;
 
 import java.time.LocalDateTime;
+import java.util.Comparator;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 import java.util.stream.Collectors;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
+@Timed(value = "shareit.service", histogram = true)
 public class RequestService {
     private final RequestRepository requestRepository;
     private final UserRepository userRepository;
@@ -49,56 +55,50 @@ public class RequestService {
         return RequestMapper.toItemRequestDto(savedRequest);
     }
 
-    //Метод возвращающий все запросы
-    public List<ResponseRequestDto> findAllRequests(long userId) {
-        if (!userRepository.existsById(userId)) {
-            //Если пользователя не существует, то выбрасываем исключение
-            log.info("User with id: {} is not exist.", userId);
-            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
-        }
-
-        //Получаем из БД все существующие запросы
-        List<Request> requests = requestRepository.getAllByOrderByCreatedDesc();
-        List<ResponseRequestDto> responseRequestDto = requests.stream()
-                                                              .map(ResponseRequestDtoMapper::toResponseRequestDto)
-                                                              .collect(Collectors.toList());
-
-        //Обогащаем данные о запросах списком вещей созданных по этому запросу
-        return addDetails(requests, responseRequestDto);
-
+    //Метод возвращающий страницу всех запросов, включая запросы самого пользователя
+    public List<ResponseRequestDto> findAllRequests(long userId, Integer from, Integer size) {
+        List<Request> requests = requestRepository.getAllByOrderByCreatedDesc(checkUserAndGetPage(userId, from, size));
+        return toResponseRequestDto(requests);
     }
 
-    ///Метод возвращающий все запросы с разбивкой по страницам
-    public List<ResponseRequestDto> findAllRequestsByPages(long userId, Integer from, Integer size) {
-        if (!userRepository.existsById(userId)) {
-            //Если пользователя не существует, то выбрасываем исключение
-            log.info("User with id: {} is not exist.", userId);
-            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
-        } else if (from == null || size == null) {
-            //Если не указаны номер позиции с которой выводятся запросы и количество запросов для вывода, то вызываем метод вывода всех запросов
-            return findAllRequests(userId);
-        } else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
-            //Можно сформировать список запросов только начиная с 0, отрицательные значения не допустимы
-            log.info("Start position couldn't be negative, it's: {}", from);
-            throw new BadRequestException("Start position couldn't be negative, it's: " + from);
-        } else if (size < PageableUtility.MINIMUM_SIZE_OF_PAGE) {
-            //Страница с результатами запроса может минимально содержать один запрос, нулевые или отрицательные значения не допустимы
-            log.info("Page should include at least one request, now it's: {}", size);
-            throw new BadRequestException("Page should include at least one request, now it's: {}" + size);
+    //Метод возвращающий страницу всех запросов, начиная после запроса с id равным курсору
+    public List<ResponseRequestDto> findAllRequestsAfterCursor(long userId, long cursor, Integer size) {
+        //Первая страница по курсору совпадает с первой страницей обычного постраничного вывода
+        if (cursor == PageableUtility.FIRST_PAGE_CURSOR) {
+            return findAllRequests(userId, PageableUtility.MINIMUM_INDEX_OF_START_POSITION, size);
+        } else if (cursor < PageableUtility.FIRST_PAGE_CURSOR) {
+            //Курсор является id запроса и не может быть отрицательным
+            log.info("Cursor couldn't be negative, it's: {}", cursor);
+            throw new BadRequestException("Cursor couldn't be negative, it's: " + cursor);
         }
+        //Сортировка уже задана в запросе, поэтому ограничиваем только размер страницы
+        Pageable pageRequest = PageRequest.of(0, checkUserAndGetPage(userId, null, size).getPageSize());
+        LocalDateTime cursorCreated = requestRepository.getCreatedById(cursor).orElseThrow(() -> {
+            log.info("Request with id: {} is not exist.", cursor);
+            return new NoSuchElementException("Request with id: " + cursor + " is not exist.");
+        });
+
+        List<Request> requests = requestRepository.getAllAfterCursor(cursorCreated, cursor, pageRequest);
+        return toResponseRequestDto(requests);
+    }
 
-        //Получаем из БД все существующие запросы
-        List<Request> requests = requestRepository.getAllByOrderByCreatedDesc(PageRequest.of((from/size), size, Sort.by("created").descending()));
-        List<ResponseRequestDto> responseRequestDto = requests.stream()
-                                                              .filter(r -> r.getRequestor().getId() != userId)
-                                                              .map(ResponseRequestDtoMapper::toResponseRequestDto)
-                                                              .collect(Collectors.toList());
-
-        return addDetails(requests, responseRequestDto);
+    ///Метод возвращающий все запросы других пользователей с разбивкой по страницам
+    public List<ResponseRequestDto> findAllRequestsByPages(long userId, Integer from, Integer size) {
+        //Получаем из БД страницу запросов
+        List<Request> requests = requestRepository.getAllByOrderByCreatedDesc(checkUserAndGetPage(userId, from, size));
+        return toResponseRequestDto(requests.stream()
+                                            .filter(r -> r.getRequestor().getId() != userId)
+                                            .collect(Collectors.toList()));
     }
 
     //Метод возвращающий информацию по запросу по его id
     public ResponseRequestDto findById(long userId, long requestId) {
+        return findById(userId, requestId, eTag -> false);
+    }
+
+    //Метод возвращающий информацию по запросу с проверкой ETag. ETag строится по версиям запроса, его автора и вещей,
+    //созданных по запросу, если notModified подтверждает совпадение ETag, то возвращается null
+    public ResponseRequestDto findById(long userId, long requestId, Predicate<String> notModified) {
         if (!requestRepository.existsById(requestId)) {
             //Если пользователя не существует, то выбрасываем исключение
             log.info("Request with id: {} is not exist.", requestId);
@@ -109,11 +109,22 @@ public class RequestService {
             throw new NoSuchElementException("User with id: " + userId + " is not exist.");
         }
 
-        //Получаем из БД запрос по его id
-        ResponseRequestDto responseRequestDto = ResponseRequestDtoMapper.toResponseRequestDto(requestRepository.findById(requestId).orElseThrow());
+        //Получаем из БД запрос по его id и вещи созданные по этому запросу
+        Request request = requestRepository.findById(requestId).orElseThrow();
+        List<Item> items = itemRepository.findAllByRequestId(requestId);
+
+        String eTag = EntityTags.of("request", requestId, request.getVersion(),
+                request.getRequestor() == null ? null : request.getRequestor().getVersion(),
+                items.stream()
+                        .sorted(Comparator.comparingLong(Item::getId))
+                        .map(item -> new long[]{item.getId(), item.getVersion()})
+                        .toArray());
+        if (notModified.test(eTag)) {
+            return null;
+        }
 
         //Обогащаем запрос списком вещей созданных по этому запросу
-        List<Item> items = itemRepository.findAllByRequestId(requestId);
+        ResponseRequestDto responseRequestDto = ResponseRequestDtoMapper.toResponseRequestDto(request);
 
         responseRequestDto.setItems(items.stream()
                                          .filter(i -> i.getRequest().getId() == requestId)
@@ -125,6 +136,10 @@ public class RequestService {
 
     //Метод добавляет информацию о вещах созданных по запросу.
     private List<ResponseRequestDto> addDetails(List<Request> requests, List<ResponseRequestDto> responseRequestDto) {
+        //Страница после последнего запроса пуста, вещи для нее не запрашиваются
+        if (requests.isEmpty()) {
+            return responseRequestDto;
+        }
         List<Item> items = itemRepository.getAllByRequestsId(requests.stream()
                 .map(Request::getId)
                 .collect(Collectors.toList()));
@@ -136,4 +151,34 @@ public class RequestService {
                         .collect(Collectors.toList())))
                 .collect(Collectors.toList());
     }
+
+    //Служебный метод проверяет пользователя и параметры страницы. Если параметры страницы не указаны,
+    //то возвращается первая страница размера по умолчанию
+    private Pageable checkUserAndGetPage(long userId, Integer from, Integer size) {
+        from = from == null ? PageableUtility.MINIMUM_INDEX_OF_START_POSITION : from;
+        size = size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size;
+        if (!userRepository.existsById(userId)) {
+            //Если пользователя не существует, то выбрасываем исключение
+            log.info("User with id: {} is not exist.", userId);
+            throw new NoSuchElementException("User with id: " + userId + " is not exist.");
+        } else if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
+            //Можно сформировать список запросов только начиная с 0, отрицательные значения не допустимы
+            log.info("Start position couldn't be negative, it's: {}", from);
+            throw new BadRequestException("Start position couldn't be negative, it's: " + from);
+        } else if (size < PageableUtility.MINIMUM_SIZE_OF_PAGE) {
+            //Страница с результатами запроса может минимально содержать один запрос, нулевые или отрицательные значения не допустимы
+            log.info("Page should include at least one request, now it's: {}", size);
+            throw new BadRequestException("Page should include at least one request, now it's: " + size);
+        }
+        //Запросы с одинаковой датой создания упорядочены по id, как и при выводе по курсору
+        return PageRequest.of(from / size, size, Sort.by("created").descending().and(Sort.by("id").descending()));
+    }
+
+    //Служебный метод преобразует запросы страницы в ответ и обогащает их списком вещей
+    private List<ResponseRequestDto> toResponseRequestDto(List<Request> requests) {
+        List<ResponseRequestDto> responseRequestDto = requests.stream()
+                                                              .map(ResponseRequestDtoMapper::toResponseRequestDto)
+                                                              .collect(Collectors.toList());
+        return addDetails(requests, responseRequestDto);
+    }
 }
@@ -1,11 +1,24 @@
 package ru.practicum.shareit.user.controller;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.NativeWebRequest;
+import org.springframework.web.filter.ShallowEtagHeaderFilter;
+import ru.practicum.shareit.etag.EntityTags;
+import ru.practicum.shareit.metrics.QueryBudget;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.service.UserService;
 
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
 import javax.validation.Valid;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.List;
 
 @Slf4j
@@ -14,19 +27,52 @@ import java.util.List;
 public class UserController {
 
     private final UserService userService;
+    //Строки NDJSON буферизуются ответом и отправляются клиенту по мере заполнения буфера, а не после каждой строки
+    private final ObjectWriter userWriter;
 
-    public UserController(UserService userService) {
+    public UserController(UserService userService, ObjectMapper objectMapper) {
         this.userService = userService;
+        this.userWriter = objectMapper.writerFor(UserDto.class).without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
     }
 
     //Запрос всех пользователей
-    @GetMapping
-    private List<UserDto> getAll() {
+    @QueryBudget(1)
+    @GetMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+    private List<UserDto> getAll(@RequestParam(value = "from", required = false) Integer from,
+                                 @RequestParam(value = "size", required = false) Integer size,
+                                 @RequestParam(value = "cursor", required = false) Long cursor) {
         log.info("Get request to receive all users");
-        return userService.getAll();
+        //Если указан курсор, то страница определяется по id последнего полученного пользователя
+        if (cursor != null) {
+            return userService.getAllAfterCursor(cursor, size);
+        }
+        return userService.getAll(from, size);
+    }
+
+    //Потоковая выгрузка всех пользователей в формате NDJSON (Accept: application/x-ndjson):
+    //каждый пользователь записывается отдельной строкой сразу после чтения из базы, поэтому ответ без ETag
+    @QueryBudget(1)
+    @GetMapping(produces = MediaType.APPLICATION_NDJSON_VALUE)
+    private void streamAll(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        log.info("Get request to stream all users");
+        ShallowEtagHeaderFilter.disableContentCaching(request);
+        response.setContentType(MediaType.APPLICATION_NDJSON_VALUE);
+        try (JsonGenerator generator = userWriter.getFactory().createGenerator(response.getOutputStream())) {
+            //Значения разделяются переводом строки вместо пробела
+            generator.setRootValueSeparator(null);
+            userService.forEachUser(user -> {
+                try {
+                    userWriter.writeValue(generator, user);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
     }
 
     //создание пользователя
+    @QueryBudget(2)
     @PostMapping
     private UserDto addUser(@Valid @RequestBody UserDto user) {
         log.info("Post new user with name {}", user.getName());
@@ -40,11 +86,13 @@ public class UserController {
         return userService.updateUser(id, user);
     }
 
-    //Получение пользователя по id
+    //Получение пользователя по id: проверка существования и загрузка пользователя, если его нет в кеше.
+    //Если ETag по версии пользователя совпадает с If-None-Match, возвращается ответ 304 без тела
+    @QueryBudget(2)
     @GetMapping("/{id}")
-    private UserDto getById(@PathVariable("id") long id) {
+    private UserDto getById(@PathVariable("id") long id, NativeWebRequest request) {
         log.info("Get user by id: {}", id);
-        return userService.getById(id);
+        return userService.getById(id, eTag -> EntityTags.isNotModified(request, eTag));
     }
 
     //Метод удаляет пользователя по его id
@@ -24,6 +24,29 @@ public class UserMapper {
         user.setEmail(userDto.getEmail());
         return user;
     }
-}
 
+    //Метод создает объект модели из значений столбцов, полученных запросом без загрузки сущности
+    public static User toUser(Long id, String name, String email) {
+        if (id == null) {
+            return null;
+        }
+        User user = new User();
+        user.setId(id);
+        user.setName(name);
+        user.setEmail(email);
+        return user;
+    }
 
+    //Метод создает независимую копию пользователя вместе с версией строки
+    public static User copyOf(User user) {
+        if (user == null) {
+            return null;
+        }
+        User copy = new User();
+        copy.setId(user.getId());
+        copy.setVersion(user.getVersion());
+        copy.setName(user.getName());
+        copy.setEmail(user.getEmail());
+        return copy;
+    }
+}
@@ -1,5 +1,6 @@
 package ru.practicum.shareit.user.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import javax.persistence.*;
 import javax.validation.constraints.Email;
 import javax.validation.constraints.NotBlank;
@@ -10,6 +11,9 @@ public class User {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private long id;
+    //Версия строки увеличивается при каждом изменении, из нее строится ETag ответа
+    @Version
+    private long version;
     @Column(name="name")
     private String name;
     @NotBlank(message = "Адрес электронной почты не должен быть пустым")
@@ -40,4 +44,13 @@ public class User {
     public void setEmail(String email) {
         this.email = email;
     }
+
+    @JsonIgnore
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
 }
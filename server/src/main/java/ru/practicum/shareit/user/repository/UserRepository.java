@@ -1,15 +1,93 @@
 package ru.practicum.shareit.user.repository;
 
+import org.springframework.cache.annotation.CacheEvict;
+import org.springframework.cache.annotation.Cacheable;
+import org.springframework.cache.annotation.Caching;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.model.User;
 
+import javax.persistence.QueryHint;
 import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
 
+import static org.hibernate.jpa.QueryHints.HINT_FETCH_SIZE;
+import static org.hibernate.jpa.QueryHints.HINT_READONLY;
+
+//Проверка существования пользователя и его данные кешируются в памяти (spring.cache.* в application.properties),
+//так как почти каждый запрос начинается с проверки пользователя из заголовка X-Sharer-User-Id.
+//Любое изменение или удаление пользователя через репозиторий удаляет его из кеша.
+//Кеш хранит копию пользователя и при каждом чтении возвращает новую копию (CopyingCaffeineCache).
 public interface UserRepository extends JpaRepository<User, Long> {
+    String USERS_CACHE = "users";
+    String USER_EXISTS_CACHE = "userExists";
+    //Список пользователей строится из значений столбцов, сущности не создаются и не хранятся в контексте
+    String SELECT_USER_DTO = " select new ru.practicum.shareit.user.dto.UserDto(u.id, u.name, u.email) " +
+            "from User u ";
 
     //Поиск пользователя по совпадающему имени и email
     List<User> getUsersByNameAndEmail(String name, String email);
 
     //Поиск пользователя по email
     List<User> getUsersByEmail(String email);
+
+    //Метод возвращает пользователей в порядке возрастания id
+    @Query(SELECT_USER_DTO +
+            "order by u.id ")
+    List<UserDto> findAllUsers(Pageable pageable);
+
+    //Метод возвращает пользователей с id больше курсора в порядке возрастания id
+    @Query(SELECT_USER_DTO +
+            "where u.id > ?1 " +
+            "order by u.id ")
+    List<UserDto> findUsersAfter(long cursor, Pageable pageable);
+
+    //Метод читает всех пользователей курсором JDBC порциями по 500 строк, поток должен закрываться в транзакции.
+    //В PostgreSQL курсор используется только внутри транзакции, иначе драйвер загружает весь результат
+    @QueryHints({@QueryHint(name = HINT_FETCH_SIZE, value = "500"), @QueryHint(name = HINT_READONLY, value = "true")})
+    @Query(SELECT_USER_DTO +
+            "order by u.id ")
+    Stream<UserDto> streamAllUsers();
+
+    //Кешируется только существование пользователя, иначе созданный позже пользователь считался бы несуществующим
+    @Override
+    @Cacheable(cacheNames = USER_EXISTS_CACHE, key = "#p0", unless = "!#result")
+    boolean existsById(Long id);
+
+    @Override
+    @Cacheable(cacheNames = USERS_CACHE, key = "#p0", unless = "#result == null")
+    Optional<User> findById(Long id);
+
+    //Вещи в кеше хранятся вместе с владельцем и автором запроса, поэтому изменение пользователя очищает и кеш вещей
+    @Override
+    @Caching(evict = {
+            @CacheEvict(cacheNames = {USERS_CACHE, USER_EXISTS_CACHE}, key = "#p0.id"),
+            @CacheEvict(cacheNames = ItemRepository.ITEMS_CACHE, allEntries = true, condition = "#p0.id != 0")
+    })
+    <S extends User> S save(S user);
+
+    @Override
+    @CacheEvict(cacheNames = {USERS_CACHE, USER_EXISTS_CACHE}, key = "#p0")
+    void deleteById(Long id);
+
+    @Override
+    @CacheEvict(cacheNames = {USERS_CACHE, USER_EXISTS_CACHE}, key = "#p0.id")
+    void delete(User user);
+
+    @Override
+    @CacheEvict(cacheNames = {USERS_CACHE, USER_EXISTS_CACHE}, allEntries = true)
+    void deleteAll();
+
+    @Override
+    @CacheEvict(cacheNames = {USERS_CACHE, USER_EXISTS_CACHE}, allEntries = true)
+    void deleteAll(Iterable<? extends User> users);
+
+    @Override
+    @CacheEvict(cacheNames = {USERS_CACHE, USER_EXISTS_CACHE}, allEntries = true)
+    void deleteAllInBatch();
 }
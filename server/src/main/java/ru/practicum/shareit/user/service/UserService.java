@@ -1,22 +1,31 @@
 package ru.practicum.shareit.user.service;
 
+import io.micrometer.core.annotation.Timed;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.shareit.etag.EntityTags;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.user.dto.UserDto;
 import ru.practicum.shareit.user.dto.UserMapper;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utility.PageableUtility;
 import org.apache.commons.validator.routines.EmailValidator;
 
 import java.util.List;
 import java.util.NoSuchElementException;
-import java.util.stream.Collectors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
 
 @Slf4j
 @RequiredArgsConstructor
 @Service
+@Timed(value = "shareit.service", histogram = true)
 public class UserService {
     private final UserRepository userRepository;
 
@@ -66,26 +75,74 @@ public class UserService {
             user.setEmail(userToUpdate.getEmail());
         }
 
-        User updatedUser = userRepository.save(UserMapper.toUser(user));
+        //Версия переносится из загруженного пользователя, иначе Hibernate отклонит сохранение как устаревшее
+        User changedUser = UserMapper.toUser(user);
+        changedUser.setVersion(userToUpdate.getVersion());
+        User updatedUser = userRepository.save(changedUser);
         return UserMapper.toUserDto(updatedUser);
     }
 
-    //Метод получения всех пользователей
-    public List<UserDto> getAll() {
-        return userRepository.findAll()
-                .stream()
-                .map(UserMapper::toUserDto)
-                .collect(Collectors.toList());
+    //Метод получения пользователей с разбивкой по страницам
+    public List<UserDto> getAll(Integer from, Integer size) {
+        //Если параметры страницы не указаны, то возвращаем первую страницу размера по умолчанию, а не всех пользователей.
+        //Всех пользователей без загрузки в память можно получить потоковой выгрузкой
+        from = from == null ? PageableUtility.MINIMUM_INDEX_OF_START_POSITION : from;
+        size = size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size;
+        Pageable currentPageRequest;
+        if (from < PageableUtility.MINIMUM_INDEX_OF_START_POSITION) {
+            //Можно сформировать список пользователей только начиная с 0, отрицательные значения не допустимы
+            log.info("Start position couldn't be negative, it's: {}", from);
+            throw new BadRequestException("Start position couldn't be negative, it's: " + from);
+        } else if (size < PageableUtility.MINIMUM_SIZE_OF_PAGE) {
+            //Страница может минимально содержать одного пользователя, нулевые или отрицательные значения не допустимы
+            log.info("Page should include at least one user, now it's: {}", size);
+            throw new BadRequestException("Page should include at least one user, now it's: " + size);
+        } else {
+            currentPageRequest = PageRequest.of(from / size, size);
+        }
+        return userRepository.findAllUsers(currentPageRequest);
+    }
+
+    //Метод получения пользователей постранично, начиная после пользователя с id равным курсору
+    public List<UserDto> getAllAfterCursor(long cursor, Integer size) {
+        if (cursor < PageableUtility.FIRST_PAGE_CURSOR) {
+            //Курсор является id пользователя и не может быть отрицательным
+            log.info("Cursor couldn't be negative, it's: {}", cursor);
+            throw new BadRequestException("Cursor couldn't be negative, it's: " + cursor);
+        } else if (size != null && size < PageableUtility.MINIMUM_SIZE_OF_PAGE) {
+            log.info("Page should include at least one user, now it's: {}", size);
+            throw new BadRequestException("Page should include at least one user, now it's: " + size);
+        }
+        //Сортировка уже задана в запросе, поэтому ограничиваем только размер страницы
+        return userRepository.findUsersAfter(cursor, PageRequest.of(0, size == null ? PageableUtility.DEFAULT_SIZE_OF_PAGE : size));
+    }
+
+    //Метод передает всех пользователей обработчику по мере чтения из базы, в памяти хранится только текущая порция строк
+    @Transactional(readOnly = true)
+    public void forEachUser(Consumer<UserDto> action) {
+        try (Stream<UserDto> users = userRepository.streamAllUsers()) {
+            users.forEach(action);
+        }
     }
 
     //Метод получения пользователя по id
     public UserDto getById(long id) {
+        return getById(id, eTag -> false);
+    }
+
+    //Метод получения пользователя по id с проверкой ETag. ETag строится по версии пользователя,
+    //если notModified подтверждает совпадение ETag, то возвращается null
+    public UserDto getById(long id, Predicate<String> notModified) {
         //Если пользователя не существует выбрасываем исключение
         if (!userRepository.existsById(id)) {
             log.info("User with is {} is not exist.", id);
             throw new NoSuchElementException("User with id " + id + " is not exist.");
         }
-        return UserMapper.toUserDto(userRepository.findById(id).orElseThrow());
+        User user = userRepository.findById(id).orElseThrow();
+        if (notModified.test(EntityTags.of("user", id, user.getVersion()))) {
+            return null;
+        }
+        return UserMapper.toUserDto(user);
     }
 
     //Метод удаления пользователя по его id
@@ -3,4 +3,8 @@ package ru.practicum.shareit.utility;
 public class PageableUtility {
     public final static int MINIMUM_INDEX_OF_START_POSITION = 0;
     public final static int MINIMUM_SIZE_OF_PAGE = 1;
+    //Размер страницы при постраничном выводе, если размер не указан
+    public final static int DEFAULT_SIZE_OF_PAGE = 10;
+    //Значение курсора для получения первой страницы
+    public final static long FIRST_PAGE_CURSOR = 0;
 }
@@ -1,9 +1,3 @@
-DROP TABLE IF EXISTS requests;
-DROP TABLE IF EXISTS bookings;
-DROP TABLE IF EXISTS comments;
-DROP TABLE IF EXISTS items;
-DROP TABLE IF EXISTS users;
-
 CREATE TABLE IF NOT EXISTS users (
     id BIGINT GENERATED ALWAYS AS IDENTITY PRIMARY KEY,
     name varchar(200),
@@ -49,4 +43,4 @@ CREATE TABLE IF NOT EXISTS comments (
     CONSTRAINT comments_to_user_fk_3
     FOREIGN KEY(author_id) REFERENCES users(id) ON DELETE RESTRICT,
     CONSTRAINT requests_to_item_fk_3
-    FOREIGN KEY(item_id) REFERENCES items(id) ON DELETE RESTRICT);
\ No newline at end of file
+    FOREIGN KEY(item_id) REFERENCES items(id) ON DELETE RESTRICT);
@@ -0,0 +1,20 @@
+-- Индексы под запросы репозиториев. Порядок столбцов: сначала условия равенства, затем сортировка.
+
+-- Бронирования арендатора: BookingRepository.getAllByBookerId*, getCurrent/Future/PastBookings*, курсоры по (start_date, id)
+CREATE INDEX IF NOT EXISTS bookings_booker_start_idx ON bookings (booker_id, start_date DESC, id DESC);
+
+-- Бронирования вещи: индекс занятости, последнее и следующее бронирование, бронирования вещей владельца
+CREATE INDEX IF NOT EXISTS bookings_item_status_start_idx ON bookings (item_id, status, start_date);
+
+-- Вещи владельца с сортировкой и курсором по id: ItemRepository.findItemByOwnerId*
+CREATE INDEX IF NOT EXISTS items_owner_id_idx ON items (owner_id, id);
+
+-- Вещи, созданные по запросам: ItemRepository.getAllByRequestsId, findAllByRequestId
+CREATE INDEX IF NOT EXISTS items_request_id_idx ON items (request_id);
+
+-- Запросы по дате создания: RequestRepository.getAllByOrderByCreatedDesc
+CREATE INDEX IF NOT EXISTS requests_created_idx ON requests (created DESC);
+CREATE INDEX IF NOT EXISTS requests_requestor_created_idx ON requests (requestor_id, created DESC);
+
+-- Отзывы о вещи: CommentRepository.getAllWithAuthorByItemId
+CREATE INDEX IF NOT EXISTS comments_item_id_idx ON comments (item_id);
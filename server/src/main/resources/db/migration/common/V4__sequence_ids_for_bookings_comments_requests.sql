@@ -0,0 +1,11 @@
+-- Id бронирований, отзывов и запросов выдаются последовательностями, а не столбцами IDENTITY.
+-- Hibernate получает из последовательности сразу блок из 50 id (allocationSize в сущностях совпадает с INCREMENT BY),
+-- поэтому вставки нескольких строк объединяются в пакеты JDBC (hibernate.jdbc.batch_size).
+-- Для существующих данных в PostgreSQL последовательности сдвигаются за максимальный id миграцией V5.
+CREATE SEQUENCE IF NOT EXISTS bookings_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS comments_seq START WITH 1 INCREMENT BY 50;
+CREATE SEQUENCE IF NOT EXISTS requests_seq START WITH 1 INCREMENT BY 50;
+
+ALTER TABLE bookings ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE comments ALTER COLUMN id DROP IDENTITY;
+ALTER TABLE requests ALTER COLUMN id DROP IDENTITY;
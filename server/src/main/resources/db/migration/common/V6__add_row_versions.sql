@@ -0,0 +1,7 @@
+-- Версии строк пользователей, вещей, запросов и бронирований (@Version в сущностях).
+-- Версия увеличивается при каждом изменении строки, из версий строк ответа строится ETag (etag/EntityTags).
+-- Отзывы не изменяются после создания, поэтому версии у них нет.
+ALTER TABLE users ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE items ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE requests ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
+ALTER TABLE bookings ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
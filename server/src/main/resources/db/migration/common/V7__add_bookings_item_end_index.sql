@@ -0,0 +1,2 @@
+-- Последнее завершенное бронирование вещи: BookingRepository.getLastApprovedByItemId (end_date < now, сортировка по end_date)
+CREATE INDEX IF NOT EXISTS bookings_item_status_end_idx ON bookings (item_id, status, end_date);
@@ -0,0 +1,51 @@
+-- Триграммные индексы для поиска вещей по части наименования или описания (like '%text%').
+-- Выражения индексов совпадают с выражениями в ItemRepository.searchAvailableItemsByText.
+CREATE EXTENSION IF NOT EXISTS pg_trgm;
+
+CREATE INDEX IF NOT EXISTS items_upper_name_trgm_idx
+    ON items USING gin (upper(name) gin_trgm_ops);
+
+CREATE INDEX IF NOT EXISTS items_upper_description_trgm_idx
+    ON items USING gin (upper(description) gin_trgm_ops);
+
+-- Подтвержденные бронирования одной вещи не могут пересекаться по периоду [start_date, end_date).
+-- Ограничение страхует индекс занятости в памяти (BookingIntervalIndex) при нескольких экземплярах сервера.
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Ограничение исключения нельзя добавить с NOT VALID, поэтому существующие строки проверяются заранее.
+-- Миграция не изменяет данные: при наличии конфликтующих подтвержденных бронирований она завершается ошибкой
+-- со списком их id. Такие строки исправляются отдельным согласованным скриптом, после чего миграция повторяется.
+-- 1. Подтвержденные бронирования с началом позже окончания: tsrange для них завершается ошибкой.
+-- 2. Пересекающиеся подтвержденные бронирования одной вещи.
+DO $$
+DECLARE
+    conflicting TEXT;
+BEGIN
+    SELECT string_agg(b.id::TEXT, ', ' ORDER BY b.id)
+    INTO conflicting
+    FROM bookings b
+    WHERE b.status = 'APPROVED' AND b.start_date > b.end_date;
+
+    IF conflicting IS NOT NULL THEN
+        RAISE EXCEPTION 'bookings_approved_no_overlap: approved bookings with start after end: %', conflicting
+            USING HINT = 'Fix these bookings manually and rerun the migration';
+    END IF;
+
+    SELECT string_agg(b.id::TEXT, ', ' ORDER BY b.id)
+    INTO conflicting
+    FROM bookings b
+    WHERE b.status = 'APPROVED'
+      AND EXISTS (SELECT 1 FROM bookings o
+                  WHERE o.item_id = b.item_id AND o.status = 'APPROVED' AND o.id <> b.id
+                    AND tsrange(o.start_date, o.end_date) && tsrange(b.start_date, b.end_date));
+
+    IF conflicting IS NOT NULL THEN
+        RAISE EXCEPTION 'bookings_approved_no_overlap: overlapping approved bookings: %', conflicting
+            USING HINT = 'Fix these bookings manually and rerun the migration';
+    END IF;
+END $$;
+
+ALTER TABLE bookings
+    ADD CONSTRAINT bookings_approved_no_overlap
+    EXCLUDE USING gist (item_id WITH =, tsrange(start_date, end_date) WITH &&)
+    WHERE (status = 'APPROVED');
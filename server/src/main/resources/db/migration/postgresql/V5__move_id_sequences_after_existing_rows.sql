@@ -0,0 +1,5 @@
+-- Первое значение последовательности - верхняя граница первого блока id, выдаваемого Hibernate (pooled),
+-- поэтому оно должно быть больше максимального id как минимум на размер блока.
+SELECT setval('bookings_seq', (SELECT COALESCE(MAX(id), 0) FROM bookings) + 50, false);
+SELECT setval('comments_seq', (SELECT COALESCE(MAX(id), 0) FROM comments) + 50, false);
+SELECT setval('requests_seq', (SELECT COALESCE(MAX(id), 0) FROM requests) + 50, false);
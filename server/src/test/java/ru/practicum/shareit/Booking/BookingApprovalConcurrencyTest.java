@@ -0,0 +1,328 @@
+package ru.practicum.shareit.Booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.availability.BookingIntervalIndex;
+import ru.practicum.shareit.booking.availability.ItemLockStripes;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
+
+//Потоки работают в собственных транзакциях, поэтому данные теста удаляются вручную,
+//а контекст пересоздается вместе с индексом занятости вещей
+@DirtiesContext
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BookingApprovalConcurrencyTest {
+    private static final int NUMBER_OF_ITEMS = 8;
+    private static final int BOOKINGS_PER_ITEM = 6;
+    private static final int NUMBER_OF_THREADS = 16;
+    //Предельное время ожидания других потоков, по его истечении тест завершается ошибкой
+    private static final long WAIT_TIMEOUT_SECONDS = 30;
+
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    private final ItemLockStripes itemLockStripes;
+    @SpyBean
+    private BookingIntervalIndex bookingIntervalIndex;
+
+    @AfterEach
+    void clean() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    //Из пересекающихся бронирований вещи при параллельном подтверждении подтверждается ровно одно
+    @Test
+    void concurrentApprovalNeverApprovesOverlappingBookings() throws Exception {
+        User owner = saveUser("Owner", "concurrency-owner@ya.ru");
+        User booker = saveUser("Booker", "concurrency-booker@ya.ru");
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            Item item = saveItem(owner, "Item " + i);
+            for (int j = 0; j < BOOKINGS_PER_ITEM; j++) {
+                //Все бронирования вещи пересекаются друг с другом
+                bookings.add(saveWaitingBooking(item, booker, start.plusHours(j), start.plusDays(1).plusHours(j)));
+            }
+        }
+
+        Map<Long, AtomicInteger> approvedByItem = new ConcurrentHashMap<>();
+        AtomicInteger rejectedByOverlap = new AtomicInteger();
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        List<Future<?>> results = new ArrayList<>();
+        for (Booking booking : bookings) {
+            results.add(executor.submit(() -> {
+                startSignal.await();
+                try {
+                    bookingService.updateBooking(booking.getId(), owner.getId(), true);
+                    approvedByItem.computeIfAbsent(booking.getItem().getId(), id -> new AtomicInteger()).incrementAndGet();
+                } catch (BadRequestException e) {
+                    rejectedByOverlap.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(approvedByItem.size(), NUMBER_OF_ITEMS, "Для каждой вещи должно быть подтверждено бронирование");
+        approvedByItem.values().forEach(count -> assertEquals(count.get(), 1, "Подтверждено несколько пересекающихся бронирований"));
+        assertEquals(rejectedByOverlap.get(), NUMBER_OF_ITEMS * (BOOKINGS_PER_ITEM - 1), "Количество отказов не совпадает");
+        for (Booking booking : bookings) {
+            long approvedInDatabase = bookingRepository.getAllByItemId(booking.getItem().getId()).stream()
+                    .filter(b -> b.getStatus() == StatusOfBooking.APPROVED)
+                    .count();
+            assertEquals(approvedInDatabase, 1, "В базе данных подтверждено несколько пересекающихся бронирований");
+        }
+    }
+
+    //Параллельные пакетные решения по одним и тем же бронированиям подтверждают по одному бронированию каждой вещи
+    @Test
+    void concurrentBulkApprovalNeverApprovesOverlappingBookings() throws Exception {
+        User owner = saveUser("Owner", "bulk-concurrency-owner@ya.ru");
+        User booker = saveUser("Booker", "bulk-concurrency-booker@ya.ru");
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        List<BookingDecisionDto> decisions = new ArrayList<>();
+        List<Long> itemIds = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            Item item = saveItem(owner, "Item " + i);
+            itemIds.add(item.getId());
+            for (int j = 0; j < BOOKINGS_PER_ITEM; j++) {
+                Booking booking = saveWaitingBooking(item, booker, start.plusHours(j), start.plusDays(1).plusHours(j));
+                decisions.add(new BookingDecisionDto(booking.getId(), true));
+            }
+        }
+
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(NUMBER_OF_THREADS);
+        List<Future<List<BookingBatchResultDto>>> results = new ArrayList<>();
+        for (int thread = 0; thread < NUMBER_OF_THREADS; thread++) {
+            //Каждый поток отправляет все решения в своем порядке
+            List<BookingDecisionDto> shuffled = new ArrayList<>(decisions);
+            Collections.shuffle(shuffled, new Random(thread));
+            results.add(executor.submit(() -> {
+                startSignal.await();
+                return bookingService.updateBookings(owner.getId(), shuffled);
+            }));
+        }
+        startSignal.countDown();
+        int approved = 0;
+        for (Future<List<BookingBatchResultDto>> result : results) {
+            approved += (int) result.get(1, TimeUnit.MINUTES).stream().filter(r -> r.getStatus() == 200).count();
+        }
+        executor.shutdown();
+
+        assertEquals(approved, NUMBER_OF_ITEMS, "Для каждой вещи должно быть подтверждено ровно одно бронирование");
+        for (long itemId : itemIds) {
+            long approvedInDatabase = bookingRepository.getAllByItemId(itemId).stream()
+                    .filter(b -> b.getStatus() == StatusOfBooking.APPROVED)
+                    .count();
+            assertEquals(approvedInDatabase, 1, "В базе данных подтверждено несколько пересекающихся бронирований");
+        }
+    }
+
+    //Блокировка одной вещи не мешает подтверждению бронирований других вещей
+    @Test
+    void lockOfOneItemDoesNotBlockOtherItems() throws Exception {
+        Lock firstItemLock = itemLockStripes.forItem(1);
+        CountDownLatch locked = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> {
+            firstItemLock.lock();
+            try {
+                locked.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                firstItemLock.unlock();
+            }
+        });
+        holder.start();
+        locked.await();
+        try {
+            assertFalse(itemLockStripes.forItem(1).tryLock(), "Бронирования одной вещи должны обрабатываться последовательно");
+            for (long itemId = 2; itemId <= NUMBER_OF_ITEMS; itemId++) {
+                Lock otherItemLock = itemLockStripes.forItem(itemId);
+                assertTrue(otherItemLock.tryLock(), "Блокировка вещи " + itemId + " не должна быть занята");
+                otherItemLock.unlock();
+            }
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+
+    //Подтверждения бронирований разных вещей выполняются одновременно: проверка занятости выполняется под блокировкой вещи
+    //и ждет, пока ее не начнут все N подтверждений. Барьер пропускает потоки, только если блокировки всех N вещей
+    //захвачены одновременно, при последовательном подтверждении ожидание завершится по таймауту
+    @Test
+    void approvalsOfDifferentItemsRunInParallel() throws Exception {
+        User owner = saveUser("Owner", "parallel-owner@ya.ru");
+        User booker = saveUser("Booker", "parallel-booker@ya.ru");
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            bookings.add(saveWaitingBooking(saveItem(owner, "Item " + i), booker, start, start.plusDays(1)));
+        }
+        List<Long> lockedWhenAllChecksStarted = new ArrayList<>();
+        CyclicBarrier allChecksStarted = new CyclicBarrier(NUMBER_OF_ITEMS, () -> bookings.stream()
+                .map(booking -> booking.getItem().getId())
+                .filter(itemId -> ((ReentrantLock) itemLockStripes.forItem(itemId)).isLocked())
+                .forEach(lockedWhenAllChecksStarted::add));
+        doAnswer(invocation -> {
+            allChecksStarted.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+            return invocation.callRealMethod();
+        }).when(bookingIntervalIndex).findOverlap(anyLong(), any(), any());
+
+        approveConcurrently(owner, bookings);
+
+        assertEquals(lockedWhenAllChecksStarted.size(), NUMBER_OF_ITEMS,
+                "Блокировки всех вещей должны быть захвачены одновременно");
+    }
+
+    //Подтверждения бронирований одной вещи выполняются последовательно: пока первое подтверждение остановлено в проверке
+    //занятости, остальные N - 1 подтверждений ждут блокировку вещи и не начинают проверку
+    @Test
+    void approvalsOfOneItemRunSequentially() throws Exception {
+        User owner = saveUser("Owner", "sequential-owner@ya.ru");
+        User booker = saveUser("Booker", "sequential-booker@ya.ru");
+        LocalDateTime start = LocalDateTime.now().plusDays(10);
+        Item item = saveItem(owner, "Single item");
+        List<Booking> bookings = new ArrayList<>();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            bookings.add(saveWaitingBooking(item, booker, start.plusDays(2L * i), start.plusDays(2L * i + 1)));
+        }
+        AtomicInteger activeChecks = new AtomicInteger();
+        AtomicInteger maxActiveChecks = new AtomicInteger();
+        CountDownLatch firstCheckStarted = new CountDownLatch(1);
+        CountDownLatch releaseFirstCheck = new CountDownLatch(1);
+        doAnswer(invocation -> {
+            maxActiveChecks.accumulateAndGet(activeChecks.incrementAndGet(), Math::max);
+            try {
+                firstCheckStarted.countDown();
+                releaseFirstCheck.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                return invocation.callRealMethod();
+            } finally {
+                activeChecks.decrementAndGet();
+            }
+        }).when(bookingIntervalIndex).findOverlap(anyLong(), any(), any());
+
+        ReentrantLock itemLock = (ReentrantLock) itemLockStripes.forItem(item.getId());
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(bookings.size());
+        List<Future<?>> results = new ArrayList<>();
+        for (Booking booking : bookings) {
+            results.add(executor.submit(() -> {
+                startSignal.await();
+                return bookingService.updateBooking(booking.getId(), owner.getId(), true);
+            }));
+        }
+        startSignal.countDown();
+        try {
+            assertTrue(firstCheckStarted.await(WAIT_TIMEOUT_SECONDS, TimeUnit.SECONDS), "Проверка занятости не началась");
+            //Остальные подтверждения должны встать в очередь блокировки вещи, а не начать проверку занятости
+            while (itemLock.getQueueLength() < bookings.size() - 1 && activeChecks.get() == 1) {
+                Thread.onSpinWait();
+            }
+            assertEquals(activeChecks.get(), 1, "Бронирования одной вещи подтверждались одновременно");
+        } finally {
+            releaseFirstCheck.countDown();
+        }
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+
+        assertEquals(maxActiveChecks.get(), 1, "Бронирования одной вещи подтверждались одновременно");
+    }
+
+    private User saveUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return userRepository.save(user);
+    }
+
+    private Item saveItem(User owner, String name) {
+        Item item = new Item();
+        item.setName(name);
+        item.setDescription(name);
+        item.setAvailable(true);
+        item.setOwner(owner);
+        return itemRepository.save(item);
+    }
+
+    //Метод подтверждает бронирования в отдельных потоках и ждет подтверждения всех бронирований
+    private void approveConcurrently(User owner, List<Booking> bookings) throws Exception {
+        CountDownLatch startSignal = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(bookings.size());
+        List<Future<?>> results = new ArrayList<>();
+        for (Booking booking : bookings) {
+            results.add(executor.submit(() -> {
+                startSignal.await();
+                return bookingService.updateBooking(booking.getId(), owner.getId(), true);
+            }));
+        }
+        startSignal.countDown();
+        for (Future<?> result : results) {
+            result.get(1, TimeUnit.MINUTES);
+        }
+        executor.shutdown();
+    }
+
+    private Booking saveWaitingBooking(Item item, User booker, LocalDateTime start, LocalDateTime end) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setStatus(StatusOfBooking.WAITING);
+        return bookingRepository.save(booking);
+    }
+}
@@ -7,9 +7,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.booking.controller.BookingController;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
 import ru.practicum.shareit.booking.dto.BookingDto;
 import ru.practicum.shareit.booking.dto.BookingResponseDto;
 import ru.practicum.shareit.booking.model.StatusOfBooking;
@@ -26,10 +30,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 
@@ -74,6 +81,54 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$.status").value(bookingDto.getStatus().toString()));
     }
 
+    //Тест создания нескольких бронирований, результат возвращается для каждого бронирования пакета
+    @Test
+    void saveBatchOfBookingsReturnsResultForEachBooking() throws Exception {
+        prepareDataForTest();
+
+        when(bookingService.addBookings(any(Long.class), anyList())).thenReturn(List.of(
+                BookingBatchResultDto.succeeded(0, bookingResponseDto),
+                BookingBatchResultDto.failed(1, HttpStatus.BAD_REQUEST, "Item: 1 is not available.")));
+
+        mvc.perform(post("/bookings/batch")
+                        .content(mapper.writeValueAsString(List.of(bookingDto, bookingDto1)))
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].index").value(0))
+                .andExpect(jsonPath("$[0].status").value(200))
+                .andExpect(jsonPath("$[0].booking.id").value(bookingResponseDto.getId()))
+                .andExpect(jsonPath("$[1].index").value(1))
+                .andExpect(jsonPath("$[1].status").value(400))
+                .andExpect(jsonPath("$[1].error").value("Item: 1 is not available."))
+                .andExpect(jsonPath("$[1].booking").doesNotExist());
+    }
+
+    //Тест подтверждения нескольких бронирований, результат возвращается для каждого решения
+    @Test
+    void updateBatchOfBookingsReturnsResultForEachDecision() throws Exception {
+        prepareDataForTest();
+
+        when(bookingService.updateBookings(any(Long.class), anyList())).thenReturn(List.of(
+                BookingBatchResultDto.succeeded(0, bookingResponseDto),
+                BookingBatchResultDto.failed(1, HttpStatus.NOT_FOUND, "Booking with id: 2 has other owner.")));
+
+        mvc.perform(patch("/bookings/batch")
+                        .content(mapper.writeValueAsString(List.of(new BookingDecisionDto(1, true), new BookingDecisionDto(2, false))))
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2))
+                .andExpect(jsonPath("$[0].booking.status").value(bookingResponseDto.getStatus().toString()))
+                .andExpect(jsonPath("$[1].status").value(404))
+                .andExpect(jsonPath("$[1].error").value("Booking with id: 2 has other owner."));
+    }
+
     //Тест создания пользователя, в случае получения некорректного запроса
     @Test
     void saveNewUserIfWrongRequest() throws Exception {
@@ -187,6 +242,25 @@ public class BookingControllerTest {
                 .andExpect(jsonPath("$[1].item.owner.email").value(bookings.get(1).getItem().getOwner().getEmail()));
     }
 
+    //Получение бронирований по курсору, если указан параметр cursor
+    @Test
+    void getBookingsByCursorIfEverythingOk() throws Exception {
+        prepareDataForTest();
+
+        when(bookingService.findAllBookingByUserIdAfterCursor(anyLong(), any(), anyLong(), any())).thenReturn(bookings);
+
+        mvc.perform(get("/bookings")
+                        .param("cursor", "5")
+                        .param("size", "2")
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(bookings.get(0).getId()))
+                .andExpect(jsonPath("$[1].id").value(bookings.get(1).getId()));
+    }
+
     //Получение бронирования по id если получен некорректный запрос
     @Test
     void getBookingByIdIfBadRequest() throws Exception {
@@ -284,7 +358,7 @@ public class BookingControllerTest {
     void findBookingByIdIfEverythingOk() throws Exception {
         prepareDataForTest();
 
-        when(bookingService.findBookingByUserId(anyLong(), anyLong())).thenReturn(bookingResponseDto);
+        when(bookingService.findBookingByUserId(anyLong(), anyLong(), any())).thenReturn(bookingResponseDto);
 
         mvc.perform(get("/bookings/1")
                         .header("X-Sharer-User-Id", 1)
@@ -306,6 +380,39 @@ public class BookingControllerTest {
 
     }
 
+    //Повторный запрос бронирования с ETag прошлого ответа получает ответ 304, после изменения данных - новый ответ
+    @Test
+    void getBookingsReturnsNotModifiedUntilDataChanged() throws Exception {
+        prepareDataForTest();
+
+        //ETag сервиса зависит от статуса бронирования, как версия строки бронирования
+        when(bookingService.findBookingByUserId(anyLong(), anyLong(), any())).thenAnswer(invocation ->
+                invocation.<Predicate<String>>getArgument(2).test("\"booking-1-" + bookingResponseDto.getStatus() + "\"")
+                        ? null : bookingResponseDto);
+
+        String eTag = mvc.perform(get("/bookings/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().exists(HttpHeaders.ETAG))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/bookings/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+
+        bookingResponseDto.setStatus(StatusOfBooking.REJECTED);
+        mvc.perform(get("/bookings/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value(StatusOfBooking.REJECTED.toString()));
+    }
+
 
     private void prepareDataForTest() {
         //Создаем пользователя для теста
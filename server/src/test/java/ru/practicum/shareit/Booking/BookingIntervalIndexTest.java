@@ -0,0 +1,79 @@
+package ru.practicum.shareit.Booking;
+
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import ru.practicum.shareit.booking.availability.BookedInterval;
+import ru.practicum.shareit.booking.availability.BookingIntervalIndex;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class BookingIntervalIndexTest {
+    //Вещи 1 и 17 попадают в одну ячейку ConcurrentHashMap с начальной емкостью 16
+    private static final long LOADING_ITEM_ID = 1;
+    private static final long SAME_BIN_ITEM_ID = 17;
+
+    private final BookingRepository bookingRepository = Mockito.mock(BookingRepository.class);
+    private final BookingIntervalIndex index = new BookingIntervalIndex(bookingRepository);
+    private final LocalDateTime start = LocalDateTime.now().plusDays(1);
+
+    //Загрузка периодов одной вещи из базы данных не блокирует проверку другой вещи
+    @Test
+    void loadingOfOneItemDoesNotBlockOtherItems() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(bookingRepository.getApprovedIntervalsByItemId(LOADING_ITEM_ID)).thenAnswer(invocation -> {
+            loading.countDown();
+            release.await();
+            return List.of(new BookedInterval(start, start.plusDays(1)));
+        });
+        Mockito.when(bookingRepository.getApprovedIntervalsByItemId(SAME_BIN_ITEM_ID)).thenReturn(List.of());
+
+        CompletableFuture<BookedInterval> slowLoad = CompletableFuture.supplyAsync(
+                () -> index.findOverlap(LOADING_ITEM_ID, start, start.plusHours(1)));
+        try {
+            assertTrue(loading.await(10, TimeUnit.SECONDS), "Загрузка периодов вещи не началась");
+            BookedInterval overlap = CompletableFuture.supplyAsync(
+                    () -> index.findOverlap(SAME_BIN_ITEM_ID, start, start.plusHours(1))).get(5, TimeUnit.SECONDS);
+            assertNull(overlap, "Вещь без бронирований должна быть свободна");
+        } finally {
+            release.countDown();
+        }
+        assertNotNull(slowLoad.get(10, TimeUnit.SECONDS), "Пересечение с загруженным периодом не найдено");
+    }
+
+    //Периоды, загруженные до удаления вещи из индекса, не остаются в индексе
+    @Test
+    void intervalsLoadedBeforeEvictionAreNotKept() throws Exception {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Mockito.when(bookingRepository.getApprovedIntervalsByItemId(LOADING_ITEM_ID))
+                .thenAnswer(invocation -> {
+                    loading.countDown();
+                    release.await();
+                    return List.of();
+                })
+                .thenReturn(List.of(new BookedInterval(start, start.plusDays(1))));
+
+        CompletableFuture<BookedInterval> staleLoad = CompletableFuture.supplyAsync(
+                () -> index.findOverlap(LOADING_ITEM_ID, start, start.plusHours(1)));
+        assertTrue(loading.await(10, TimeUnit.SECONDS), "Загрузка периодов вещи не началась");
+        try {
+            CompletableFuture.runAsync(() -> index.evict(LOADING_ITEM_ID)).get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+        }
+        staleLoad.get(10, TimeUnit.SECONDS);
+
+        assertNotNull(index.findOverlap(LOADING_ITEM_ID, start, start.plusHours(1)),
+                "Периоды, загруженные до удаления из индекса, остались в индексе");
+    }
+}
@@ -0,0 +1,114 @@
+package ru.practicum.shareit.Booking;
+
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+//Контекст пересоздается, чтобы не влиять на значения идентификаторов в других тестах репозиториев
+@DirtiesContext
+@DataJpaTest
+public class BookingRepositoryTest {
+    private static final int PAGE_SIZE = 3;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private UserRepository userRepository;
+    private User owner;
+    private User booker;
+    private Item item;
+
+    //Последовательный вывод по курсору возвращает те же бронирования и в том же порядке, что и вывод всех бронирований
+    @Test
+    void getAllByBookerIdAfterCursorWalksAllBookings() {
+        prepareDataForTest();
+        List<Long> expected = bookingRepository.getAllByBookerIdOrderByStartDesc(booker.getId(),
+                        PageRequest.of(0, 100, Sort.by("start").descending().and(Sort.by("id").descending())))
+                .stream()
+                .map(BookingResponseDto::getId)
+                .collect(Collectors.toList());
+
+        List<Long> result = new ArrayList<>();
+        List<BookingResponseDto> page = bookingRepository.getAllByBookerIdOrderByStartDesc(booker.getId(),
+                PageRequest.of(0, PAGE_SIZE, Sort.by("start").descending().and(Sort.by("id").descending())));
+        while (!page.isEmpty()) {
+            page.forEach(b -> result.add(b.getId()));
+            BookingResponseDto last = page.get(page.size() - 1);
+            page = bookingRepository.getAllByBookerIdAfterCursor(booker.getId(), last.getStart(), last.getId(), PageRequest.of(0, PAGE_SIZE));
+        }
+
+        Assertions.assertEquals(expected.size(), 7, "Должны быть получены все бронирования");
+        Assertions.assertEquals(expected, result, "Порядок бронирований должен совпадать");
+    }
+
+    //Вывод по курсору для владельца учитывает статус бронирования
+    @Test
+    void getAllByItemOwnerIdAndStateAfterCursor() {
+        prepareDataForTest();
+        BookingResponseDto first = bookingRepository.getAllByItemOwnerIdAndState(owner.getId(), StatusOfBooking.WAITING, Pageable.unpaged()).get(0);
+
+        List<BookingResponseDto> result = bookingRepository.getAllByItemOwnerIdAndStateAfterCursor(owner.getId(), StatusOfBooking.WAITING,
+                first.getStart(), first.getId(), PageRequest.of(0, PAGE_SIZE));
+
+        Assertions.assertEquals(result.size(), 2, "Количество бронирований не совпадает");
+        Assertions.assertTrue(result.stream().allMatch(b -> b.getStatus() == StatusOfBooking.WAITING), "Статус бронирований не совпадает");
+    }
+
+    private void prepareDataForTest() {
+        owner = new User();
+        owner.setName("Owner");
+        owner.setEmail("owner@ya.ru");
+        owner = userRepository.save(owner);
+
+        booker = new User();
+        booker.setName("Booker");
+        booker.setEmail("booker@ya.ru");
+        booker = userRepository.save(booker);
+
+        item = new Item();
+        item.setName("Test item");
+        item.setDescription("Test item");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        item = itemRepository.save(item);
+
+        //Часть бронирований начинается одновременно, чтобы проверить порядок по id
+        LocalDateTime start = LocalDateTime.of(2030, 1, 1, 10, 0);
+        saveBooking(start, StatusOfBooking.WAITING);
+        saveBooking(start, StatusOfBooking.WAITING);
+        saveBooking(start, StatusOfBooking.APPROVED);
+        saveBooking(start.plusDays(1), StatusOfBooking.WAITING);
+        saveBooking(start.plusDays(2), StatusOfBooking.REJECTED);
+        saveBooking(start.minusDays(1), StatusOfBooking.APPROVED);
+        saveBooking(start.minusDays(2), StatusOfBooking.APPROVED);
+    }
+
+    private void saveBooking(LocalDateTime start, StatusOfBooking status) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(start);
+        booking.setEnd(start.plusHours(1));
+        booking.setStatus(status);
+        bookingRepository.save(booking);
+    }
+}
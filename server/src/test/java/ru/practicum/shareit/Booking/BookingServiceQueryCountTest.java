@@ -0,0 +1,227 @@
+package ru.practicum.shareit.Booking;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.request.repository.RequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Transactional
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BookingServiceQueryCountTest {
+    private static final List<String> STATES = List.of("ALL", "CURRENT", "PAST", "FUTURE", "WAITING", "REJECTED");
+    private static final List<Integer> PAGE_SIZES = List.of(1, 5, 30);
+    private static final int NUMBER_OF_ITEMS = 6;
+    //Проверка пользователя и запрос страницы вместе с вещами, владельцами, запросами и арендаторами
+    private static final long MAX_STATEMENTS_PER_PAGE = 2;
+    //Дополнительно запрос даты начала бронирования, на котором остановился предыдущий вывод
+    private static final long MAX_STATEMENTS_PER_PAGE_AFTER_CURSOR = 3;
+
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final RequestRepository requestRepository;
+    private final UserRepository userRepository;
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private User owner;
+    private User booker;
+    private Booking firstBooking;
+    private final List<Long> itemIds = new ArrayList<>();
+
+    //Количество SQL-запросов при выводе бронирований арендатора не зависит от размера страницы
+    @Test
+    void findAllBookingByUserIdUsesFixedNumberOfStatements() {
+        prepareDataForTest();
+
+        for (String state : STATES) {
+            for (int size : PAGE_SIZES) {
+                Statistics statistics = startCountingStatements();
+                List<BookingResponseDto> page = bookingService.findAllBookingByUserId(booker.getId(), state, 0, size);
+                assertStatements(statistics, MAX_STATEMENTS_PER_PAGE, state, size);
+                assertDetailsLoaded(page);
+            }
+        }
+    }
+
+    //Количество SQL-запросов при выводе бронирований владельца не зависит от размера страницы
+    @Test
+    void findAllBookingForAllItemsUsesFixedNumberOfStatements() {
+        prepareDataForTest();
+
+        for (String state : STATES) {
+            for (int size : PAGE_SIZES) {
+                Statistics statistics = startCountingStatements();
+                List<BookingResponseDto> page = bookingService.findAllBookingForAllItems(owner.getId(), state, 0, size);
+                assertStatements(statistics, MAX_STATEMENTS_PER_PAGE, state, size);
+                assertDetailsLoaded(page);
+            }
+        }
+    }
+
+    //Постраничный вывод по курсору также загружает связи бронирований одним запросом
+    @Test
+    void findAllBookingAfterCursorUsesFixedNumberOfStatements() {
+        prepareDataForTest();
+
+        for (int size : PAGE_SIZES) {
+            Statistics statistics = startCountingStatements();
+            List<BookingResponseDto> page = bookingService.findAllBookingByUserIdAfterCursor(booker.getId(), "ALL", firstBooking.getId(), size);
+            assertStatements(statistics, MAX_STATEMENTS_PER_PAGE_AFTER_CURSOR, "ALL", size);
+            assertDetailsLoaded(page);
+
+            statistics = startCountingStatements();
+            page = bookingService.findAllBookingForAllItemsAfterCursor(owner.getId(), "ALL", firstBooking.getId(), size);
+            assertStatements(statistics, MAX_STATEMENTS_PER_PAGE_AFTER_CURSOR, "ALL", size);
+            assertDetailsLoaded(page);
+        }
+    }
+
+    //Получение одного бронирования выполняется одним запросом вместе с вещью и арендатором
+    @Test
+    void findBookingByUserIdLoadsDetailsWithBooking() {
+        prepareDataForTest();
+        Statistics statistics = startCountingStatements();
+
+        BookingResponseDto booking = bookingService.findBookingByUserId(firstBooking.getId(), owner.getId());
+
+        //Проверка бронирования, проверка пользователя и запрос бронирования
+        assertTrue(statistics.getPrepareStatementCount() <= 3,
+                "Слишком много SQL-запросов: " + statistics.getPrepareStatementCount());
+        assertDetailsLoaded(List.of(booking));
+    }
+
+    //Проверка и вставка пакета бронирований выполняются запросами по множеству вещей и пакетами JDBC, а не по каждому бронированию
+    @Test
+    void addBookingsUsesStatementsPerItemNotPerBooking() {
+        prepareDataForTest();
+        User newBooker = saveUser("Batch booker", "query-count-batch-booker@ya.ru");
+        List<BookingDto> batch = new ArrayList<>();
+        LocalDateTime start = LocalDateTime.now().plusYears(1);
+        for (int i = 0; i < 60; i++) {
+            batch.add(new BookingDto(itemIds.get(i % itemIds.size()), start.plusDays(i), start.plusDays(i).plusHours(1),
+                    null, null, null));
+        }
+        Statistics statistics = startCountingStatements();
+
+        List<BookingBatchResultDto> results = bookingService.addBookings(newBooker.getId(), batch);
+        //Тест выполняется в транзакции, поэтому вставки отправляются в базу при сбросе контекста
+        entityManager.flush();
+
+        //Проверка пользователя, загрузка пользователя, загрузка вещей и периоды занятости каждой вещи,
+        //а также по два обращения к последовательности и пакета вставки: id выдаются и строки вставляются по 50
+        assertTrue(statistics.getPrepareStatementCount() <= 3 + itemIds.size() + 2 + 2,
+                "Слишком много SQL-запросов: " + statistics.getPrepareStatementCount());
+        assertEquals(statistics.getEntityInsertCount(), (long) batch.size(), "Количество вставленных бронирований не совпадает");
+        results.forEach(result -> assertEquals(result.getStatus(), 200, "Бронирование не создано: " + result.getError()));
+    }
+
+    private void assertStatements(Statistics statistics, long maxStatements, String state, int size) {
+        assertTrue(statistics.getPrepareStatementCount() <= maxStatements,
+                "Слишком много SQL-запросов: " + statistics.getPrepareStatementCount() + ", state: " + state + ", size: " + size);
+        //Страница собирается из значений столбцов, сущности не создаются
+        assertEquals(statistics.getEntityLoadCount(), 0L, "Загружены сущности, state: " + state + ", size: " + size);
+    }
+
+    //Связи должны быть загружены вместе со страницей, иначе обращение к ним вызовет дополнительные запросы
+    private void assertDetailsLoaded(List<BookingResponseDto> bookings) {
+        long statementsBefore = entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getPrepareStatementCount();
+        for (BookingResponseDto booking : bookings) {
+            assertNotNull(booking.getItem().getName(), "Наименование вещи не загружено");
+            assertEquals(booking.getItem().getOwner().getId(), owner.getId(), "Владелец вещи не совпадает");
+            assertNotNull(booking.getItem().getRequest().getRequestor().getName(), "Автор запроса не загружен");
+            assertEquals(booking.getBooker().getId(), booker.getId(), "Арендатор не совпадает");
+        }
+        assertEquals(entityManagerFactory.unwrap(SessionFactory.class).getStatistics().getPrepareStatementCount(), statementsBefore,
+                "Обращение к связям бронирования вызвало дополнительные SQL-запросы");
+    }
+
+    private Statistics startCountingStatements() {
+        //Сбрасываем контекст, чтобы все данные читались из базы
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    private void prepareDataForTest() {
+        owner = saveUser("Owner", "query-count-owner@ya.ru");
+        booker = saveUser("Booker", "query-count-booker@ya.ru");
+
+        LocalDateTime now = LocalDateTime.now();
+        StatusOfBooking[] statuses = StatusOfBooking.values();
+        for (int i = 0; i < NUMBER_OF_ITEMS; i++) {
+            //Каждая вещь создана по запросу отдельного пользователя, чтобы связи не совпадали между бронированиями
+            User requestor = saveUser("Requestor " + i, "query-count-requestor-" + i + "@ya.ru");
+            Request request = new Request();
+            request.setDescription("Request " + i);
+            request.setRequestor(requestor);
+            request.setCreated(now.minusDays(100));
+            request = requestRepository.save(request);
+
+            Item item = new Item();
+            item.setName("Item " + i);
+            item.setDescription("Item " + i);
+            item.setAvailable(true);
+            item.setOwner(owner);
+            item.setRequest(request);
+            item = itemRepository.save(item);
+            itemIds.add(item.getId());
+
+            //Прошлые, текущие и будущие бронирования всех статусов
+            for (int j = 0; j < statuses.length; j++) {
+                Booking past = saveBooking(item, now.minusDays(20 + j), now.minusDays(10 + j), statuses[j]);
+                saveBooking(item, now.minusDays(1 + j), now.plusDays(1 + j), statuses[j]);
+                saveBooking(item, now.plusDays(10 + j), now.plusDays(20 + j), statuses[j]);
+                if (firstBooking == null) {
+                    firstBooking = past;
+                }
+            }
+        }
+    }
+
+    private User saveUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return userRepository.save(user);
+    }
+
+    private Booking saveBooking(Item item, LocalDateTime start, LocalDateTime end, StatusOfBooking status) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setStatus(status);
+        return bookingRepository.save(booking);
+    }
+}
@@ -0,0 +1,303 @@
+package ru.practicum.shareit.Booking;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingBatchResultDto;
+import ru.practicum.shareit.booking.dto.BookingDecisionDto;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.dto.BookingResponseDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingBatchRepository;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+
+//Индекс занятости вещей хранится в памяти и не откатывается вместе с транзакцией теста, поэтому контекст пересоздается
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Transactional
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class BookingServiceTest {
+    private final BookingService bookingService;
+    private final BookingRepository bookingRepository;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+    @SpyBean
+    private BookingBatchRepository bookingBatchRepository;
+    private User owner;
+    private User booker;
+    private User otherBooker;
+    private Item item;
+    private LocalDateTime start;
+
+    //Нельзя создать бронирование на период, пересекающийся с подтвержденным бронированием
+    @Test
+    void addBookingOverlappingApprovedBookingIsRejected() {
+        prepareDataForTest();
+        BookingResponseDto approved = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(2)));
+        bookingService.updateBooking(approved.getId(), owner.getId(), true);
+
+        BadRequestException exp = Assertions.assertThrows(BadRequestException.class,
+                () -> bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(3))));
+        assertEquals(exp.getMessage(), "Item: " + item.getId() + " is already booked from: " + start
+                + " to: " + start.plusDays(2) + ".", "Сообщение об ошибке не совпадает");
+    }
+
+    //Из двух пересекающихся бронирований в ожидании можно подтвердить только одно
+    @Test
+    void approveOverlappingBookingIsRejected() {
+        prepareDataForTest();
+        BookingResponseDto first = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(2)));
+        BookingResponseDto second = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(3)));
+
+        bookingService.updateBooking(first.getId(), owner.getId(), true);
+
+        Assertions.assertThrows(BadRequestException.class, () -> bookingService.updateBooking(second.getId(), owner.getId(), true));
+        assertEquals(bookingRepository.findById(second.getId()).orElseThrow().getStatus(), StatusOfBooking.WAITING,
+                "Статус бронирования не должен меняться");
+        //Отклонить пересекающееся бронирование можно
+        assertEquals(bookingService.updateBooking(second.getId(), owner.getId(), false).getStatus(), StatusOfBooking.REJECTED,
+                "Статус бронирования не совпадает");
+    }
+
+    //Бронирования, которые следуют одно за другим без пересечения, подтверждаются
+    @Test
+    void approveAdjacentBookings() {
+        prepareDataForTest();
+        BookingResponseDto first = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(1)));
+        BookingResponseDto second = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(2)));
+        BookingResponseDto third = bookingService.addBooking(booker.getId(), createBookingDto(start.minusDays(1), start));
+
+        assertEquals(bookingService.updateBooking(first.getId(), owner.getId(), true).getStatus(), StatusOfBooking.APPROVED,
+                "Статус бронирования не совпадает");
+        assertEquals(bookingService.updateBooking(second.getId(), owner.getId(), true).getStatus(), StatusOfBooking.APPROVED,
+                "Статус бронирования не совпадает");
+        assertEquals(bookingService.updateBooking(third.getId(), owner.getId(), true).getStatus(), StatusOfBooking.APPROVED,
+                "Статус бронирования не совпадает");
+    }
+
+    //Подтвержденные бронирования, сохраненные в базе данных ранее, учитываются при проверке занятости вещи
+    @Test
+    void addBookingOverlappingStoredApprovedBookingIsRejected() {
+        prepareDataForTest();
+        Booking stored = new Booking();
+        stored.setItem(item);
+        stored.setBooker(booker);
+        stored.setStart(start.plusDays(5));
+        stored.setEnd(start.plusDays(6));
+        stored.setStatus(StatusOfBooking.APPROVED);
+        bookingRepository.save(stored);
+
+        Assertions.assertThrows(BadRequestException.class,
+                () -> bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(4), start.plusDays(7))));
+        assertEquals(bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(6), start.plusDays(7))).getStatus(),
+                StatusOfBooking.WAITING, "Статус бронирования не совпадает");
+    }
+
+    //Бронирования пакета проверяются по отдельности: ошибочные не создаются и не мешают созданию остальных
+    @Test
+    void addBookingsCreatesValidBookingsAndReportsErrors() {
+        prepareDataForTest();
+        BookingResponseDto approved = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(2)));
+        bookingService.updateBooking(approved.getId(), owner.getId(), true);
+        BookingDto unknownItem = createBookingDto(start.plusDays(10), start.plusDays(11));
+        unknownItem.setItemId(item.getId() + 100);
+
+        List<BookingBatchResultDto> results = bookingService.addBookings(otherBooker.getId(), List.of(
+                createBookingDto(start.plusDays(3), start.plusDays(4)),
+                unknownItem,
+                createBookingDto(start.plusDays(1), start.plusDays(3)),
+                createBookingDto(start.minusDays(20), start.minusDays(19)),
+                createBookingDto(start.plusDays(5), start.plusDays(6))));
+
+        assertEquals(results.size(), 5, "Количество результатов не совпадает");
+        for (int i = 0; i < results.size(); i++) {
+            assertEquals(results.get(i).getIndex(), i, "Порядок результатов не совпадает с порядком бронирований");
+        }
+        assertEquals(results.get(1).getStatus(), 404, "Код ответа не совпадает");
+        assertEquals(results.get(1).getError(), "Item with id: " + unknownItem.getItemId() + " is not exist.",
+                "Сообщение об ошибке не совпадает");
+        assertEquals(results.get(2).getStatus(), 400, "Пересечение с подтвержденным бронированием не обнаружено");
+        assertEquals(results.get(3).getStatus(), 400, "Бронирование в прошлом не должно создаваться");
+        for (int i : List.of(0, 4)) {
+            BookingResponseDto created = results.get(i).getBooking();
+            assertEquals(results.get(i).getStatus(), 200, "Код ответа не совпадает");
+            assertEquals(created.getStatus(), StatusOfBooking.WAITING, "Статус бронирования не совпадает");
+            assertEquals(created.getItem().getId(), item.getId(), "Вещь бронирования не совпадает");
+            Booking stored = bookingRepository.findById(created.getId()).orElseThrow();
+            assertEquals(stored.getBooker().getId(), otherBooker.getId(), "Арендатор не совпадает");
+            assertEquals(stored.getStart(), created.getStart(), "Дата начала бронирования не совпадает");
+        }
+        assertEquals(bookingRepository.getAllByItemId(item.getId()).size(), 3, "Количество бронирований вещи не совпадает");
+    }
+
+    //Пакет без бронирований или больше допустимого размера отклоняется целиком
+    @Test
+    void addBookingsRejectsEmptyAndTooLargeBatch() {
+        prepareDataForTest();
+
+        Assertions.assertThrows(BadRequestException.class, () -> bookingService.addBookings(booker.getId(), List.of()));
+        List<BookingDto> tooLarge = Collections.nCopies(BookingService.MAX_SIZE_OF_BATCH + 1, createBookingDto(start, start.plusDays(1)));
+        Assertions.assertThrows(BadRequestException.class, () -> bookingService.addBookings(booker.getId(), tooLarge));
+        Assertions.assertThrows(NoSuchElementException.class,
+                () -> bookingService.addBookings(owner.getId() + 100, List.of(createBookingDto(start, start.plusDays(1)))));
+    }
+
+    //Решения по пакету бронирований применяются по отдельности, пересекающиеся бронирования не подтверждаются
+    @Test
+    void updateBookingsAppliesDecisionsAndReportsErrors() {
+        prepareDataForTest();
+        BookingResponseDto first = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(2)));
+        BookingResponseDto overlapping = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(3)));
+        BookingResponseDto rejected = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(3)));
+        BookingResponseDto adjacent = bookingService.addBooking(booker.getId(), createBookingDto(start.plusDays(2), start.plusDays(4)));
+
+        List<BookingBatchResultDto> results = bookingService.updateBookings(owner.getId(), List.of(
+                new BookingDecisionDto(first.getId(), true),
+                new BookingDecisionDto(overlapping.getId(), true),
+                new BookingDecisionDto(rejected.getId(), false),
+                new BookingDecisionDto(adjacent.getId(), true),
+                new BookingDecisionDto(first.getId(), false),
+                new BookingDecisionDto(adjacent.getId() + 100, true)));
+
+        assertEquals(results.get(0).getBooking().getStatus(), StatusOfBooking.APPROVED, "Статус бронирования не совпадает");
+        assertEquals(results.get(1).getStatus(), 400, "Пересекающееся бронирование не должно подтверждаться");
+        assertEquals(results.get(1).getError(), "Item: " + item.getId() + " is already booked from: " + start
+                + " to: " + start.plusDays(2) + ".", "Сообщение об ошибке не совпадает");
+        assertEquals(results.get(2).getBooking().getStatus(), StatusOfBooking.REJECTED, "Статус бронирования не совпадает");
+        assertEquals(results.get(3).getBooking().getStatus(), StatusOfBooking.APPROVED, "Статус бронирования не совпадает");
+        assertEquals(results.get(4).getStatus(), 400, "Повторное решение по бронированию не должно применяться");
+        assertEquals(results.get(5).getStatus(), 404, "Код ответа не совпадает");
+        assertEquals(bookingRepository.findById(first.getId()).orElseThrow().getStatus(), StatusOfBooking.APPROVED,
+                "Статус бронирования в базе данных не совпадает");
+        assertEquals(bookingRepository.findById(overlapping.getId()).orElseThrow().getStatus(), StatusOfBooking.WAITING,
+                "Статус бронирования в базе данных не совпадает");
+        assertEquals(bookingRepository.findById(rejected.getId()).orElseThrow().getStatus(), StatusOfBooking.REJECTED,
+                "Статус бронирования в базе данных не совпадает");
+        //Подтвержденные пакетом периоды учитываются при создании новых бронирований
+        Assertions.assertThrows(BadRequestException.class,
+                () -> bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(3), start.plusDays(5))));
+    }
+
+    //Если ограничение базы данных отклонило пакет, не меняется ни один статус пакета
+    @Test
+    void updateBookingsIsNotAppliedOnConstraintViolation() {
+        prepareDataForTest();
+        BookingResponseDto first = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(1)));
+        BookingResponseDto conflicting = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(2)));
+        BookingResponseDto rejected = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(2)));
+        //Подтвержденное бронирование другого экземпляра сервера, которого нет в индексе занятости
+        doThrow(new DataIntegrityViolationException("bookings_approved_no_overlap")).when(bookingBatchRepository)
+                .updateStatuses(argThat(bookings -> bookings.stream().anyMatch(booking -> booking.getId() == conflicting.getId())));
+
+        List<BookingBatchResultDto> results = bookingService.updateBookings(owner.getId(), List.of(
+                new BookingDecisionDto(first.getId(), true),
+                new BookingDecisionDto(conflicting.getId(), true),
+                new BookingDecisionDto(rejected.getId(), false),
+                new BookingDecisionDto(rejected.getId() + 100, true)));
+
+        for (int i = 0; i < 3; i++) {
+            assertEquals(results.get(i).getStatus(), 400, "Решения отклоненного пакета не должны применяться");
+            assertEquals(results.get(i).getError(),
+                    "Batch is rejected: approved bookings of items have changed, booking status is not changed.",
+                    "Сообщение об ошибке не совпадает");
+        }
+        assertEquals(results.get(3).getStatus(), 404, "Ошибка проверки решения не должна меняться");
+        Mockito.verify(bookingBatchRepository, Mockito.times(1)).updateStatuses(Mockito.anyList());
+        for (BookingResponseDto booking : List.of(first, conflicting, rejected)) {
+            assertEquals(bookingRepository.findById(booking.getId()).orElseThrow().getStatus(), StatusOfBooking.WAITING,
+                    "Статус бронирования в базе данных не совпадает");
+        }
+    }
+
+    //Из пересекающихся подтверждений пакета применяется первое, остальные отклоняются до записи пакета
+    @Test
+    void updateBookingsRejectsApprovalOverlappingEarlierApprovalOfBatch() {
+        prepareDataForTest();
+        BookingResponseDto unapplied = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(2)));
+        BookingResponseDto overlapping = bookingService.addBooking(otherBooker.getId(), createBookingDto(start.plusDays(1), start.plusDays(3)));
+        //Статус первого бронирования успел измениться до сохранения пакета
+        doReturn(new int[]{0}).when(bookingBatchRepository)
+                .updateStatuses(argThat(bookings -> bookings.size() == 1 && bookings.get(0).getId() == unapplied.getId()));
+
+        List<BookingBatchResultDto> results = bookingService.updateBookings(owner.getId(), List.of(
+                new BookingDecisionDto(unapplied.getId(), true),
+                new BookingDecisionDto(overlapping.getId(), true)));
+
+        assertEquals(results.get(0).getStatus(), 400, "Код ответа не совпадает");
+        assertEquals(results.get(0).getError(), "Only booking in status Wait can be approved", "Сообщение об ошибке не совпадает");
+        assertEquals(results.get(1).getStatus(), 400, "Пересекающееся подтверждение не должно применяться");
+        assertEquals(bookingRepository.findById(overlapping.getId()).orElseThrow().getStatus(), StatusOfBooking.WAITING,
+                "Статус бронирования в базе данных не совпадает");
+    }
+
+    //Решения по бронированиям чужих вещей не применяются
+    @Test
+    void updateBookingsOfOtherOwnerAreNotApplied() {
+        prepareDataForTest();
+        BookingResponseDto booking = bookingService.addBooking(booker.getId(), createBookingDto(start, start.plusDays(1)));
+
+        List<BookingBatchResultDto> results = bookingService.updateBookings(otherBooker.getId(),
+                List.of(new BookingDecisionDto(booking.getId(), true)));
+
+        assertEquals(results.get(0).getStatus(), 404, "Код ответа не совпадает");
+        assertEquals(results.get(0).getError(), "Booking with id: " + booking.getId() + " has other owner.",
+                "Сообщение об ошибке не совпадает");
+        assertEquals(bookingRepository.findById(booking.getId()).orElseThrow().getStatus(), StatusOfBooking.WAITING,
+                "Статус бронирования не должен меняться");
+        Assertions.assertThrows(BadRequestException.class, () -> bookingService.updateBookings(owner.getId(), List.of()));
+    }
+
+    private BookingDto createBookingDto(LocalDateTime start, LocalDateTime end) {
+        BookingDto bookingDto = new BookingDto();
+        bookingDto.setItemId(item.getId());
+        bookingDto.setStart(start);
+        bookingDto.setEnd(end);
+        return bookingDto;
+    }
+
+    private void prepareDataForTest() {
+        owner = saveUser("Owner", "interval-owner@ya.ru");
+        booker = saveUser("Booker", "interval-booker@ya.ru");
+        otherBooker = saveUser("Other booker", "interval-other-booker@ya.ru");
+
+        item = new Item();
+        item.setName("Дрель");
+        item.setDescription("Простая дрель");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        item = itemRepository.save(item);
+
+        start = LocalDateTime.now().withNano(0).plusDays(10);
+    }
+
+    private User saveUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,159 @@
+package ru.practicum.shareit.Item;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.booking.service.BookingService;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemResponseDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Кеш вещей не откатывается вместе с транзакцией, поэтому тест работает без транзакции и удаляет данные сам
+@DirtiesContext
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ItemCacheTest {
+    private final ItemService itemService;
+    private final BookingService bookingService;
+    private final UserService userService;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final UserRepository userRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+    private final JdbcTemplate jdbcTemplate;
+    private UserDto owner;
+    private UserDto booker;
+
+    @AfterEach
+    void clean() {
+        bookingRepository.deleteAll();
+        itemRepository.deleteAll();
+        userRepository.deleteAll();
+    }
+
+    //Созданная вещь сразу записывается в кеш, повторные проверки вещи не обращаются к базе данных
+    @Test
+    void repeatedChecksOfItemAreServedFromCache() {
+        ItemResponseDto item = addItem("Дрель");
+        itemRepository.existsById(item.getId());
+        double hitsBefore = cacheHits(ItemRepository.ITEM_EXISTS_CACHE) + cacheHits(ItemRepository.ITEMS_CACHE);
+        Statistics statistics = startCountingStatements();
+
+        for (int i = 0; i < 10; i++) {
+            Assertions.assertTrue(itemRepository.existsById(item.getId()), "Вещь должна существовать");
+            assertEquals(itemRepository.findById(item.getId()).orElseThrow().getName(), "Дрель", "Наименование вещи не совпадает");
+        }
+
+        assertEquals(statistics.getPrepareStatementCount(), 0L, "Проверка вещи не должна выполнять SQL-запросы");
+        assertEquals(cacheHits(ItemRepository.ITEM_EXISTS_CACHE) + cacheHits(ItemRepository.ITEMS_CACHE) - hitsBefore, 20.0,
+                "Количество попаданий в кеш не совпадает");
+    }
+
+    //Каждое чтение из кеша возвращает отдельную копию вещи с версией строки, изменение копии не меняет кеш
+    @Test
+    void cachedItemIsCopiedOnRead() {
+        ItemResponseDto item = addItem("Лобзик");
+        Item first = itemRepository.findById(item.getId()).orElseThrow();
+        Item second = itemRepository.findById(item.getId()).orElseThrow();
+        Assertions.assertNotSame(first, second, "Из кеша должна возвращаться копия вещи");
+        Assertions.assertNotSame(first.getOwner(), second.getOwner(), "Из кеша должна возвращаться копия владельца");
+
+        first.setName("Измененный лобзик");
+        first.getOwner().setName("Измененный владелец");
+
+        Item cached = itemRepository.findById(item.getId()).orElseThrow();
+        assertEquals(cached.getName(), "Лобзик", "Изменение копии не должно менять вещь в кеше");
+        assertEquals(cached.getOwner().getName(), "Owner", "Изменение копии не должно менять владельца в кеше");
+        assertEquals(cached.getVersion(), jdbcTemplate.queryForObject("select version from items where id = ?", Long.class, item.getId()),
+                "Копия вещи должна содержать версию строки");
+    }
+
+    //Изменение вещи сразу записывается в кеш, и бронирование недоступной вещи отклоняется
+    @Test
+    void updateItemRefreshesCachedItem() {
+        ItemResponseDto item = addItem("Пила");
+        assertEquals(itemService.getById(owner.getId(), item.getId()).isAvailable(), true, "Вещь должна быть доступна");
+
+        itemService.updateItem(owner.getId(), item.getId(), new ItemDto(0, "Старая пила", null, "false", null, 0));
+
+        ItemResponseDto updated = itemService.getById(owner.getId(), item.getId());
+        assertEquals(updated.getName(), "Старая пила", "Из кеша прочитаны устаревшие данные");
+        assertEquals(updated.isAvailable(), false, "Из кеша прочитаны устаревшие данные");
+        BadRequestException exp = Assertions.assertThrows(BadRequestException.class,
+                () -> bookingService.addBooking(booker.getId(), createBookingDto(item.getId())));
+        assertEquals(exp.getMessage(), "Item: " + item.getId() + " is not available.", "Сообщение об ошибке не совпадает");
+    }
+
+    //Вещь, ставшая недоступной в обход кеша (например, на другом экземпляре сервера), не бронируется
+    @Test
+    void addBookingChecksAvailabilityInDatabase() {
+        ItemResponseDto item = addItem("Молоток");
+        Assertions.assertTrue(itemRepository.findById(item.getId()).orElseThrow().isAvailable(), "Вещь должна быть доступна");
+
+        jdbcTemplate.update("update items set available = false where id = ?", item.getId());
+
+        Assertions.assertTrue(itemRepository.findById(item.getId()).orElseThrow().isAvailable(), "Вещь должна быть прочитана из кеша");
+        Assertions.assertThrows(BadRequestException.class,
+                () -> bookingService.addBooking(booker.getId(), createBookingDto(item.getId())));
+        Assertions.assertTrue(bookingRepository.getAllByItemId(item.getId()).isEmpty(), "Бронирование не должно быть создано");
+    }
+
+    //Изменение владельца очищает кеш вещей, так как вещь хранится в кеше вместе с владельцем
+    @Test
+    void updateOwnerEvictsCachedItems() {
+        ItemResponseDto item = addItem("Отвертка");
+        assertEquals(itemService.getById(owner.getId(), item.getId()).getOwner().getName(), "Owner", "Имя владельца не совпадает");
+
+        userService.updateUser(owner.getId(), new UserDto(0, "New owner", null));
+
+        assertEquals(itemService.getById(owner.getId(), item.getId()).getOwner().getName(), "New owner",
+                "Из кеша прочитаны устаревшие данные владельца");
+    }
+
+    private ItemResponseDto addItem(String name) {
+        owner = userService.addUser(new UserDto(0, "Owner", "item-cache-owner@ya.ru"));
+        booker = userService.addUser(new UserDto(0, "Booker", "item-cache-booker@ya.ru"));
+        return itemService.addItem(owner.getId(), new ItemDto(0, name, name, "true", null, 0));
+    }
+
+    private BookingDto createBookingDto(long itemId) {
+        BookingDto bookingDto = new BookingDto();
+        bookingDto.setItemId(itemId);
+        bookingDto.setStart(LocalDateTime.now().plusDays(1));
+        bookingDto.setEnd(LocalDateTime.now().plusDays(2));
+        return bookingDto;
+    }
+
+    private double cacheHits(String cacheName) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", "hit").functionCounter().count();
+    }
+
+    private Statistics startCountingStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.comment.dto.CommentDto;
@@ -26,10 +27,13 @@ import java.time.format.DateTimeFormatter;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.NoSuchElementException;
+import java.util.function.Predicate;
 
 import static org.mockito.ArgumentMatchers.*;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -151,7 +155,7 @@ public class ItemControllerTest {
     void getByIdIfEverythingOk() throws Exception {
         prepareDataForTest();
 
-        when(itemService.getById(any(Long.class), any(Long.class))).thenReturn(itemResponseDto1);
+        when(itemService.getById(any(Long.class), any(Long.class), any())).thenReturn(itemResponseDto1);
 
         mvc.perform(get("/items/1")
                         .header("X-Sharer-User-Id", 1)
@@ -169,9 +173,57 @@ public class ItemControllerTest {
                 .andExpect(jsonPath("$.owner.name").value(itemResponseDto1.getOwner().getName()));
     }
 
+    //ETag строится сервисом до сериализации ответа, повторный запрос с этим ETag получает ответ 304 без тела
+    @Test
+    void getByIdReturnsNotModifiedForMatchingETag() throws Exception {
+        prepareDataForTest();
+
+        when(itemService.getById(any(Long.class), any(Long.class), any())).thenAnswer(invocation ->
+                invocation.<Predicate<String>>getArgument(2).test("\"item-1-0\"") ? null : itemResponseDto1);
+
+        String eTag = mvc.perform(get("/items/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.id").value(itemResponseDto1.getId()))
+                .andExpect(header().string(HttpHeaders.ETAG, "\"item-1-0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/items/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    //Ответы на изменяющие запросы и ответы с ошибкой не содержат ETag
+    @Test
+    void changesAndErrorsHaveNoETag() throws Exception {
+        prepareDataForTest();
+
+        when(itemService.addItem(any(Long.class), any(ItemDto.class))).thenReturn(itemResponseDto);
+        when(itemService.getById(any(Long.class), any(Long.class), any())).thenThrow(NoSuchElementException.class);
+
+        mvc.perform(post("/items")
+                        .content(mapper.writeValueAsString(itemDto))
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+        mvc.perform(get("/items/1")
+                        .header("X-Sharer-User-Id", 1)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotFound())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG));
+    }
+
     @Test
     void getByIdIfBadRequest() throws Exception {
-        when(itemService.getById(any(Long.class), any(Long.class))).thenThrow(BadRequestException.class);
+        when(itemService.getById(any(Long.class), any(Long.class), any())).thenThrow(BadRequestException.class);
 
         mvc.perform(get("/items/1")
                         .header("X-Sharer-User-Id", 1)
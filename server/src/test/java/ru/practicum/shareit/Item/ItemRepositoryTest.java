@@ -62,6 +62,18 @@ public class ItemRepositoryTest {
         Assertions.assertEquals(resultOfSearch.get(0).getRequest(), testItem2.getRequest(), "Вещи должны совпадать");
     }
 
+    //Недоступная вещь не попадает в результаты поиска, даже если текст найден в наименовании
+    @Test
+    void searchAvailableItemsByTextSkipsUnavailableItems() {
+        prepareDataForTest();
+        testItem1.setAvailable(false);
+        itemRepository.save(testItem1);
+        itemRepository.save(testItem2);
+        List<Item> resultOfSearch = itemRepository.searchAvailableItemsByText("item", PageRequest.of(0, 999, Sort.by("id").ascending()));
+        Assertions.assertEquals(resultOfSearch.size(), 1, "Должна быть найдена только доступная вещь");
+        Assertions.assertEquals(resultOfSearch.get(0).getName(), testItem2.getName(), "Вещи должны совпадать");
+    }
+
     private void prepareDataForTest() {
         //Создаем вещи для теста
         testItem = new Item();
@@ -0,0 +1,115 @@
+package ru.practicum.shareit.Item;
+
+import lombok.RequiredArgsConstructor;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.item.dto.ItemDto;
+import ru.practicum.shareit.item.dto.ItemResponseDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.transaction.Transactional;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+//Индекс хранится в памяти и не откатывается вместе с транзакцией теста, поэтому контекст пересоздается
+@DirtiesContext(classMode = DirtiesContext.ClassMode.AFTER_EACH_TEST_METHOD)
+@Transactional
+@SpringBootTest(properties = "shareit.search.in-memory.enabled=true")
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ItemSearchIndexTest {
+    private static final List<String> QUERIES = List.of("дрель", "ДРЕЛЬ", "акк", "ит", "e", "item", "tem 1", "отсутствует");
+
+    private final ItemService itemService;
+    private final ItemRepository itemRepository;
+    private final UserRepository userRepository;
+
+    //Поиск в памяти возвращает те же вещи и в том же порядке, что и поиск в базе данных
+    @Test
+    void searchInMemoryReturnsSameItemsAsDatabase() {
+        prepareDataForTest();
+
+        for (String query : QUERIES) {
+            assertEquals(searchInDatabase(query, Pageable.unpaged()), searchInMemory(query, null, null),
+                    "Результаты поиска не совпадают для текста: " + query);
+            for (int size = 1; size <= 3; size++) {
+                for (int from = 0; from <= 6; from++) {
+                    assertEquals(searchInDatabase(query, PageRequest.of(from / size, size, Sort.by("id").ascending())),
+                            searchInMemory(query, from, size),
+                            "Результаты поиска не совпадают для текста: " + query + ", from: " + from + ", size: " + size);
+                }
+            }
+        }
+    }
+
+    //Постраничный поиск по курсору в памяти совпадает с поиском по курсору в базе данных
+    @Test
+    void searchInMemoryAfterCursorReturnsSameItemsAsDatabase() {
+        prepareDataForTest();
+        List<Long> allIds = itemRepository.findAll().stream().map(Item::getId).collect(Collectors.toList());
+
+        for (String query : QUERIES) {
+            for (long cursor : allIds) {
+                assertEquals(itemRepository.searchAvailableItemsByTextAfterCursor(query, cursor, PageRequest.of(0, 2)).stream()
+                                .map(Item::getId)
+                                .collect(Collectors.toList()),
+                        itemService.getItemsWithTextAfterCursor(query, cursor, 2).stream()
+                                .map(ItemResponseDto::getId)
+                                .collect(Collectors.toList()),
+                        "Результаты поиска не совпадают для текста: " + query + ", cursor: " + cursor);
+            }
+        }
+    }
+
+    private List<Long> searchInDatabase(String query, Pageable pageable) {
+        return itemRepository.searchAvailableItemsByText(query, pageable).stream()
+                .map(Item::getId)
+                .collect(Collectors.toList());
+    }
+
+    private List<Long> searchInMemory(String query, Integer from, Integer size) {
+        return itemService.getItemsWithText(query, from, size).stream()
+                .map(ItemResponseDto::getId)
+                .collect(Collectors.toList());
+    }
+
+    private void prepareDataForTest() {
+        User owner = new User();
+        owner.setName("Owner");
+        owner.setEmail("search-owner@ya.ru");
+        owner = userRepository.save(owner);
+
+        addItem(owner, "Дрель", "Простая дрель", "true");
+        addItem(owner, "Аккумуляторная дрель", "Дрель с аккумулятором", "true");
+        addItem(owner, "Отвертка", "Аккумуляторная отвертка", "true");
+        addItem(owner, "Test item 1", "Description", "true");
+        addItem(owner, "Test item 2", "Дрель не работает", "false");
+        addItem(owner, "It", "e", "true");
+        ItemResponseDto changed = addItem(owner, "Шуруповерт", "Без аккумулятора", "true");
+        addItem(owner, "Test item 3", "Item with дрель", "true");
+
+        //Изменение доступности и описания должно сразу учитываться в индексе
+        ItemDto update = new ItemDto();
+        update.setDescription("Шуруповерт с дрелью");
+        update.setAvailable("false");
+        itemService.updateItem(owner.getId(), changed.getId(), update);
+    }
+
+    private ItemResponseDto addItem(User owner, String name, String description, String available) {
+        ItemDto itemDto = new ItemDto();
+        itemDto.setName(name);
+        itemDto.setDescription(description);
+        itemDto.setAvailable(available);
+        return itemService.addItem(owner.getId(), itemDto);
+    }
+}
@@ -0,0 +1,182 @@
+package ru.practicum.shareit.Item;
+
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.dto.ItemResponseDto;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.item.service.ItemService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@Transactional
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class ItemServiceQueryCountTest {
+    //Запрос вещи, запросы последнего и следующего бронирования, запрос версий авторов отзывов для ETag и запрос комментариев
+    private static final long MAX_STATEMENTS_FOR_OWNER = 5;
+    //Запрос вещи, запрос версий авторов отзывов для ETag и запрос комментариев
+    private static final long MAX_STATEMENTS_FOR_OTHER_USER = 3;
+
+    private final ItemService itemService;
+    private final UserRepository userRepository;
+    private final ItemRepository itemRepository;
+    private final BookingRepository bookingRepository;
+    private final CommentRepository commentRepository;
+    private final EntityManager entityManager;
+    private final EntityManagerFactory entityManagerFactory;
+    private User owner;
+    private User booker;
+    private Item item;
+    private Booking lastBooking;
+    private Booking nextBooking;
+
+    //Количество SQL-запросов при получении вещи владельцем не зависит от числа бронирований и комментариев
+    @Test
+    void getByIdForOwnerUsesFixedNumberOfStatements() {
+        prepareDataForTest();
+        Statistics statistics = startCountingStatements();
+
+        ItemResponseDto response = itemService.getById(owner.getId(), item.getId());
+
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_FOR_OWNER,
+                "Слишком много SQL-запросов: " + statistics.getPrepareStatementCount());
+        assertEquals(response.getLastBooking().getId(), lastBooking.getId(), "Последнее бронирование не совпадает");
+        assertEquals(response.getNextBooking().getId(), nextBooking.getId(), "Следующее бронирование не совпадает");
+        assertEquals(response.getComments().size(), 3, "Количество комментариев не совпадает");
+    }
+
+    //Последним считается завершенное бронирование, а не текущее: текущее бронирование началось позже,
+    //но еще не закончилось
+    @Test
+    void getByIdSkipsCurrentBookingAsLast() {
+        prepareDataForTest();
+        LocalDateTime now = LocalDateTime.now();
+        saveBooking(now.minusHours(1), now.plusHours(1), StatusOfBooking.APPROVED);
+        startCountingStatements();
+
+        ItemResponseDto response = itemService.getById(owner.getId(), item.getId());
+
+        assertEquals(response.getLastBooking().getId(), lastBooking.getId(), "Последнее бронирование не совпадает");
+        assertEquals(response.getNextBooking().getId(), nextBooking.getId(), "Следующее бронирование не совпадает");
+    }
+
+    //Пользователь, не являющийся владельцем, не видит бронирований и не вызывает запрос к ним
+    @Test
+    void getByIdForOtherUserSkipsBookings() {
+        prepareDataForTest();
+        Statistics statistics = startCountingStatements();
+
+        ItemResponseDto response = itemService.getById(booker.getId(), item.getId());
+
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_FOR_OTHER_USER,
+                "Слишком много SQL-запросов: " + statistics.getPrepareStatementCount());
+        assertEquals(response.getLastBooking(), null, "Последнее бронирование должно отсутствовать");
+        assertEquals(response.getNextBooking(), null, "Следующее бронирование должно отсутствовать");
+        assertEquals(response.getComments().size(), 3, "Количество комментариев не совпадает");
+    }
+
+    //При совпадении ETag отзывы не загружаются, а после добавления отзыва ETag меняется
+    @Test
+    void getByIdWithMatchingETagSkipsComments() {
+        prepareDataForTest();
+        AtomicReference<String> eTag = new AtomicReference<>();
+        itemService.getById(owner.getId(), item.getId(), tag -> {
+            eTag.set(tag);
+            return false;
+        });
+        Statistics statistics = startCountingStatements();
+
+        ItemResponseDto response = itemService.getById(owner.getId(), item.getId(), eTag.get()::equals);
+
+        assertEquals(response, null, "При совпадении ETag вещь не должна возвращаться");
+        assertTrue(statistics.getPrepareStatementCount() <= MAX_STATEMENTS_FOR_OWNER - 1,
+                "Слишком много SQL-запросов: " + statistics.getPrepareStatementCount());
+
+        Comment comment = new Comment();
+        comment.setText("New comment");
+        comment.setItem(item);
+        comment.setAuthor(booker);
+        comment.setCreated(LocalDateTime.now());
+        commentRepository.save(comment);
+
+        response = itemService.getById(owner.getId(), item.getId(), eTag.get()::equals);
+
+        assertEquals(response.getComments().size(), 4, "После нового отзыва ETag должен измениться");
+    }
+
+    private Statistics startCountingStatements() {
+        //Сбрасываем контекст, чтобы все данные читались из базы
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+
+    private void prepareDataForTest() {
+        owner = new User();
+        owner.setName("Owner");
+        owner.setEmail("owner@ya.ru");
+        owner = userRepository.save(owner);
+
+        booker = new User();
+        booker.setName("Booker");
+        booker.setEmail("booker@ya.ru");
+        booker = userRepository.save(booker);
+
+        item = new Item();
+        item.setName("Test item");
+        item.setDescription("Test item");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        item = itemRepository.save(item);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 1; i <= 5; i++) {
+            saveBooking(now.minusDays(20 + i), now.minusDays(10 + i), StatusOfBooking.APPROVED);
+            saveBooking(now.plusDays(10 + i), now.plusDays(20 + i), StatusOfBooking.APPROVED);
+            saveBooking(now.plusDays(1), now.plusDays(2), StatusOfBooking.REJECTED);
+        }
+        lastBooking = saveBooking(now.minusDays(3), now.minusDays(2), StatusOfBooking.APPROVED);
+        nextBooking = saveBooking(now.plusDays(2), now.plusDays(3), StatusOfBooking.APPROVED);
+
+        for (int i = 0; i < 3; i++) {
+            Comment comment = new Comment();
+            comment.setText("Test comment " + i);
+            comment.setItem(item);
+            comment.setAuthor(booker);
+            comment.setCreated(now);
+            commentRepository.save(comment);
+        }
+    }
+
+    private Booking saveBooking(LocalDateTime start, LocalDateTime end, StatusOfBooking status) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(start);
+        booking.setEnd(end);
+        booking.setStatus(status);
+        return bookingRepository.save(booking);
+    }
+}
@@ -5,6 +5,7 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.LastNextBooking;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -20,6 +21,7 @@ import ru.practicum.shareit.comment.repository.CommentRepository;
 import ru.practicum.shareit.exception.BadRequestException;
 import ru.practicum.shareit.item.dto.ItemDto;
 import ru.practicum.shareit.item.dto.ItemResponseDto;
+import ru.practicum.shareit.item.dto.ItemResponseMapper;
 import ru.practicum.shareit.item.model.Item;
 import ru.practicum.shareit.item.repository.ItemRepository;
 import ru.practicum.shareit.item.service.ItemService;
@@ -31,6 +33,7 @@ import ru.practicum.shareit.user.repository.UserRepository;
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.*;
+import java.util.stream.Collectors;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
@@ -450,7 +453,7 @@ public class ItemServiceTest {
                 .thenReturn(Optional.of(testItem));
         Mockito
                 .when(itemRepository.findItemByOwnerIdOrderByIdAsc(Mockito.any(Long.class), Mockito.any(Pageable.class)))
-                .thenReturn(itemsTest);
+                .thenReturn(itemsTest.stream().map(ItemResponseMapper::toItemDto).collect(Collectors.toList()));
 
         List<ItemResponseDto> response = itemService.getItemsOfOwner(2, 1, 999);
 
@@ -464,6 +467,36 @@ public class ItemServiceTest {
         assertEquals(response.get(1).isAvailable(), testItem1.isAvailable(), "Созданные вещи не совпадают");
     }
 
+    //Следующее и последнее бронирование определяется для каждой вещи владельца отдельно
+    @Test
+    void getItemsOfOwnerWithBookings() {
+        prepareDataForTest();
+
+        Booking pastBookingOfItem = createBooking(10, testItem, LocalDateTime.now().minusDays(5));
+        Booking laterPastBookingOfItem = createBooking(11, testItem, LocalDateTime.now().minusDays(2));
+        Booking futureBookingOfItem = createBooking(12, testItem, LocalDateTime.now().plusDays(5));
+        Booking nearFutureBookingOfItem = createBooking(13, testItem, LocalDateTime.now().plusDays(2));
+        Booking pastBookingOfItem1 = createBooking(14, testItem1, LocalDateTime.now().minusDays(1));
+
+        Mockito
+                .when(userRepository.existsById(Mockito.anyLong()))
+                .thenReturn(true);
+        Mockito
+                .when(itemRepository.findItemByOwnerIdOrderByIdAsc(Mockito.any(Long.class), Mockito.any(Pageable.class)))
+                .thenReturn(itemsTest.stream().map(ItemResponseMapper::toItemDto).collect(Collectors.toList()));
+        Mockito
+                .when(bookingRepository.getApprovedWithBookerByItemsId(Mockito.anyList()))
+                .thenReturn(List.of(pastBookingOfItem, futureBookingOfItem, pastBookingOfItem1,
+                        laterPastBookingOfItem, nearFutureBookingOfItem));
+
+        List<ItemResponseDto> response = itemService.getItemsOfOwner(2, 0, 10);
+
+        assertEquals(response.get(0).getLastBooking().getId(), laterPastBookingOfItem.getId(), "Последнее бронирование не совпадает");
+        assertEquals(response.get(0).getNextBooking().getId(), nearFutureBookingOfItem.getId(), "Следующее бронирование не совпадает");
+        assertEquals(response.get(1).getLastBooking().getId(), pastBookingOfItem1.getId(), "Последнее бронирование не совпадает");
+        assertEquals(response.get(1).getNextBooking(), null, "Следующее бронирование должно отсутствовать");
+    }
+
     @Test
     void getItemsWithTextIfEverythingIsOk() {
         prepareDataForTest();
@@ -531,33 +564,69 @@ public class ItemServiceTest {
     void getByIdIfEverythingIsOk() {
         prepareDataForTest();
 
-        Mockito
-                .when(userRepository.existsById(Mockito.anyLong()))
-                .thenReturn(true);
-        Mockito
-                .when(itemRepository.existsById(Mockito.anyLong()))
-                .thenReturn(true);
         Mockito
                 .when(itemRepository.findById(Mockito.anyLong()))
                 .thenReturn(Optional.of(testItem));
         Mockito
-                .when(bookingRepository.getNextBooking(Mockito.anyLong(), Mockito.anyLong()))
-                .thenReturn(null);
+                .when(bookingRepository.getLastApprovedByItemId(Mockito.anyLong(), Mockito.any(LocalDateTime.class), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(new LastNextBooking(3, testUser.getId())));
         Mockito
-                .when(bookingRepository.countBookingsByItemIdAndItemOwnerId(Mockito.anyLong(), Mockito.anyLong()))
-                .thenReturn(999L);
+                .when(bookingRepository.getNextApprovedByItemId(Mockito.anyLong(), Mockito.any(LocalDateTime.class), Mockito.any(Pageable.class)))
+                .thenReturn(List.of(new LastNextBooking(4, testUser.getId())));
         Mockito
-                .when(commentRepository.getAllByItemId(Mockito.anyLong()))
-                .thenReturn(new ArrayList<>());
-
+                .when(commentRepository.getAllWithAuthorByItemId(Mockito.anyLong()))
+                .thenReturn(List.of(comment));
 
-        ItemResponseDto response = itemService.getById(1, 1);
+        ItemResponseDto response = itemService.getById(testUser1.getId(), testItem.getId());
 
         assertEquals(response.getId(), testItem.getId(), "Созданные вещи не совпадают");
         assertEquals(response.getName(), testItem.getName(), "Созданные вещи не совпадают");
         assertEquals(response.getDescription(), testItem.getDescription(), "Созданные вещи не совпадают");
         assertEquals(response.getOwner(), testItem.getOwner(), "Созданные вещи не совпадают");
         assertEquals(response.getRequestId(), testItem.getRequest().getId(), "Созданные вещи не совпадают");
+        assertEquals(response.getLastBooking().getId(), 3, "Последнее бронирование не совпадает");
+        assertEquals(response.getNextBooking().getId(), 4, "Следующее бронирование не совпадает");
+        assertEquals(response.getComments(), List.of(commentResponseDto), "Отзывы не совпадают");
+        //Последнее бронирование найдено, поэтому правило единственного бронирования не проверяется
+        Mockito.verify(bookingRepository, Mockito.never()).getApprovedByItemIdIfOnlyOne(Mockito.anyLong());
+    }
+
+    //Единственное бронирование вещи владелец видит как последнее, даже если оно еще не завершилось
+    @Test
+    void getByIdIfOnlyOneBooking() {
+        prepareDataForTest();
+
+        Mockito
+                .when(itemRepository.findById(Mockito.anyLong()))
+                .thenReturn(Optional.of(testItem));
+        Mockito
+                .when(bookingRepository.getLastApprovedByItemId(Mockito.anyLong(), Mockito.any(LocalDateTime.class), Mockito.any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
+        Mockito
+                .when(bookingRepository.getNextApprovedByItemId(Mockito.anyLong(), Mockito.any(LocalDateTime.class), Mockito.any(Pageable.class)))
+                .thenReturn(new ArrayList<>());
+        Mockito
+                .when(bookingRepository.getApprovedByItemIdIfOnlyOne(Mockito.anyLong()))
+                .thenReturn(List.of(new LastNextBooking(5, 1)));
+        Mockito
+                .when(commentRepository.getAllWithAuthorByItemId(Mockito.anyLong()))
+                .thenReturn(new ArrayList<>());
+
+        ItemResponseDto response = itemService.getById(testUser1.getId(), testItem.getId());
+
+        assertEquals(response.getNextBooking(), null, "Следующее бронирование должно отсутствовать");
+        assertEquals(response.getLastBooking().getId(), 5, "Последнее бронирование не совпадает");
+    }
+
+    private Booking createBooking(long id, Item item, LocalDateTime start) {
+        Booking newBooking = new Booking();
+        newBooking.setId(id);
+        newBooking.setItem(item);
+        newBooking.setStatus(StatusOfBooking.APPROVED);
+        newBooking.setStart(start);
+        newBooking.setEnd(start.plusHours(1));
+        newBooking.setBooker(testUser);
+        return newBooking;
     }
 
     private void prepareDataForTest() {
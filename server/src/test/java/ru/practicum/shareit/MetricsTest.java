@@ -0,0 +1,200 @@
+package ru.practicum.shareit;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.web.method.HandlerMethod;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.metrics.QueryBudget;
+import ru.practicum.shareit.metrics.RequestStatistics;
+import ru.practicum.shareit.metrics.RequestStatisticsInterceptor;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Transactional
+@SpringBootTest
+@AutoConfigureMockMvc
+public class MetricsTest {
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManager entityManager;
+
+    //Количество SQL-запросов HTTP-запроса публикуется с шаблоном адреса, счетчики потока сбрасываются после запроса
+    @Test
+    void requestPublishesStatementsAndEntityLoads() throws Exception {
+        Item item = saveItem();
+        double countBefore = statementsSummaryCount();
+
+        mvc.perform(get("/items/" + item.getId()).header("X-Sharer-User-Id", item.getOwner().getId()))
+                .andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("shareit.request.sql.statements")
+                .tag("method", "GET").tag("uri", "/items/{id}").summary();
+        assertEquals(statements.count() - countBefore, 1.0, "Количество запросов в метрике не совпадает");
+        assertTrue(statements.totalAmount() > 0, "SQL-запросы получения вещи не подсчитаны");
+        meterRegistry.get("shareit.request.entity.loads").tag("uri", "/items/{id}").summary();
+        assertNull(RequestStatistics.current(), "Счетчики запроса не сброшены после его завершения");
+    }
+
+    //Запросы JdbcTemplate учитываются наравне с запросами Hibernate: подготовленный запрос и запрос без подготовки
+    @Test
+    void jdbcTemplateStatementsAreCounted() {
+        RequestStatistics statistics = RequestStatistics.start();
+        try {
+            jdbcTemplate.queryForObject("select count(*) from users where id > ?", Long.class, 0);
+            jdbcTemplate.execute("select 1");
+        } finally {
+            RequestStatistics.finish();
+        }
+
+        assertEquals(statistics.getStatements(), 2L, "Запросы JdbcTemplate не подсчитаны");
+    }
+
+    //Пакетное изменение статусов через JdbcTemplate учитывается в метрике одним запросом
+    @Test
+    void bookingBatchUpdateIsCounted() throws Exception {
+        Item item = saveItem();
+        User booker = new User();
+        booker.setName("Metrics booker");
+        booker.setEmail("metrics-booker@ya.ru");
+        booker = userRepository.save(booker);
+        Booking first = saveBooking(item, booker, 1);
+        Booking second = saveBooking(item, booker, 3);
+        entityManager.flush();
+        entityManager.clear();
+        DistributionSummary before = meterRegistry.find("shareit.request.sql.statements")
+                .tag("method", "PATCH").tag("uri", "/bookings/batch").summary();
+        double statementsBefore = before != null ? before.totalAmount() : 0;
+
+        mvc.perform(patch("/bookings/batch")
+                        .header("X-Sharer-User-Id", item.getOwner().getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[{\"bookingId\":" + first.getId() + ",\"approved\":false},"
+                                + "{\"bookingId\":" + second.getId() + ",\"approved\":false}]"))
+                .andExpect(status().isOk());
+
+        DistributionSummary statements = meterRegistry.get("shareit.request.sql.statements")
+                .tag("method", "PATCH").tag("uri", "/bookings/batch").summary();
+        //Проверка владельца, id вещей для блокировок, загрузка бронирований с вещами и пакетное изменение статусов
+        assertEquals(statements.totalAmount() - statementsBefore, 4.0, "Количество SQL-запросов не совпадает");
+    }
+
+    //Бюджет класса контроллера применяется к методам без собственного бюджета,
+    //превышение бюджета передается внешним счетчикам теста
+    @Test
+    void typeLevelBudgetIsCheckedAndPassedToOuterStatistics() throws Exception {
+        RequestStatisticsInterceptor interceptor = new RequestStatisticsInterceptor(meterRegistry);
+        BudgetedController controller = new BudgetedController();
+        HandlerMethod classBudget = new HandlerMethod(controller, BudgetedController.class.getDeclaredMethod("withClassBudget"));
+        HandlerMethod ownBudget = new HandlerMethod(controller, BudgetedController.class.getDeclaredMethod("withOwnBudget"));
+
+        RequestStatistics outer = RequestStatistics.start();
+        try {
+            executeTwoStatements(interceptor, ownBudget, "/own");
+            assertTrue(outer.getExceededBudgets().isEmpty(), "Бюджет метода должен заменять бюджет класса");
+
+            executeTwoStatements(interceptor, classBudget, "/class");
+        } finally {
+            RequestStatistics.finish();
+        }
+
+        assertEquals(outer.getExceededBudgets(), List.of("GET /class: 2, бюджет: 1"), "Превышение бюджета класса не записано");
+        assertEquals(outer.getStatements(), 4L, "Запросы обработчиков не добавлены к внешним счетчикам");
+    }
+
+    //Время выполнения методов сервисов публикуется с именами класса и метода
+    @Test
+    void serviceMethodsAreTimed() throws Exception {
+        Item item = saveItem();
+
+        mvc.perform(get("/items/" + item.getId()).header("X-Sharer-User-Id", item.getOwner().getId()))
+                .andExpect(status().isOk());
+
+        assertTrue(meterRegistry.get("shareit.service").tag("class", "ru.practicum.shareit.item.service.ItemService")
+                .tag("method", "getById").timer().count() > 0, "Время получения вещи не измерено");
+    }
+
+    private void executeTwoStatements(RequestStatisticsInterceptor interceptor, HandlerMethod handler, String uri) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", uri);
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        interceptor.preHandle(request, response, handler);
+        jdbcTemplate.execute("select 1");
+        jdbcTemplate.execute("select 2");
+        interceptor.afterCompletion(request, response, handler, null);
+    }
+
+    private double statementsSummaryCount() {
+        DistributionSummary summary = meterRegistry.find("shareit.request.sql.statements")
+                .tag("method", "GET").tag("uri", "/items/{id}").summary();
+        return summary != null ? summary.count() : 0;
+    }
+
+    private Booking saveBooking(Item item, User booker, int startInDays) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(LocalDateTime.now().plusDays(startInDays));
+        booking.setEnd(LocalDateTime.now().plusDays(startInDays + 1));
+        booking.setStatus(StatusOfBooking.WAITING);
+        return bookingRepository.save(booking);
+    }
+
+    private Item saveItem() {
+        User owner = new User();
+        owner.setName("Metrics owner");
+        owner.setEmail("metrics-owner@ya.ru");
+        owner = userRepository.save(owner);
+
+        Item item = new Item();
+        item.setName("Metrics item");
+        item.setDescription("Metrics item");
+        item.setAvailable(true);
+        item.setOwner(owner);
+        return itemRepository.save(item);
+    }
+
+    @QueryBudget(1)
+    private static class BudgetedController {
+        void withClassBudget() {
+        }
+
+        @QueryBudget(2)
+        void withOwnBudget() {
+        }
+    }
+}
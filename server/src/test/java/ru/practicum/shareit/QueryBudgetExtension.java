@@ -0,0 +1,46 @@
+package ru.practicum.shareit;
+
+import org.junit.jupiter.api.extension.AfterTestExecutionCallback;
+import org.junit.jupiter.api.extension.BeforeTestExecutionCallback;
+import org.junit.jupiter.api.extension.ExtensionContext;
+import org.junit.platform.commons.support.AnnotationSupport;
+import ru.practicum.shareit.metrics.QueryBudget;
+import ru.practicum.shareit.metrics.RequestStatistics;
+
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Проверка бюджетов SQL-запросов. Учитываются все запросы, выполненные в потоке теста, в том числе при обработке
+//запросов MockMvc. Тест завершается ошибкой, если запрос MockMvc превысил бюджет метода контроллера
+//или если все запросы теста превысили бюджет, заданный аннотацией @QueryBudget на методе или классе теста
+public class QueryBudgetExtension implements BeforeTestExecutionCallback, AfterTestExecutionCallback {
+    private static final ExtensionContext.Namespace NAMESPACE = ExtensionContext.Namespace.create(QueryBudgetExtension.class);
+
+    @Override
+    public void beforeTestExecution(ExtensionContext context) {
+        context.getStore(NAMESPACE).put(context.getUniqueId(), RequestStatistics.start());
+    }
+
+    @Override
+    public void afterTestExecution(ExtensionContext context) {
+        RequestStatistics statistics = context.getStore(NAMESPACE).remove(context.getUniqueId(), RequestStatistics.class);
+        if (statistics == null) {
+            return;
+        }
+        RequestStatistics.finish();
+
+        assertTrue(statistics.getExceededBudgets().isEmpty(), "Превышен бюджет SQL-запросов метода контроллера: "
+                + statistics.getExceededBudgets());
+        Optional<QueryBudget> budget = findBudget(context);
+        if (budget.isPresent()) {
+            assertTrue(statistics.getStatements() <= budget.get().value(), "Превышен бюджет SQL-запросов: "
+                    + statistics.getStatements() + ", бюджет: " + budget.get().value());
+        }
+    }
+
+    private static Optional<QueryBudget> findBudget(ExtensionContext context) {
+        Optional<QueryBudget> budget = AnnotationSupport.findAnnotation(context.getTestMethod(), QueryBudget.class);
+        return budget.isPresent() ? budget : AnnotationSupport.findAnnotation(context.getTestClass(), QueryBudget.class);
+    }
+}
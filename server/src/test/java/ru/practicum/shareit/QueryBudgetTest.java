@@ -0,0 +1,218 @@
+package ru.practicum.shareit;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.booking.dto.BookingDto;
+import ru.practicum.shareit.booking.model.Booking;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.comment.model.Comment;
+import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.model.Item;
+import ru.practicum.shareit.item.repository.ItemRepository;
+import ru.practicum.shareit.metrics.QueryBudget;
+import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.request.repository.RequestRepository;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.patch;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Transactional
+@SpringBootTest
+@AutoConfigureMockMvc
+//Запросы MockMvc, превысившие бюджет метода контроллера, завершают тест ошибкой в QueryBudgetExtension
+@ExtendWith(QueryBudgetExtension.class)
+public class QueryBudgetTest {
+    private static final int NUMBER_OF_REQUESTS = 5;
+
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private MeterRegistry meterRegistry;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private ObjectMapper objectMapper;
+    private User user;
+    private User owner;
+    private Request lastRequest;
+    private final List<Item> ownedItems = new ArrayList<>();
+    private final List<Booking> futureBookings = new ArrayList<>();
+
+    //Каждый запрос создан отдельным пользователем, а вещь по нему - отдельным владельцем.
+    //Вещи владельца owner забронированы в прошлом и будущем и прокомментированы разными пользователями
+    @BeforeEach
+    void prepareDataForTest() {
+        user = saveUser("Budget user", "budget-user@ya.ru");
+        owner = saveUser("Budget items owner", "budget-items-owner@ya.ru");
+        for (int i = 0; i < NUMBER_OF_REQUESTS; i++) {
+            Request request = new Request();
+            request.setDescription("Budget request " + i);
+            request.setRequestor(saveUser("Budget requestor " + i, "budget-requestor-" + i + "@ya.ru"));
+            request.setCreated(LocalDateTime.now().minusDays(i));
+            lastRequest = requestRepository.save(request);
+
+            Item item = new Item();
+            item.setName("Budget item " + i);
+            item.setDescription("Budget item " + i);
+            item.setAvailable(true);
+            item.setOwner(saveUser("Budget owner " + i, "budget-owner-" + i + "@ya.ru"));
+            item.setRequest(lastRequest);
+            itemRepository.save(item);
+
+            Item ownedItem = new Item();
+            ownedItem.setName("Owned item " + i);
+            ownedItem.setDescription("Owned item " + i);
+            ownedItem.setAvailable(true);
+            ownedItem.setOwner(owner);
+            ownedItems.add(itemRepository.save(ownedItem));
+
+            User booker = request.getRequestor();
+            saveBooking(ownedItem, booker, LocalDateTime.now().minusDays(2), StatusOfBooking.APPROVED);
+            futureBookings.add(saveBooking(ownedItem, booker, LocalDateTime.now().plusDays(1), StatusOfBooking.APPROVED));
+
+            Comment comment = new Comment();
+            comment.setText("Budget comment " + i);
+            comment.setItem(ownedItem);
+            comment.setAuthor(booker);
+            comment.setCreated(LocalDateTime.now().minusDays(1));
+            commentRepository.save(comment);
+        }
+        //Сбрасываем контекст, чтобы все данные читались из базы
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    //Авторы запросов и владельцы вещей загружаются вместе со списком, количество SQL-запросов не зависит от их числа
+    @Test
+    @QueryBudget(3)
+    void allRequestsStayWithinQueryBudget() throws Exception {
+        mvc.perform(get("/requests/all").header("X-Sharer-User-Id", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(NUMBER_OF_REQUESTS))
+                .andExpect(jsonPath("$[0].items[0].ownerId").isNumber());
+
+        assertNull(meterRegistry.find("shareit.request.query.budget.exceeded").tag("uri", "/requests/all").counter(),
+                "Превышение бюджета SQL-запросов записано в метрику");
+    }
+
+    //Запрос по id вместе с вещами и их владельцами
+    @Test
+    @QueryBudget(4)
+    void requestByIdStaysWithinQueryBudget() throws Exception {
+        mvc.perform(get("/requests/" + lastRequest.getId()).header("X-Sharer-User-Id", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items.length()").value(1));
+    }
+
+    //Найденные вещи загружаются вместе с владельцами и запросами
+    @Test
+    @QueryBudget(1)
+    void searchStaysWithinQueryBudget() throws Exception {
+        mvc.perform(get("/items/search").param("text", "budget").header("X-Sharer-User-Id", user.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(NUMBER_OF_REQUESTS));
+    }
+
+    //Вещь владельцу возвращается вместе с последним и следующим бронированием и комментариями
+    @Test
+    void itemByIdStaysWithinHandlerQueryBudget() throws Exception {
+        mvc.perform(get("/items/" + ownedItems.get(0).getId()).header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.lastBooking.id").isNumber())
+                .andExpect(jsonPath("$.nextBooking.id").value(futureBookings.get(0).getId()))
+                .andExpect(jsonPath("$.comments.length()").value(1));
+    }
+
+    //Бронирования всех вещей владельца загружаются общими запросами
+    @Test
+    void itemsOfOwnerStayWithinHandlerQueryBudget() throws Exception {
+        mvc.perform(get("/items").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(NUMBER_OF_REQUESTS))
+                .andExpect(jsonPath("$[*].lastBooking.id").isNotEmpty())
+                .andExpect(jsonPath("$[*].nextBooking.id").isNotEmpty());
+    }
+
+    //Бронирования загружаются вместе с вещами и арендаторами
+    @Test
+    void bookingsStayWithinHandlerQueryBudget() throws Exception {
+        Booking booking = futureBookings.get(0);
+        mvc.perform(get("/bookings/" + booking.getId()).header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.booker.id").value(booking.getBooker().getId()));
+        mvc.perform(get("/bookings").header("X-Sharer-User-Id", booking.getBooker().getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2));
+        mvc.perform(get("/bookings/owner").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.length()").value(2 * NUMBER_OF_REQUESTS));
+    }
+
+    //Добавление бронирования и его подтверждение владельцем
+    @Test
+    void addAndApproveBookingStayWithinHandlerQueryBudget() throws Exception {
+        BookingDto bookingDto = new BookingDto(ownedItems.get(0).getId(), LocalDateTime.now().plusDays(5),
+                LocalDateTime.now().plusDays(6), null, null, null);
+        String response = mvc.perform(post("/bookings").header("X-Sharer-User-Id", user.getId())
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(objectMapper.writeValueAsString(bookingDto)))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        long bookingId = objectMapper.readTree(response).get("id").asLong();
+        //Добавленное бронирование записывается в базу до подтверждения, а не при запросах подтверждения
+        entityManager.flush();
+        entityManager.clear();
+
+        mvc.perform(patch("/bookings/" + bookingId).param("approved", "true").header("X-Sharer-User-Id", owner.getId()))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.status").value("APPROVED"));
+    }
+
+    private Booking saveBooking(Item item, User booker, LocalDateTime start, StatusOfBooking status) {
+        Booking booking = new Booking();
+        booking.setItem(item);
+        booking.setBooker(booker);
+        booking.setStart(start);
+        booking.setEnd(start.plusDays(1));
+        booking.setStatus(status);
+        return bookingRepository.save(booking);
+    }
+
+    private User saveUser(String name, String email) {
+        User user = new User();
+        user.setName(name);
+        user.setEmail(email);
+        return userRepository.save(user);
+    }
+}
@@ -0,0 +1,158 @@
+package ru.practicum.shareit;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+import ru.practicum.shareit.booking.repository.BookingRepository;
+import ru.practicum.shareit.comment.repository.CommentRepository;
+import ru.practicum.shareit.item.repository.ItemRepository;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.fail;
+
+//Проверка планов запросов репозиториев: ни один запрос не должен читать таблицу целиком.
+//SQL-запросы, выполненные репозиторием, перехватываются и повторно разбираются командой EXPLAIN.
+//Поиск по тексту не проверяется: в PostgreSQL он использует триграммные индексы, которых нет в H2.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+        + "ru.practicum.shareit.QueryPlanTest$CapturingStatementInspector")
+public class QueryPlanTest {
+    private static final Pattern TABLE_SCAN = Pattern.compile("/\\* PUBLIC\\.(\\w+)\\.tableScan \\*/");
+    private static final Pageable PAGE = PageRequest.of(0, 10);
+    private static final Pageable PAGE_BY_START = PageRequest.of(0, 10, Sort.by("start").descending().and(Sort.by("id").descending()));
+    private static final List<String> STATEMENTS = new ArrayList<>();
+
+    @Autowired
+    private BookingRepository bookingRepository;
+    @Autowired
+    private ItemRepository itemRepository;
+    @Autowired
+    private CommentRepository commentRepository;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void clearStatements() {
+        STATEMENTS.clear();
+    }
+
+    //Запросы бронирований арендатора
+    @Test
+    void bookingsOfBookerUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.getAllByBookerIdAndStatusOrderByStartDesc(1, StatusOfBooking.WAITING, PAGE_BY_START);
+        bookingRepository.getAllByBookerIdOrderByStartDesc(1, PAGE_BY_START);
+        bookingRepository.getCurrentBookings(1, PAGE_BY_START);
+        bookingRepository.getFutureBookings(1, PAGE_BY_START);
+        bookingRepository.getPastBookings(1, PAGE_BY_START);
+        bookingRepository.getAllByBookerIdAndStatusAfterCursor(1, StatusOfBooking.WAITING, now, 1, PAGE);
+        bookingRepository.getAllByBookerIdAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getCurrentBookingsAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getFutureBookingsAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getPastBookingsAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getAllByBookerIdAndItemIdAndEndIsBefore(1, 1, now);
+
+        assertNoTableScans();
+    }
+
+    //Запросы бронирований по вещам владельца
+    @Test
+    void bookingsOfOwnerUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.getAllByItemOwnerId(1, PAGE_BY_START);
+        bookingRepository.getAllByItemOwnerIdAndState(1, StatusOfBooking.WAITING, PAGE_BY_START);
+        bookingRepository.getCurrentBookingsByItems(1, PAGE_BY_START);
+        bookingRepository.getFutureBookingsByItems(1, PAGE_BY_START);
+        bookingRepository.getPastBookingsByItems(1, PAGE_BY_START);
+        bookingRepository.getAllByItemOwnerIdAndStateAfterCursor(1, StatusOfBooking.WAITING, now, 1, PAGE);
+        bookingRepository.getAllByItemOwnerIdAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getCurrentBookingsByItemsAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getFutureBookingsByItemsAfterCursor(1, now, 1, PAGE);
+        bookingRepository.getPastBookingsByItemsAfterCursor(1, now, 1, PAGE);
+
+        assertNoTableScans();
+    }
+
+    //Запросы бронирований одной или нескольких вещей
+    @Test
+    void bookingsOfItemsUseIndexes() {
+        LocalDateTime now = LocalDateTime.now();
+        bookingRepository.getStartById(1);
+        bookingRepository.getItemIdById(1);
+        bookingRepository.getItemIdsByIdIn(List.of(1L, 2L));
+        bookingRepository.getAllByItemId(1);
+        bookingRepository.getApprovedWithBookerByItemsId(List.of(1L, 2L));
+        bookingRepository.getLastApprovedByItemId(1, now, PAGE);
+        bookingRepository.getNextApprovedByItemId(1, now, PAGE);
+        bookingRepository.getApprovedByItemIdIfOnlyOne(1);
+        bookingRepository.getApprovedIntervalsByItemId(1);
+        bookingRepository.getAllWithDetailsByIdIn(List.of(1L, 2L));
+
+        assertNoTableScans();
+    }
+
+    //Запросы вещей, запросов и отзывов. Выборка всех запросов по дате создания не проверяется:
+    //без условия отбора H2 на пустой таблице всегда выбирает полный просмотр вместо индекса requests_created_idx
+    @Test
+    void itemsRequestsAndCommentsUseIndexes() {
+        itemRepository.findItemByOwnerIdOrderByIdAsc(1, PAGE);
+        itemRepository.findItemByOwnerIdAndIdGreaterThanOrderByIdAsc(1, 1, PAGE);
+        itemRepository.findIndexedItemsAfter(1, PAGE);
+        itemRepository.getAllWithDetailsByIdIn(List.of(1L, 2L));
+        itemRepository.getAllByRequestsId(List.of(1L, 2L));
+        itemRepository.findAllByRequestId(1);
+        commentRepository.getAllWithAuthorByItemId(1);
+        commentRepository.getAllByItemId(1);
+
+        assertNoTableScans();
+    }
+
+    private void assertNoTableScans() {
+        assertFalse(STATEMENTS.isEmpty(), "SQL-запросы не перехвачены");
+        for (String sql : STATEMENTS) {
+            String plan = explain(sql);
+            Matcher matcher = TABLE_SCAN.matcher(plan);
+            if (matcher.find()) {
+                fail("Запрос читает таблицу " + matcher.group(1) + " целиком:\n" + plan);
+            }
+        }
+    }
+
+    //Служебный метод возвращает план запроса, значения параметров на выбор индекса в H2 не влияют
+    private String explain(String sql) {
+        int parameters = sql.length() - sql.replace("?", "").length();
+        return jdbcTemplate.query("EXPLAIN " + sql,
+                statement -> {
+                    for (int i = 1; i <= parameters; i++) {
+                        statement.setObject(i, null);
+                    }
+                },
+                resultSet -> {
+                    resultSet.next();
+                    return resultSet.getString(1);
+                });
+    }
+
+    //Перехватчик SQL-запросов Hibernate, подключается свойством hibernate.session_factory.statement_inspector
+    public static class CapturingStatementInspector implements StatementInspector {
+        @Override
+        public String inspect(String sql) {
+            if (sql.trim().toLowerCase().startsWith("select")) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
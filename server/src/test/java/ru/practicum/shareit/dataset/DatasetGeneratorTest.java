@@ -0,0 +1,155 @@
+package ru.practicum.shareit.dataset;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabase;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseBuilder;
+import org.springframework.jdbc.datasource.embedded.EmbeddedDatabaseType;
+import ru.practicum.shareit.booking.model.StatusOfBooking;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Генератор пишет данные напрямую через JDBC вне транзакции теста, поэтому каждый тест работает
+//с отдельной базой в памяти, а не с базой общего контекста Spring
+public class DatasetGeneratorTest {
+    private static final String BOOKINGS_FINGERPRINT = "select start_date, end_date, item_id, booker_id, status from bookings order by id";
+
+    private EmbeddedDatabase database;
+    private JdbcTemplate jdbcTemplate;
+    private DatasetGenerator datasetGenerator;
+
+    @BeforeEach
+    void createDatabase() {
+        database = new EmbeddedDatabaseBuilder().setType(EmbeddedDatabaseType.H2).generateUniqueName(true).build();
+        Flyway.configure().dataSource(database).locations("classpath:db/migration/common").load().migrate();
+        jdbcTemplate = new JdbcTemplate(database);
+
+        DatasetProperties properties = new DatasetProperties();
+        properties.setUsers(50);
+        properties.setItems(200);
+        properties.setRequests(20);
+        properties.setBookings(2000);
+        properties.setBaseDate(LocalDate.of(2030, 1, 1));
+        properties.setBatchSize(64);
+        datasetGenerator = new DatasetGenerator(jdbcTemplate, properties);
+    }
+
+    @AfterEach
+    void dropDatabase() {
+        database.shutdown();
+    }
+
+    //Генератор создает заданное количество строк и все статусы бронирований
+    @Test
+    void generateLoadsRequestedVolumes() {
+        datasetGenerator.generate();
+
+        assertEquals(count("users"), 50, "Количество пользователей не совпадает");
+        assertEquals(count("items"), 200, "Количество вещей не совпадает");
+        assertEquals(count("requests"), 20, "Количество запросов не совпадает");
+        assertEquals(count("bookings"), 2000, "Количество бронирований не совпадает");
+        assertTrue(count("comments") > 0, "Должны быть созданы отзывы");
+        List<String> statuses = jdbcTemplate.queryForList("select distinct status from bookings order by status", String.class);
+        assertEquals(statuses, Arrays.stream(StatusOfBooking.values()).map(Enum::name).sorted().collect(Collectors.toList()),
+                "Должны быть созданы бронирования во всех статусах");
+        assertEquals(count("bookings where booker_id = (select owner_id from items where items.id = bookings.item_id)"), 0,
+                "Владелец не может бронировать свою вещь");
+    }
+
+    //Бронирования приходятся на прошлое, настоящее и будущее, а подтвержденные бронирования одной вещи не пересекаются
+    @Test
+    void generateSpreadsBookingsWithoutOverlaps() {
+        datasetGenerator.generate();
+
+        assertTrue(count("bookings where end_date < timestamp '2030-01-01 00:00:00'") > 0, "Должны быть прошлые бронирования");
+        assertTrue(count("bookings where start_date > timestamp '2030-01-01 00:00:00'") > 0, "Должны быть будущие бронирования");
+        assertTrue(count("bookings where start_date <= timestamp '2030-01-01 00:00:00' "
+                + "and end_date >= timestamp '2030-01-01 00:00:00'") > 0, "Должны быть текущие бронирования");
+        assertEquals(count("bookings b1 join bookings b2 on b1.item_id = b2.item_id and b1.id < b2.id "
+                        + "where b1.status = 'APPROVED' and b2.status = 'APPROVED' "
+                        + "and b1.start_date < b2.end_date and b2.start_date < b1.end_date"), 0,
+                "Подтвержденные бронирования вещи не должны пересекаться");
+    }
+
+    //Количество вещей у владельцев распределено неравномерно: у первого по рангу владельца вещей больше всех
+    @Test
+    void generateSkewsItemsTowardsFirstOwners() {
+        datasetGenerator.generate();
+
+        List<Map<String, Object>> owners = jdbcTemplate.queryForList(
+                "select owner_id, count(*) as items from items group by owner_id order by count(*) desc, owner_id");
+        assertEquals(((Number) owners.get(0).get("owner_id")).longValue(), firstId("users"),
+                "У первого владельца должно быть больше всего вещей");
+        assertTrue(((Number) owners.get(0).get("items")).longValue() > 200 / 50 * 5, "Распределение вещей должно быть неравномерным");
+    }
+
+    //Одинаковые параметры дают одинаковый набор данных
+    @Test
+    void generateIsDeterministic() {
+        datasetGenerator.generate();
+        List<Map<String, Object>> first = jdbcTemplate.queryForList(BOOKINGS_FINGERPRINT);
+
+        dropDatabase();
+        createDatabase();
+        datasetGenerator.generate();
+        List<Map<String, Object>> second = jdbcTemplate.queryForList(BOOKINGS_FINGERPRINT);
+
+        assertEquals(first, second, "Наборы данных должны совпадать");
+    }
+
+    //Повторная загрузка в заполненные таблицы не допускается
+    @Test
+    void generateFailsIfTablesAreNotEmpty() {
+        datasetGenerator.generate();
+
+        assertThrows(IllegalStateException.class, datasetGenerator::generate);
+    }
+
+    //Id пользователей и вещей берутся из базы, даже если столбец IDENTITY уже ушел вперед после удаления строк
+    @Test
+    void generateReferencesGeneratedIds() {
+        jdbcTemplate.update("insert into users (name, email) values ('Deleted', 'deleted@shareit.ru')");
+        jdbcTemplate.update("insert into items (name, description, available, owner_id) "
+                + "values ('Deleted', 'Deleted', true, (select max(id) from users))");
+        jdbcTemplate.update("delete from items");
+        jdbcTemplate.update("delete from users");
+
+        datasetGenerator.generate();
+
+        assertEquals(firstId("users"), 2L, "Id пользователей должны начинаться после удаленной строки");
+        assertEquals(firstId("items"), 2L, "Id вещей должны начинаться после удаленной строки");
+        assertEquals(count("bookings"), 2000, "Количество бронирований не совпадает");
+        assertEquals(count("bookings where item_id not in (select id from items) or booker_id not in (select id from users)"), 0,
+                "Бронирования должны ссылаться на созданные вещи и пользователей");
+        assertEquals(count("requests where requestor_id not in (select id from users)"), 0,
+                "Запросы должны ссылаться на созданных пользователей");
+    }
+
+    //Загрузка в непустую таблицу, отличную от таблицы пользователей, тоже не допускается
+    @Test
+    void generateFailsIfAnyTableIsNotEmpty() {
+        jdbcTemplate.update("insert into requests (id, description, requestor_id) values (1, 'Existing', null)");
+
+        assertThrows(IllegalStateException.class, datasetGenerator::generate);
+        assertEquals(count("users"), 0, "Пользователи не должны создаваться");
+    }
+
+    private long firstId(String table) {
+        return jdbcTemplate.queryForObject("select min(id) from " + table, Long.class);
+    }
+
+    private long count(String from) {
+        return jdbcTemplate.queryForObject("select count(*) from " + from, Long.class);
+    }
+}
@@ -90,7 +90,7 @@ public class RequestControllerTest {
     void findAllRequestsByUserIdIfEverythingOk() throws Exception {
         prepareDataForTest();
 
-        when(requestService.findAllRequests(anyLong())).thenReturn(requests);
+        when(requestService.findAllRequests(anyLong(), any(), any())).thenReturn(requests);
 
         mvc.perform(get("/requests")
                         .header("X-Sharer-User-Id", 1)
@@ -112,12 +112,31 @@ public class RequestControllerTest {
                 .andExpect(jsonPath("$[1].requestor.email").value(requests.get(1).getRequestor().getEmail()));
     }
 
+    //Получение запросов по курсору, если указан параметр cursor
+    @Test
+    void findAllRequestsByCursorIfEverythingOk() throws Exception {
+        prepareDataForTest();
+
+        when(requestService.findAllRequestsAfterCursor(anyLong(), anyLong(), any())).thenReturn(requests);
+
+        mvc.perform(get("/requests")
+                        .param("cursor", "5")
+                        .param("size", "2")
+                        .header("X-Sharer-User-Id", 1)
+                        .characterEncoding(StandardCharsets.UTF_8)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(requests.get(0).getId()))
+                .andExpect(jsonPath("$[1].id").value(requests.get(1).getId()));
+    }
+
     //Поиск запросов по Id пользователя - некорректный запрос
     @Test
     void findAllRequestsByUserIdIfBadRequest() throws Exception {
         prepareDataForTest();
 
-        when(requestService.findAllRequests(anyLong())).thenThrow(BadRequestException.class);
+        when(requestService.findAllRequests(anyLong(), any(), any())).thenThrow(BadRequestException.class);
 
         mvc.perform(get("/requests")
                         .header("X-Sharer-User-Id", 1)
@@ -132,7 +151,7 @@ public class RequestControllerTest {
     void findByIdIfEverythingOk() throws Exception {
         prepareDataForTest();
 
-        when(requestService.findById(anyLong(), anyLong())).thenReturn(responseRequestDto);
+        when(requestService.findById(anyLong(), anyLong(), any())).thenReturn(responseRequestDto);
 
         mvc.perform(get("/requests/1")
                         .content(mapper.writeValueAsString(requestDto))
@@ -154,7 +173,7 @@ public class RequestControllerTest {
     void findByIdIfBadRequest() throws Exception {
         prepareDataForTest();
 
-        when(requestService.findById(anyLong(), anyLong())).thenThrow(BadRequestException.class);
+        when(requestService.findById(anyLong(), anyLong(), any())).thenThrow(BadRequestException.class);
 
         mvc.perform(get("/requests/1")
                         .content(mapper.writeValueAsString(requestDto))
@@ -0,0 +1,108 @@
+package ru.practicum.shareit.request;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.request.dto.ResponseRequestDto;
+import ru.practicum.shareit.request.model.Request;
+import ru.practicum.shareit.request.repository.RequestRepository;
+import ru.practicum.shareit.request.service.RequestService;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utility.PageableUtility;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@Transactional
+@SpringBootTest
+public class RequestPagingTest {
+    //Запросов больше, чем помещается на страницу по умолчанию
+    private static final int NUMBER_OF_REQUESTS = PageableUtility.DEFAULT_SIZE_OF_PAGE + 3;
+
+    @Autowired
+    private RequestService requestService;
+    @Autowired
+    private RequestRepository requestRepository;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    private long userId;
+    //id запросов в порядке вывода: от новых к старым
+    private final List<Long> savedRequestIds = new ArrayList<>();
+
+    @BeforeEach
+    void prepareDataForTest() {
+        User user = new User();
+        user.setName("Paged requestor");
+        user.setEmail("paged-requestor@ya.ru");
+        userId = userRepository.save(user).getId();
+
+        //Запросы создаются позже всех остальных, поэтому выводятся первыми. У пар запросов совпадает дата создания,
+        //такие запросы упорядочены по id
+        LocalDateTime created = LocalDateTime.now().plusDays(1);
+        for (int i = 0; i < NUMBER_OF_REQUESTS; i++) {
+            Request request = new Request();
+            request.setDescription("Paged request " + i);
+            request.setRequestor(user);
+            request.setCreated(created.plusMinutes(i / 2));
+            savedRequestIds.add(requestRepository.save(request).getId());
+        }
+        Collections.reverse(savedRequestIds);
+        //Сбрасываем контекст, чтобы все данные читались из базы
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    //Без параметров возвращается только первая страница размера по умолчанию (10), следующие запросы доступны по from
+    @Test
+    void pagesByPositionReachRequestsAfterDefaultPage() {
+        List<Long> firstPage = ids(requestService.findAllRequests(userId, null, null));
+        assertEquals(firstPage, savedRequestIds.subList(0, PageableUtility.DEFAULT_SIZE_OF_PAGE),
+                "Первая страница по умолчанию не совпадает");
+
+        List<Long> secondPage = ids(requestService.findAllRequests(userId, PageableUtility.DEFAULT_SIZE_OF_PAGE, null));
+        assertEquals(secondPage.subList(0, NUMBER_OF_REQUESTS - PageableUtility.DEFAULT_SIZE_OF_PAGE),
+                savedRequestIds.subList(PageableUtility.DEFAULT_SIZE_OF_PAGE, NUMBER_OF_REQUESTS),
+                "Запросы после первой страницы не совпадают");
+    }
+
+    //Страницы по курсору проходят все запросы, включая запросы после десятого, без пропусков и повторов
+    @Test
+    void pagesByCursorReachRequestsAfterDefaultPage() {
+        List<Long> pagedByCursor = new ArrayList<>();
+        long cursor = PageableUtility.FIRST_PAGE_CURSOR;
+        List<ResponseRequestDto> page;
+        do {
+            page = requestService.findAllRequestsAfterCursor(userId, cursor, 4);
+            pagedByCursor.addAll(ids(page));
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getId();
+        } while (!page.isEmpty() && pagedByCursor.size() < NUMBER_OF_REQUESTS);
+        assertEquals(pagedByCursor, savedRequestIds, "Страницы по курсору не совпадают");
+    }
+
+    //Некорректные параметры страницы отклоняются
+    @Test
+    void invalidPageParametersAreRejected() {
+        assertThrows(BadRequestException.class, () -> requestService.findAllRequests(userId, -1, 10));
+        assertThrows(BadRequestException.class, () -> requestService.findAllRequests(userId, 0, 0));
+        assertThrows(BadRequestException.class, () -> requestService.findAllRequestsAfterCursor(userId, -1, 10));
+        assertThrows(BadRequestException.class,
+                () -> requestService.findAllRequestsAfterCursor(userId, savedRequestIds.get(0), 0));
+    }
+
+    private static List<Long> ids(List<ResponseRequestDto> requests) {
+        return requests.stream().map(ResponseRequestDto::getId).collect(Collectors.toList());
+    }
+}
@@ -8,6 +8,9 @@ import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
 import ru.practicum.shareit.booking.repository.BookingRepository;
 import ru.practicum.shareit.comment.repository.CommentRepository;
 import ru.practicum.shareit.item.repository.ItemRepository;
@@ -19,6 +22,7 @@ import ru.practicum.shareit.request.repository.RequestRepository;
 import ru.practicum.shareit.request.service.RequestService;
 import ru.practicum.shareit.user.model.User;
 import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.utility.PageableUtility;
 
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
@@ -85,14 +89,14 @@ public class RequestServiceTest {
                 .when(userRepository.existsById(Mockito.anyLong()))
                 .thenReturn(true);
         Mockito
-                .when(requestRepository.getAllByOrderByCreatedDesc())
+                .when(requestRepository.getAllByOrderByCreatedDesc(Mockito.any(Pageable.class)))
                 .thenReturn(requests);
 
         Mockito
                 .when(requestRepository.save(Mockito.any(Request.class)))
                 .thenReturn(request);
 
-        List<ResponseRequestDto> response = requestService.findAllRequests(1);
+        List<ResponseRequestDto> response = requestService.findAllRequests(1, null, null);
 
         assertEquals(response.get(0).getId(), requests.get(0).getId(), "Созданные вещи не совпадают");
         assertEquals(response.get(0).getDescription(), requests.get(0).getDescription(), "Созданные вещи не совпадают");
@@ -100,6 +104,9 @@ public class RequestServiceTest {
         assertEquals(response.get(1).getId(), requests.get(1).getId(), "Созданные вещи не совпадают");
         assertEquals(response.get(1).getDescription(), requests.get(1).getDescription(), "Созданные вещи не совпадают");
         assertEquals(response.get(1).getCreated(), requests.get(1).getCreated(), "Созданные вещи не совпадают");
+        //Без параметров страницы запрашивается только первая страница размера по умолчанию
+        Mockito.verify(requestRepository).getAllByOrderByCreatedDesc(
+                PageRequest.of(0, PageableUtility.DEFAULT_SIZE_OF_PAGE, Sort.by("created").descending().and(Sort.by("id").descending())));
     }
 
     private void prepareDataForTest() {
@@ -0,0 +1,113 @@
+package ru.practicum.shareit.user;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.annotation.DirtiesContext;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserService;
+
+import javax.persistence.EntityManagerFactory;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+//Кеш пользователей не откатывается вместе с транзакцией, поэтому тест работает без транзакции и удаляет данные сам
+@DirtiesContext
+@SpringBootTest
+@RequiredArgsConstructor(onConstructor_ = @Autowired)
+public class UserCacheTest {
+    private final UserService userService;
+    private final UserRepository userRepository;
+    private final EntityManagerFactory entityManagerFactory;
+    private final MeterRegistry meterRegistry;
+
+    @AfterEach
+    void clean() {
+        userRepository.deleteAll();
+    }
+
+    //Повторная проверка пользователя не обращается к базе данных
+    @Test
+    void repeatedChecksOfUserAreServedFromCache() {
+        UserDto user = userService.addUser(new UserDto(0, "Cached", "cached@ya.ru"));
+        userRepository.existsById(user.getId());
+        userRepository.findById(user.getId());
+        double hitsBefore = cacheHits(UserRepository.USER_EXISTS_CACHE) + cacheHits(UserRepository.USERS_CACHE);
+        Statistics statistics = startCountingStatements();
+
+        for (int i = 0; i < 10; i++) {
+            assertTrue(userRepository.existsById(user.getId()), "Пользователь должен существовать");
+            assertEquals(userService.getById(user.getId()).getName(), "Cached", "Имя пользователя не совпадает");
+        }
+
+        assertEquals(statistics.getPrepareStatementCount(), 0L, "Проверка пользователя не должна выполнять SQL-запросы");
+        assertEquals(cacheHits(UserRepository.USER_EXISTS_CACHE) + cacheHits(UserRepository.USERS_CACHE) - hitsBefore, 30.0,
+                "Количество попаданий в кеш не совпадает");
+    }
+
+    //Изменение пользователя сразу видно при следующем чтении
+    @Test
+    void updateUserEvictsCachedUser() {
+        UserDto user = userService.addUser(new UserDto(0, "Before", "before@ya.ru"));
+        assertEquals(userService.getById(user.getId()).getName(), "Before", "Имя пользователя не совпадает");
+
+        userService.updateUser(user.getId(), new UserDto(0, "After", null));
+
+        assertEquals(userService.getById(user.getId()).getName(), "After", "Из кеша прочитаны устаревшие данные");
+        assertEquals(userService.getById(user.getId()).getEmail(), "before@ya.ru", "Email пользователя не совпадает");
+    }
+
+    //ETag пользователя строится по версии строки и меняется после изменения пользователя
+    @Test
+    void updateUserChangesETag() {
+        UserDto user = userService.addUser(new UserDto(0, "Versioned", "versioned@ya.ru"));
+        AtomicReference<String> eTag = new AtomicReference<>();
+        userService.getById(user.getId(), tag -> {
+            eTag.set(tag);
+            return false;
+        });
+        assertEquals(userService.getById(user.getId(), eTag.get()::equals), null, "ETag не совпадает с ETag прошлого ответа");
+
+        userService.updateUser(user.getId(), new UserDto(0, "Renamed", null));
+        userService.updateUser(user.getId(), new UserDto(0, null, "renamed@ya.ru"));
+
+        UserDto updated = userService.getById(user.getId(), eTag.get()::equals);
+        assertEquals(updated.getName(), "Renamed", "После изменения пользователя ETag должен измениться");
+        assertEquals(updated.getEmail(), "renamed@ya.ru", "Email пользователя не совпадает");
+    }
+
+    //Удаленный пользователь перестает существовать, а отсутствие пользователя не кешируется
+    @Test
+    void deleteUserEvictsCachedUserAndMissesAreNotCached() {
+        UserDto user = userService.addUser(new UserDto(0, "Deleted", "deleted@ya.ru"));
+        assertTrue(userRepository.existsById(user.getId()), "Пользователь должен существовать");
+        assertTrue(userRepository.findById(user.getId()).isPresent(), "Пользователь должен существовать");
+
+        userService.deleteById(user.getId());
+
+        assertFalse(userRepository.existsById(user.getId()), "Удаленный пользователь не должен существовать");
+        assertFalse(userRepository.findById(user.getId()).isPresent(), "Удаленный пользователь не должен существовать");
+        UserDto created = userService.addUser(new UserDto(0, "Created", "created@ya.ru"));
+        assertTrue(userRepository.existsById(created.getId()), "Созданный пользователь должен существовать");
+    }
+
+    private double cacheHits(String cacheName) {
+        return meterRegistry.get("cache.gets").tag("cache", cacheName).tag("result", "hit").functionCounter().count();
+    }
+
+    private Statistics startCountingStatements() {
+        Statistics statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+        statistics.setStatisticsEnabled(true);
+        statistics.clear();
+        return statistics;
+    }
+}
@@ -7,6 +7,7 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 import ru.practicum.shareit.exception.BadRequestException;
@@ -18,12 +19,19 @@ import ru.practicum.shareit.user.dto.UserDto;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
@@ -47,7 +55,7 @@ public class UserControllerTest {
     void getAllIfEverythingOk() throws Exception {
         prepareDataForTest();
 
-        when(userService.getAll()).thenReturn(users);
+        when(userService.getAll(null, null)).thenReturn(users);
 
         mvc.perform(get("/users")
                         .header("X-Sharer-User-Id", 1)
@@ -68,7 +76,7 @@ public class UserControllerTest {
     void getAllIfBadRequest() throws Exception {
         prepareDataForTest();
 
-        when(userService.getAll()).thenThrow(BadRequestException.class);
+        when(userService.getAll(null, null)).thenThrow(BadRequestException.class);
 
         mvc.perform(get("/users")
                         .header("X-Sharer-User-Id", 1)
@@ -78,6 +86,46 @@ public class UserControllerTest {
                 .andExpect(status().is4xxClientError());
     }
 
+    //Получение страницы пользователей по номеру первой позиции и по курсору, JSON возвращается и без заголовка Accept
+    @Test
+    void getAllPassesPageParameters() throws Exception {
+        prepareDataForTest();
+
+        when(userService.getAll(2, 1)).thenReturn(List.of(testUserDto1));
+        when(userService.getAllAfterCursor(1, 1)).thenReturn(List.of(testUserDto1));
+
+        mvc.perform(get("/users?from=2&size=1"))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
+                .andExpect(jsonPath("$.length()").value(1))
+                .andExpect(jsonPath("$[0].id").value(testUserDto1.getId()));
+        mvc.perform(get("/users?cursor=1&size=1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(testUserDto1.getId()));
+    }
+
+    //Потоковая выгрузка пользователей записывает каждого пользователя отдельной строкой JSON
+    @Test
+    void streamAllWritesNdjson() throws Exception {
+        prepareDataForTest();
+
+        doAnswer(invocation -> {
+            Consumer<UserDto> action = invocation.getArgument(0);
+            users.forEach(action);
+            return null;
+        }).when(userService).forEachUser(any());
+
+        String body = mvc.perform(get("/users")
+                        .accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_NDJSON))
+                .andReturn().getResponse().getContentAsString();
+
+        assertEquals(body, mapper.writeValueAsString(testUserDto) + "\n" + mapper.writeValueAsString(testUserDto1) + "\n",
+                "Строки NDJSON не совпадают");
+    }
+
     //Создание нового пользователя
     @Test
     void saveNewUserIfEverythingOk() throws Exception {
@@ -153,7 +201,7 @@ public class UserControllerTest {
     void getByIdIfEverythingOk() throws Exception {
         prepareDataForTest();
 
-        when(userService.getById(anyLong())).thenReturn(testUserDto1);
+        when(userService.getById(anyLong(), any())).thenReturn(testUserDto1);
 
         mvc.perform(get("/users/1")
                         .header("X-Sharer-User-Id", 1)
@@ -171,7 +219,7 @@ public class UserControllerTest {
     void getByIdIfBadRequest() throws Exception {
         prepareDataForTest();
 
-        when(userService.getById(anyLong())).thenThrow(BadRequestException.class);
+        when(userService.getById(anyLong(), any())).thenThrow(BadRequestException.class);
 
         mvc.perform(get("/users/1")
                         .header("X-Sharer-User-Id", 1)
@@ -194,6 +242,51 @@ public class UserControllerTest {
                 .andExpect(status().isOk());
     }
 
+    //Ответ содержит ETag, построенный сервисом до сериализации, повторный запрос с этим ETag получает ответ 304 без тела
+    @Test
+    void getByIdReturnsNotModifiedForMatchingETag() throws Exception {
+        prepareDataForTest();
+
+        when(userService.getById(anyLong(), any())).thenAnswer(invocation ->
+                invocation.<Predicate<String>>getArgument(1).test("\"user-1-0\"") ? null : testUserDto);
+
+        String eTag = mvc.perform(get("/users/1")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.ETAG, "\"user-1-0\""))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mvc.perform(get("/users/1")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, eTag))
+                .andExpect(content().string(""));
+    }
+
+    //После изменения данных ETag меняется и ответ на запрос со старым ETag содержит новые данные
+    @Test
+    void getAllReturnsNewBodyWhenDataChanged() throws Exception {
+        prepareDataForTest();
+
+        when(userService.getAll(null, null)).thenReturn(users);
+
+        String eTag = mvc.perform(get("/users")
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        when(userService.getAll(null, null)).thenReturn(List.of(testUserDto, new UserDto(2, "Renamed", "testuser1@ya.ru")));
+
+        String newETag = mvc.perform(get("/users")
+                        .header(HttpHeaders.IF_NONE_MATCH, eTag)
+                        .accept(MediaType.APPLICATION_JSON))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[1].name").value("Renamed"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotEquals(newETag, eTag, "ETag не изменился после изменения данных");
+    }
+
     private void prepareDataForTest() {
         //Создаем пользователя для теста
         testUser = new User();
@@ -0,0 +1,123 @@
+package ru.practicum.shareit.user;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+import ru.practicum.shareit.QueryBudgetExtension;
+import ru.practicum.shareit.exception.BadRequestException;
+import ru.practicum.shareit.metrics.QueryBudget;
+import ru.practicum.shareit.user.dto.UserDto;
+import ru.practicum.shareit.user.dto.UserMapper;
+import ru.practicum.shareit.user.model.User;
+import ru.practicum.shareit.user.repository.UserRepository;
+import ru.practicum.shareit.user.service.UserService;
+import ru.practicum.shareit.utility.PageableUtility;
+
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+@Transactional
+@SpringBootTest
+@AutoConfigureMockMvc
+@ExtendWith(QueryBudgetExtension.class)
+public class UserPagingTest {
+    //Пользователей больше, чем помещается на страницу по умолчанию
+    private static final int NUMBER_OF_USERS = PageableUtility.DEFAULT_SIZE_OF_PAGE + 2;
+
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private EntityManager entityManager;
+    @Autowired
+    private MockMvc mvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    private final List<UserDto> savedUsers = new ArrayList<>();
+
+    @BeforeEach
+    void prepareDataForTest() {
+        for (int i = 0; i < NUMBER_OF_USERS; i++) {
+            User user = new User();
+            user.setName("Paged user " + i);
+            user.setEmail("paged-user-" + i + "@ya.ru");
+            savedUsers.add(UserMapper.toUserDto(userRepository.save(user)));
+        }
+        //Сбрасываем контекст, чтобы все данные читались из базы
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    //Страницы по номеру позиции и по курсору содержат пользователей в порядке возрастания id
+    @Test
+    void pagesByPositionAndCursorMatch() {
+        int from = (int) userRepository.count() - NUMBER_OF_USERS;
+        assertEquals(userService.getAll(from, 1), savedUsers.subList(0, 1), "Страница по номеру позиции не совпадает");
+
+        List<UserDto> pagedByCursor = new ArrayList<>();
+        long cursor = savedUsers.get(0).getId() - 1;
+        List<UserDto> page;
+        do {
+            page = userService.getAllAfterCursor(cursor, 3);
+            pagedByCursor.addAll(page);
+            cursor = page.isEmpty() ? cursor : page.get(page.size() - 1).getId();
+        } while (!page.isEmpty());
+        assertEquals(pagedByCursor, savedUsers, "Страницы по курсору не совпадают");
+    }
+
+    //Без параметров страницы возвращается первая страница размера по умолчанию, а не все пользователи
+    @Test
+    void missingPageParametersReturnDefaultPage() {
+        List<UserDto> firstPage = userService.getAll(0, PageableUtility.DEFAULT_SIZE_OF_PAGE);
+
+        assertEquals(firstPage.size(), PageableUtility.DEFAULT_SIZE_OF_PAGE, "Размер страницы по умолчанию не совпадает");
+        assertEquals(userService.getAll(null, null), firstPage, "Страница по умолчанию не совпадает");
+        assertEquals(userService.getAll(null, 2), firstPage.subList(0, 2), "Позиция по умолчанию не совпадает");
+        assertEquals(userService.getAll(PageableUtility.DEFAULT_SIZE_OF_PAGE, null),
+                userService.getAll(PageableUtility.DEFAULT_SIZE_OF_PAGE, PageableUtility.DEFAULT_SIZE_OF_PAGE),
+                "Размер страницы по умолчанию не применен");
+    }
+
+    //Некорректные параметры страницы отклоняются
+    @Test
+    void invalidPageParametersAreRejected() {
+        assertThrows(BadRequestException.class, () -> userService.getAll(-1, 10));
+        assertThrows(BadRequestException.class, () -> userService.getAll(0, 0));
+        assertThrows(BadRequestException.class, () -> userService.getAllAfterCursor(-1, 10));
+        assertThrows(BadRequestException.class, () -> userService.getAllAfterCursor(0, 0));
+    }
+
+    //Потоковая выгрузка читает всех пользователей одним запросом и записывает их строками NDJSON без буферизации ради ETag
+    @Test
+    @QueryBudget(1)
+    void streamWritesAllUsersAsNdjson() throws Exception {
+        String body = mvc.perform(get("/users").accept(MediaType.APPLICATION_NDJSON))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist(HttpHeaders.ETAG))
+                .andReturn().getResponse().getContentAsString();
+
+        List<UserDto> streamed = new ArrayList<>();
+        for (String line : body.split("\n")) {
+            streamed.add(objectMapper.readValue(line, UserDto.class));
+        }
+        assertEquals(streamed.stream().skip(streamed.size() - NUMBER_OF_USERS).collect(Collectors.toList()), savedUsers,
+                "Выгруженные пользователи не совпадают");
+    }
+}